@@ -30,4 +30,5 @@ public interface AstVisitor<T> {
     T visitTupleLiteral(TupleLiteralNode node);
     T visitTypeCheck(TypeCheckNode node);
     T visitTupleMemberAccess(TupleMemberAccessNode node);
+    T visitInput(InputNode node);
 }
@@ -2,18 +2,29 @@ package com.javdin.ast;
 
 public class BinaryOpNode extends ExpressionNode {
     private final ExpressionNode left;
-    private final String operator;
+    private final Operator operator;
     private final ExpressionNode right;
 
-    public BinaryOpNode(int line, int column, ExpressionNode left, String operator, ExpressionNode right) { 
+    public BinaryOpNode(int line, int column, ExpressionNode left, Operator operator, ExpressionNode right) { 
         super(line, column);
+        if (operator.getArity() != 2) {
+            throw new IllegalArgumentException("Not a binary operator: " + operator);
+        }
         this.left = left;
         this.operator = operator;
         this.right = right;
     }
 
+    /**
+     * Convenience for hand-built trees: {@code operator} is the source spelling, e.g. {@code "+"}.
+     */
+    public BinaryOpNode(int line, int column, ExpressionNode left, String operator, ExpressionNode right) { 
+        this(line, column, left, Operator.binary(operator), right);
+    }
+
     public ExpressionNode getLeft() { return left; }
-    public String getOperator() { return operator; }
+    public Operator getOp() { return operator; }
+    public String getOperator() { return operator.getSymbol(); }
     public ExpressionNode getRight() { return right; }
 
     @Override
@@ -4,6 +4,8 @@ import java.util.List;
 
 public class BlockNode extends StatementNode {
     private final List<StatementNode> statements;
+    // Number of slots the block's own frame needs; 0 means the block allocates no frame
+    private int frameSize;
 
     public BlockNode(int line, int column, List<StatementNode> statements) { 
         super(line, column);
@@ -11,6 +13,8 @@ public class BlockNode extends StatementNode {
     }
 
     public List<StatementNode> getStatements() { return statements; }
+    public int getFrameSize() { return frameSize; }
+    public void setFrameSize(int frameSize) { this.frameSize = frameSize; }
 
     @Override
     public <T> T accept(AstVisitor<T> visitor) { 
@@ -0,0 +1,41 @@
+package com.javdin.ast;
+
+/**
+ * Functions every program can call without declaring them. A call reaches
+ * a builtin only if no variable of that name is in scope, so programs that
+ * use these names for their own variables keep working.
+ */
+public enum Builtin {
+    /** {@code lines(path)}: the lines of a file, as an array of strings. */
+    LINES("lines", 1),
+    /** {@code records(path, size)}: a file cut into strings of {@code size} bytes. */
+    RECORDS("records", 2);
+
+    private final String name;
+    private final int arity;
+
+    Builtin(String name, int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    /**
+     * The builtin called {@code name}, or null if there is none.
+     */
+    public static Builtin named(String name) {
+        for (Builtin builtin : values()) {
+            if (builtin.name.equals(name)) {
+                return builtin;
+            }
+        }
+        return null;
+    }
+}
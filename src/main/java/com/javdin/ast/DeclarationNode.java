@@ -17,12 +17,21 @@ public class DeclarationNode extends StatementNode {
     public static class VariableDefinition {
         private final String name;
         private final ExpressionNode initialValue; // null if not initialized
+        private int slot = -1; // slot in the declaring frame, filled in by the resolver
         
         public VariableDefinition(String name, ExpressionNode initialValue) {
             this.name = name;
             this.initialValue = initialValue;
         }
         
+        public int getSlot() {
+            return slot;
+        }
+        
+        public void setSlot(int slot) {
+            this.slot = slot;
+        }
+        
         public String getName() {
             return name;
         }
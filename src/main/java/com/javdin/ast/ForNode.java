@@ -16,6 +16,8 @@ public class ForNode extends StatementNode {
     private final ExpressionNode iterable; // Expression to iterate over (array/tuple) or range start
     private final ExpressionNode rangeEnd; // End of range (null if not a range loop)
     private final StatementNode body;
+    private int variableSlot = -1;      // Slot of the loop variable in its per-iteration frame
+    private boolean variableCaptured;   // Whether a function literal in the body can capture that frame
 
     // Constructor for for-in loops: for var in iterable
     public ForNode(int line, int column, String variable, ExpressionNode iterable, StatementNode body) {
@@ -48,6 +50,10 @@ public class ForNode extends StatementNode {
     public ExpressionNode getIterable() { return iterable; }
     public ExpressionNode getRangeEnd() { return rangeEnd; }
     public StatementNode getBody() { return body; }
+    public int getVariableSlot() { return variableSlot; }
+    public void setVariableSlot(int variableSlot) { this.variableSlot = variableSlot; }
+    public boolean isVariableCaptured() { return variableCaptured; }
+    public void setVariableCaptured(boolean variableCaptured) { this.variableCaptured = variableCaptured; }
     
     public boolean isInfiniteLoop() { return variable == null && iterable == null; }
     public boolean isRangeLoop() { return rangeEnd != null; }
@@ -5,6 +5,8 @@ import java.util.List;
 public class FunctionCallNode extends ExpressionNode {
     private final ExpressionNode function;
     private final List<ExpressionNode> arguments;
+    private boolean tailCall;           // Whether the call's result is the result of the enclosing function
+    private Builtin builtin;            // Builtin the resolver found this call to reach, or null
 
     public FunctionCallNode(int line, int column, ExpressionNode function, List<ExpressionNode> arguments) { 
         super(line, column);
@@ -14,6 +16,10 @@ public class FunctionCallNode extends ExpressionNode {
 
     public ExpressionNode getFunction() { return function; }
     public List<ExpressionNode> getArguments() { return arguments; }
+    public boolean isTailCall() { return tailCall; }
+    public void setTailCall(boolean tailCall) { this.tailCall = tailCall; }
+    public Builtin getBuiltin() { return builtin; }
+    public void setBuiltin(Builtin builtin) { this.builtin = builtin; }
 
     @Override
     public <T> T accept(AstVisitor<T> visitor) { 
@@ -6,6 +6,10 @@ public class FunctionLiteralNode extends ExpressionNode {
     private final List<String> parameters;
     private final Object body; // Can be List<StatementNode> or ExpressionNode
     private final boolean isExpressionBody;
+    // Slots for parameters and locals of one activation; parameter i lives in slot i
+    private int frameSize;
+    // Set by the purity analysis: the result depends only on the arguments
+    private boolean pure;
 
     // Constructor for statement body: func(params) is ... end
     public FunctionLiteralNode(int line, int column, List<String> parameters, List<StatementNode> body, boolean isExpressionBody) { 
@@ -26,6 +30,10 @@ public class FunctionLiteralNode extends ExpressionNode {
     public List<String> getParameters() { return parameters; }
     public Object getBody() { return body; }
     public boolean isExpressionBody() { return isExpressionBody; }
+    public int getFrameSize() { return frameSize; }
+    public void setFrameSize(int frameSize) { this.frameSize = frameSize; }
+    public boolean isPure() { return pure; }
+    public void setPure(boolean pure) { this.pure = pure; }
 
     @SuppressWarnings("unchecked")
     public List<StatementNode> getStatementBody() {
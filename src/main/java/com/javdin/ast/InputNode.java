@@ -0,0 +1,32 @@
+package com.javdin.ast;
+
+/**
+ * AST node for reading from standard input.
+ * Syntax: input | input int | input real
+ * Example: var name := input, var count := input int
+ *
+ * Plain {@code input} reads the rest of the current line as a string; the
+ * typed forms read the next whitespace-separated number. All of them
+ * evaluate to none at end of input.
+ */
+public class InputNode extends ExpressionNode {
+    private final Kind kind;
+
+    public enum Kind {
+        LINE, INTEGER, REAL
+    }
+
+    public InputNode(int line, int column, Kind kind) {
+        super(line, column);
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    @Override
+    public <T> T accept(AstVisitor<T> visitor) {
+        return visitor.visitInput(this);
+    }
+}
@@ -6,6 +6,8 @@ package com.javdin.ast;
 public class LiteralNode extends ExpressionNode {
     private final Object value;
     private final LiteralType type;
+    // Runtime value of this literal, materialized by the executing engine on first use
+    private Object runtimeValue;
     
     public enum LiteralType {
         INTEGER, REAL, BOOLEAN, STRING, NONE
@@ -25,6 +27,14 @@ public class LiteralNode extends ExpressionNode {
         return type;
     }
     
+    public Object getRuntimeValue() {
+        return runtimeValue;
+    }
+    
+    public void setRuntimeValue(Object runtimeValue) {
+        this.runtimeValue = runtimeValue;
+    }
+    
     @Override
     public <T> T accept(AstVisitor<T> visitor) {
         return visitor.visitLiteral(this);
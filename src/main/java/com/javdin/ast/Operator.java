@@ -0,0 +1,91 @@
+package com.javdin.ast;
+
+/**
+ * Project D operators with their source spelling, arity and kind.
+ * The parser resolves every operator token to one of these constants, so
+ * later phases switch on the enum instead of comparing strings.
+ */
+public enum Operator {
+    ADD("+", 2, Kind.ARITHMETIC),
+    SUBTRACT("-", 2, Kind.ARITHMETIC),
+    MULTIPLY("*", 2, Kind.ARITHMETIC),
+    DIVIDE("/", 2, Kind.ARITHMETIC),
+    LESS("<", 2, Kind.COMPARISON),
+    LESS_EQUAL("<=", 2, Kind.COMPARISON),
+    GREATER(">", 2, Kind.COMPARISON),
+    GREATER_EQUAL(">=", 2, Kind.COMPARISON),
+    EQUAL("=", 2, Kind.EQUALITY),
+    NOT_EQUAL("/=", 2, Kind.EQUALITY),
+    AND("and", 2, Kind.LOGICAL),
+    OR("or", 2, Kind.LOGICAL),
+    XOR("xor", 2, Kind.LOGICAL),
+    PLUS("+", 1, Kind.ARITHMETIC),
+    NEGATE("-", 1, Kind.ARITHMETIC),
+    NOT("not", 1, Kind.LOGICAL);
+
+    /**
+     * What an operator computes and which operand types it accepts:
+     * arithmetic on numbers (and {@code +} on strings, arrays and tuples),
+     * ordering of numbers, equality of any two values, and boolean logic.
+     */
+    public enum Kind {
+        ARITHMETIC, COMPARISON, EQUALITY, LOGICAL
+    }
+
+    private final String symbol;
+    private final int arity;
+    private final Kind kind;
+
+    Operator(String symbol, int arity, Kind kind) {
+        this.symbol = symbol;
+        this.arity = arity;
+        this.kind = kind;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public int getArity() {
+        return arity;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The binary operator spelled {@code symbol}; {@code ==} and {@code !=}
+     * are accepted as alternative spellings of {@code =} and {@code /=}.
+     */
+    public static Operator binary(String symbol) {
+        return switch (symbol) {
+            case "+" -> ADD;
+            case "-" -> SUBTRACT;
+            case "*" -> MULTIPLY;
+            case "/" -> DIVIDE;
+            case "<" -> LESS;
+            case "<=" -> LESS_EQUAL;
+            case ">" -> GREATER;
+            case ">=" -> GREATER_EQUAL;
+            case "=", "==" -> EQUAL;
+            case "/=", "!=" -> NOT_EQUAL;
+            case "and" -> AND;
+            case "or" -> OR;
+            case "xor" -> XOR;
+            default -> throw new IllegalArgumentException("Unknown binary operator '" + symbol + "'");
+        };
+    }
+
+    /**
+     * The unary operator spelled {@code symbol}.
+     */
+    public static Operator unary(String symbol) {
+        return switch (symbol) {
+            case "+" -> PLUS;
+            case "-" -> NEGATE;
+            case "not" -> NOT;
+            default -> throw new IllegalArgumentException("Unknown unary operator '" + symbol + "'");
+        };
+    }
+}
@@ -9,6 +9,7 @@ public class ProgramNode implements AstNode {
     private final List<StatementNode> statements;
     private final int line;
     private final int column;
+    private int frameSize; // number of global slots, filled in by the resolver
     
     public ProgramNode(List<StatementNode> statements, int line, int column) {
         this.statements = statements;
@@ -20,6 +21,14 @@ public class ProgramNode implements AstNode {
         return statements;
     }
     
+    public int getFrameSize() {
+        return frameSize;
+    }
+    
+    public void setFrameSize(int frameSize) {
+        this.frameSize = frameSize;
+    }
+    
     @Override
     public <T> T accept(AstVisitor<T> visitor) {
         return visitor.visitProgram(this);
@@ -2,6 +2,9 @@ package com.javdin.ast;
 
 public class ReferenceNode extends ExpressionNode {
     private final String name;
+    // Frame address filled in by the resolver; -1 while unresolved
+    private int depth = -1;
+    private int slot = -1;
 
     public ReferenceNode(int line, int column, String name) { 
         super(line, column);
@@ -9,6 +12,17 @@ public class ReferenceNode extends ExpressionNode {
     }
 
     public String getName() { return name; }
+    public int getDepth() { return depth; }
+    public int getSlot() { return slot; }
+    public boolean isResolved() { return slot >= 0; }
+
+    /**
+     * Bind this reference to a frame slot: {@code depth} enclosing frames up, index {@code slot}.
+     */
+    public void resolve(int depth, int slot) {
+        this.depth = depth;
+        this.slot = slot;
+    }
 
     @Override
     public <T> T accept(AstVisitor<T> visitor) { 
@@ -9,6 +9,9 @@ public class TupleMemberAccessNode extends ExpressionNode {
     private final ExpressionNode tuple;
     private final String memberName;  // Can be identifier or numeric index as string
     private final boolean isNumericIndex;
+    private final int index;  // 1-based position for numeric access, 0 for named access
+    // Inline cache owned by the engine executing this node; null until first executed
+    private Object inlineCache;
 
     /**
      * Constructor for named member access (tuple.name)
@@ -18,6 +21,7 @@ public class TupleMemberAccessNode extends ExpressionNode {
         this.tuple = tuple;
         this.memberName = memberName;
         this.isNumericIndex = false;
+        this.index = 0;
     }
     
     /**
@@ -28,6 +32,7 @@ public class TupleMemberAccessNode extends ExpressionNode {
         this.tuple = tuple;
         this.memberName = String.valueOf(index);
         this.isNumericIndex = true;
+        this.index = index;
     }
 
     public ExpressionNode getTuple() { 
@@ -42,6 +47,21 @@ public class TupleMemberAccessNode extends ExpressionNode {
         return isNumericIndex;
     }
 
+    /**
+     * The 1-based member position of a numeric access, parsed once by the parser.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Object getInlineCache() {
+        return inlineCache;
+    }
+
+    public void setInlineCache(Object inlineCache) {
+        this.inlineCache = inlineCache;
+    }
+
     @Override
     public <T> T accept(AstVisitor<T> visitor) { 
         return visitor.visitTupleMemberAccess(this); 
@@ -1,16 +1,27 @@
 package com.javdin.ast;
 
 public class UnaryOpNode extends ExpressionNode {
-    private final String operator;
+    private final Operator operator;
     private final ExpressionNode operand;
 
-    public UnaryOpNode(int line, int column, String operator, ExpressionNode operand) { 
+    public UnaryOpNode(int line, int column, Operator operator, ExpressionNode operand) { 
         super(line, column);
+        if (operator.getArity() != 1) {
+            throw new IllegalArgumentException("Not a unary operator: " + operator);
+        }
         this.operator = operator;
         this.operand = operand;
     }
 
-    public String getOperator() { return operator; }
+    /**
+     * Convenience for hand-built trees: {@code operator} is the source spelling, e.g. {@code "not"}.
+     */
+    public UnaryOpNode(int line, int column, String operator, ExpressionNode operand) { 
+        this(line, column, Operator.unary(operator), operand);
+    }
+
+    public Operator getOp() { return operator; }
+    public String getOperator() { return operator.getSymbol(); }
     public ExpressionNode getOperand() { return operand; }
 
     @Override
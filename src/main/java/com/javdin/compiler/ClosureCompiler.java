@@ -0,0 +1,671 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.*;
+import com.javdin.interpreter.ArrayValue;
+import com.javdin.interpreter.BufferedOutputSink;
+import com.javdin.interpreter.Builtins;
+import com.javdin.interpreter.ExecutionEngine;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.FunctionValue;
+import com.javdin.interpreter.InputSource;
+import com.javdin.interpreter.MemberCache;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.OutputSink;
+import com.javdin.interpreter.RuntimeError;
+import com.javdin.interpreter.TupleShape;
+import com.javdin.interpreter.TupleValue;
+import com.javdin.interpreter.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles a resolved AST into a tree of {@link Node} closures.
+ * All per-node decisions (operator dispatch, literal construction, slot
+ * addressing, type indicators, numeric tuple indices) are made once here,
+ * leaving only the dynamically typed work for execution time.
+ *
+ * Statements signal break, continue and return by returning one of the
+ * completion markers below rather than throwing; the pending return value
+ * is kept in the compiler instance, so a compiled program is single-threaded.
+ *
+ * In specializing mode, arithmetic, comparison, unary and array access sites
+ * compile to nodes that adapt themselves to the operand types they observe
+ * (see {@link SpecializingBinaryNode}).
+ */
+public class ClosureCompiler implements AstVisitor<Node> {
+    static final Value BREAK = Value.marker();
+    static final Value CONTINUE = Value.marker();
+    static final Value RETURN = Value.marker();
+
+    private final boolean specialize;
+    private final int maxDepth;
+    private final OutputSink output;
+    private final InputSource input;
+    private Value returnValue;
+    private int depth;
+    // Innermost call that ran out of Java stack
+    private AstNode overflowSite;
+    private int overflowDepth;
+
+    public ClosureCompiler() {
+        this(false);
+    }
+
+    public ClosureCompiler(boolean specialize) {
+        this(specialize, ExecutionEngine.DEFAULT_MAX_DEPTH);
+    }
+
+    public ClosureCompiler(boolean specialize, int maxDepth) {
+        this(specialize, maxDepth, new BufferedOutputSink(System.out, true));
+    }
+
+    /**
+     * Creates a compiler whose print statements write to {@code output};
+     * the caller flushes it.
+     */
+    public ClosureCompiler(boolean specialize, int maxDepth, OutputSink output) {
+        this(specialize, maxDepth, output, InputSource.standardInput());
+    }
+
+    /**
+     * Creates a compiler whose input expressions read from {@code input}.
+     */
+    public ClosureCompiler(boolean specialize, int maxDepth, OutputSink output, InputSource input) {
+        this.specialize = specialize;
+        this.maxDepth = maxDepth;
+        this.output = output;
+        this.input = input;
+    }
+
+    public Node compile(ProgramNode program) {
+        return program.accept(this);
+    }
+
+    @Override
+    public Node visitProgram(ProgramNode node) {
+        Node body = sequence(node.getStatements());
+        int frameSize = node.getFrameSize();
+        return frame -> body.execute(new Frame(frameSize, frame));
+    }
+
+    @Override
+    public Node visitDeclaration(DeclarationNode node) {
+        List<DeclarationNode.VariableDefinition> variables = node.getVariables();
+        int[] slots = new int[variables.size()];
+        Node[] initializers = new Node[variables.size()];
+        for (int i = 0; i < slots.length; i++) {
+            DeclarationNode.VariableDefinition definition = variables.get(i);
+            slots[i] = definition.getSlot();
+            initializers[i] = definition.getInitialValue() != null ? definition.getInitialValue().accept(this) : null;
+        }
+        return frame -> {
+            // Predeclare all variables to support mutual recursion and self references
+            for (int slot : slots) {
+                frame.set(slot, Value.VOID);
+            }
+            for (int i = 0; i < slots.length; i++) {
+                if (initializers[i] != null) {
+                    frame.set(slots[i], initializers[i].execute(frame));
+                }
+            }
+            return Value.VOID;
+        };
+    }
+
+    @Override
+    public Node visitAssignment(AssignmentNode node) {
+        Node value = node.getValue().accept(this);
+        ExpressionNode target = node.getTarget();
+        if (target instanceof ReferenceNode reference) {
+            if (!reference.isResolved()) {
+                return frame -> {
+                    value.execute(frame);
+                    throw undefinedVariable(reference);
+                };
+            }
+            int depth = reference.getDepth();
+            int slot = reference.getSlot();
+            return frame -> {
+                Value result = value.execute(frame);
+                Frame owner = frame.ancestor(depth);
+                if (owner.get(slot) == null) {
+                    throw undefinedVariable(reference);
+                }
+                owner.set(slot, result);
+                return result;
+            };
+        }
+        if (target instanceof ArrayAccessNode arrayAccess) {
+            ExpressionNode arrayNode = arrayAccess.getArray();
+            Node array = arrayNode.accept(this);
+            Node index = arrayAccess.getIndex().accept(this);
+            return frame -> {
+                Value result = value.execute(frame);
+                ArrayValue elements = Operations.requireArray(array.execute(frame), arrayNode);
+                elements.set(index.execute(frame).asInteger(), result);
+                return result;
+            };
+        }
+        if (target instanceof TupleMemberAccessNode tupleAccess) {
+            ExpressionNode tupleNode = tupleAccess.getTuple();
+            Node tuple = tupleNode.accept(this);
+            if (tupleAccess.isNumericIndex()) {
+                int position = tupleAccess.getIndex();
+                return frame -> {
+                    Value result = value.execute(frame);
+                    Operations.requireTuple(tuple.execute(frame), tupleNode).setByIndex(position, result);
+                    return result;
+                };
+            }
+            MemberCache cache = new MemberCache(tupleAccess.getMemberName());
+            return frame -> {
+                Value result = value.execute(frame);
+                cache.set(Operations.requireTuple(tuple.execute(frame), tupleNode), result);
+                return result;
+            };
+        }
+        return frame -> {
+            value.execute(frame);
+            throw Operations.runtimeError("Invalid assignment target", target);
+        };
+    }
+
+    @Override
+    public Node visitIf(IfNode node) {
+        Node condition = node.getCondition().accept(this);
+        Node thenBranch = node.getThenStatement().accept(this);
+        Node elseBranch = node.getElseStatement() != null ? node.getElseStatement().accept(this) : null;
+        if (elseBranch == null) {
+            return frame -> condition.execute(frame).isTruthy() ? thenBranch.execute(frame) : Value.VOID;
+        }
+        return frame -> condition.execute(frame).isTruthy() ? thenBranch.execute(frame) : elseBranch.execute(frame);
+    }
+
+    @Override
+    public Node visitWhile(WhileNode node) {
+        Node condition = node.getCondition().accept(this);
+        Node body = node.getBody().accept(this);
+        return frame -> {
+            Value last = Value.VOID;
+            while (condition.execute(frame).isTruthy()) {
+                Value result = runLoopBody(body, frame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+                if (result != CONTINUE) {
+                    last = result;
+                }
+            }
+            return last;
+        };
+    }
+
+    @Override
+    public Node visitFor(ForNode node) {
+        if (node.isInfiniteLoop()) {
+            return compileInfiniteLoop(node);
+        } else if (node.isRangeLoop()) {
+            return compileRangeLoop(node);
+        } else if (node.isIterableLoop()) {
+            return compileIterableLoop(node);
+        }
+        return frame -> {
+            throw Operations.runtimeError("Unsupported for-loop form", node);
+        };
+    }
+
+    @Override
+    public Node visitReturn(ReturnNode node) {
+        if (node.getValue() == null) {
+            return frame -> {
+                returnValue = Value.VOID;
+                return RETURN;
+            };
+        }
+        Node value = node.getValue().accept(this);
+        return frame -> {
+            returnValue = value.execute(frame);
+            return RETURN;
+        };
+    }
+
+    @Override
+    public Node visitBreak(BreakNode node) {
+        return frame -> BREAK;
+    }
+
+    @Override
+    public Node visitContinue(ContinueNode node) {
+        return frame -> CONTINUE;
+    }
+
+    @Override
+    public Node visitPrint(PrintNode node) {
+        Node[] expressions = compileAll(node.getExpressions());
+        return frame -> {
+            Value[] values = new Value[expressions.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = expressions[i].execute(frame);
+            }
+            output.printLine(values, 0, values.length);
+            return Value.VOID;
+        };
+    }
+
+    @Override
+    public Node visitBlock(BlockNode node) {
+        Node body = sequence(node.getStatements());
+        int frameSize = node.getFrameSize();
+        if (frameSize == 0) {
+            return body;
+        }
+        return frame -> body.execute(new Frame(frameSize, frame));
+    }
+
+    @Override
+    public Node visitExpressionStatement(ExpressionStatementNode node) {
+        return node.getExpression().accept(this);
+    }
+
+    @Override
+    public Node visitInput(InputNode node) {
+        return frame -> Operations.read(input, node);
+    }
+
+    @Override
+    public Node visitLiteral(LiteralNode node) {
+        Value constant = Operations.literal(node);
+        return frame -> constant;
+    }
+
+    @Override
+    public Node visitReference(ReferenceNode node) {
+        if (!node.isResolved()) {
+            return frame -> {
+                throw undefinedVariable(node);
+            };
+        }
+        int depth = node.getDepth();
+        int slot = node.getSlot();
+        return switch (depth) {
+            case 0 -> frame -> checkDefined(frame.get(slot), node);
+            case 1 -> frame -> checkDefined(frame.getParent().get(slot), node);
+            default -> frame -> checkDefined(frame.ancestor(depth).get(slot), node);
+        };
+    }
+
+    @Override
+    public Node visitBinaryOp(BinaryOpNode node) {
+        Node left = node.getLeft().accept(this);
+        Node right = node.getRight().accept(this);
+        if (specialize) {
+            Node specialized = SpecializingBinaryNode.create(node, left, right);
+            if (specialized != null) {
+                return specialized;
+            }
+        }
+        return switch (node.getOp()) {
+            case ADD -> frame -> Operations.add(left.execute(frame), right.execute(frame), node);
+            case SUBTRACT -> frame -> Operations.subtract(left.execute(frame), right.execute(frame), node);
+            case MULTIPLY -> frame -> Operations.multiply(left.execute(frame), right.execute(frame), node);
+            case DIVIDE -> frame -> Operations.divide(left.execute(frame), right.execute(frame), node);
+            case LESS -> frame -> Operations.lessThan(left.execute(frame), right.execute(frame), node);
+            case LESS_EQUAL -> frame -> Operations.lessEqual(left.execute(frame), right.execute(frame), node);
+            case GREATER -> frame -> Operations.greaterThan(left.execute(frame), right.execute(frame), node);
+            case GREATER_EQUAL -> frame -> Operations.greaterEqual(left.execute(frame), right.execute(frame), node);
+            case EQUAL -> frame -> Value.bool(Operations.valuesEqual(left.execute(frame), right.execute(frame)));
+            case NOT_EQUAL -> frame -> Value.bool(!Operations.valuesEqual(left.execute(frame), right.execute(frame)));
+            case AND -> frame -> {
+                Value leftValue = left.execute(frame);
+                Value rightValue = right.execute(frame);
+                return Value.bool(Operations.requireBoolean(leftValue, node) && Operations.requireBoolean(rightValue, node));
+            };
+            case OR -> frame -> {
+                Value leftValue = left.execute(frame);
+                Value rightValue = right.execute(frame);
+                return Value.bool(Operations.requireBoolean(leftValue, node) || Operations.requireBoolean(rightValue, node));
+            };
+            case XOR -> frame -> {
+                Value leftValue = left.execute(frame);
+                Value rightValue = right.execute(frame);
+                return Value.bool(Operations.requireBoolean(leftValue, node) ^ Operations.requireBoolean(rightValue, node));
+            };
+            default -> frame -> {
+                left.execute(frame);
+                right.execute(frame);
+                throw Operations.runtimeError("Unsupported operator '" + node.getOperator() + "'", node);
+            };
+        };
+    }
+
+    @Override
+    public Node visitUnaryOp(UnaryOpNode node) {
+        Node operand = node.getOperand().accept(this);
+        if (specialize) {
+            Node specialized = SpecializingUnaryNode.create(node, operand);
+            if (specialized != null) {
+                return specialized;
+            }
+        }
+        return switch (node.getOp()) {
+            case PLUS -> frame -> Operations.unaryPlus(operand.execute(frame), node);
+            case NEGATE -> frame -> Operations.negate(operand.execute(frame), node);
+            case NOT -> frame -> Value.bool(!Operations.requireBoolean(operand.execute(frame), node));
+            default -> frame -> {
+                operand.execute(frame);
+                throw Operations.runtimeError("Unsupported unary operator '" + node.getOperator() + "'", node);
+            };
+        };
+    }
+
+    @Override
+    public Node visitFunctionCall(FunctionCallNode node) {
+        Node[] arguments = compileAll(node.getArguments());
+        if (node.getBuiltin() != null) {
+            return frame -> {
+                Value[] values = new Value[arguments.length];
+                for (int i = 0; i < arguments.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return Builtins.call(node, values);
+            };
+        }
+        ExpressionNode functionNode = node.getFunction();
+        Node function = functionNode.accept(this);
+        return frame -> {
+            FunctionValue callee = Operations.requireFunction(function.execute(frame), functionNode);
+            Value[] values = new Value[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                values[i] = arguments[i].execute(frame);
+            }
+            return invoke(callee, values, node);
+        };
+    }
+
+    @Override
+    public Node visitArrayAccess(ArrayAccessNode node) {
+        ExpressionNode arrayNode = node.getArray();
+        Node array = arrayNode.accept(this);
+        Node index = node.getIndex().accept(this);
+        if (specialize) {
+            return new SpecializingIndexNode(node, array, index);
+        }
+        return frame -> {
+            ArrayValue elements = Operations.requireArray(array.execute(frame), arrayNode);
+            return elements.get(index.execute(frame).asInteger());
+        };
+    }
+
+    @Override
+    public Node visitFunctionLiteral(FunctionLiteralNode node) {
+        Node body = node.isExpressionBody()
+            ? node.getExpressionBody().accept(this)
+            : sequence(node.getStatementBody());
+        return frame -> Value.function(new CompiledFunction(node, frame, body));
+    }
+
+    @Override
+    public Node visitArrayLiteral(ArrayLiteralNode node) {
+        Node[] elements = compileAll(node.getElements());
+        return frame -> {
+            List<Value> values = new ArrayList<>(elements.length);
+            for (Node element : elements) {
+                values.add(element.execute(frame));
+            }
+            return Value.array(new ArrayValue(values));
+        };
+    }
+
+    @Override
+    public Node visitTupleLiteral(TupleLiteralNode node) {
+        List<TupleLiteralNode.TupleElement> elements = node.getElements();
+        String[] names = new String[elements.size()];
+        Node[] values = new Node[elements.size()];
+        for (int i = 0; i < names.length; i++) {
+            TupleLiteralNode.TupleElement element = elements.get(i);
+            names[i] = element.getName();
+            values[i] = element.getValue() != null ? element.getValue().accept(this) : null;
+        }
+        TupleShape shape = TupleShape.of(names);
+        return frame -> {
+            Value[] members = new Value[values.length];
+            for (int i = 0; i < values.length; i++) {
+                members[i] = values[i] != null ? values[i].execute(frame) : Value.VOID;
+            }
+            return Value.tuple(new TupleValue(shape, members));
+        };
+    }
+
+    @Override
+    public Node visitTypeCheck(TypeCheckNode node) {
+        Node expression = node.getExpression().accept(this);
+        Value.ValueType expected;
+        try {
+            expected = Operations.typeForIndicator(node.getTypeIndicator(), node);
+        } catch (RuntimeError error) {
+            return frame -> {
+                expression.execute(frame);
+                throw error;
+            };
+        }
+        return frame -> Value.bool(expression.execute(frame).getType() == expected);
+    }
+
+    @Override
+    public Node visitTupleMemberAccess(TupleMemberAccessNode node) {
+        ExpressionNode tupleNode = node.getTuple();
+        Node tuple = tupleNode.accept(this);
+        if (node.isNumericIndex()) {
+            int position = node.getIndex();
+            return frame -> Operations.requireTuple(tuple.execute(frame), tupleNode).getByIndex(position);
+        }
+        MemberCache cache = new MemberCache(node.getMemberName());
+        return frame -> cache.get(Operations.requireTuple(tuple.execute(frame), tupleNode));
+    }
+
+    private Value invoke(FunctionValue function, Value[] arguments, AstNode callSite) {
+        int expected = function.getParameters().size();
+        if (arguments.length != expected) {
+            throw Operations.runtimeError(
+                "Function expected " + expected + " arguments but received " + arguments.length,
+                callSite);
+        }
+        if (!(function instanceof CompiledFunction compiled)) {
+            throw Operations.runtimeError("Function was not created by the compiled engine", callSite);
+        }
+        if (depth == maxDepth) {
+            throw Operations.runtimeError("Maximum call depth of " + maxDepth + " exceeded", callSite);
+        }
+        Frame frame = new Frame(compiled.getFrameSize(), compiled.getClosureFrame());
+        for (int i = 0; i < arguments.length; i++) {
+            frame.set(i, arguments[i]);
+        }
+        Value result;
+        depth++;
+        try {
+            result = compiled.getBody().execute(frame);
+        } catch (StackOverflowError error) {
+            // Building the error needs stack, so only remember where it happened
+            if (overflowSite == null) {
+                overflowSite = callSite;
+                overflowDepth = depth;
+            }
+            throw error;
+        } finally {
+            depth--;
+        }
+        if (result == RETURN) {
+            Value value = returnValue;
+            returnValue = null;
+            return value;
+        }
+        if (result == BREAK) {
+            throw LoopEscape.BREAK;
+        }
+        if (result == CONTINUE) {
+            throw LoopEscape.CONTINUE;
+        }
+        return result;
+    }
+
+    /**
+     * The runtime error for a run that exhausted the Java stack, positioned
+     * at the innermost call; to be built once the stack has unwound.
+     */
+    RuntimeError stackExhausted() {
+        AstNode site = overflowSite;
+        overflowSite = null;
+        return new RuntimeError("Call stack exhausted after " + overflowDepth + " nested calls",
+            site != null ? site.getLine() : 0, site != null ? site.getColumn() : 0);
+    }
+
+    private Node compileInfiniteLoop(ForNode node) {
+        Node body = node.getBody().accept(this);
+        return frame -> {
+            Value last = Value.VOID;
+            while (true) {
+                Value result = runLoopBody(body, frame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+                if (result != CONTINUE) {
+                    last = result;
+                }
+            }
+            return last;
+        };
+    }
+
+    private Node compileRangeLoop(ForNode node) {
+        Node startNode = node.getIterable().accept(this);
+        Node endNode = node.getRangeEnd().accept(this);
+        Node body = node.getBody().accept(this);
+        boolean hasVariable = node.getVariable() != null;
+        // Without closures in the body, one frame is rebound on every iteration
+        boolean freshFrames = hasVariable && node.isVariableCaptured();
+        int slot = node.getVariableSlot();
+        return frame -> {
+            int start = startNode.execute(frame).asInteger();
+            int end = endNode.execute(frame).asInteger();
+            int step = start <= end ? 1 : -1;
+            Value last = Value.VOID;
+            Frame loopFrame = hasVariable && !freshFrames ? new Frame(1, frame) : frame;
+            for (int current = start; step > 0 ? current <= end : current >= end; current += step) {
+                Frame iterationFrame = loopFrame;
+                if (freshFrames) {
+                    iterationFrame = new Frame(1, frame);
+                }
+                if (hasVariable) {
+                    iterationFrame.set(slot, Value.integer(current));
+                }
+                Value result = runLoopBody(body, iterationFrame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+                if (result != CONTINUE) {
+                    last = result;
+                }
+            }
+            return last;
+        };
+    }
+
+    private Node compileIterableLoop(ForNode node) {
+        ExpressionNode iterableNode = node.getIterable();
+        Node iterable = iterableNode.accept(this);
+        Node body = node.getBody().accept(this);
+        boolean hasVariable = node.getVariable() != null;
+        int slot = node.getVariableSlot();
+        return frame -> {
+            Value collection = iterable.execute(frame);
+            List<Value> elements = null;
+            if (collection.getType() == Value.ValueType.ARRAY) {
+                elements = collection.asArray().snapshot();
+            } else if (collection.getType() == Value.ValueType.TUPLE) {
+                elements = collection.asTuple().values();
+            } else {
+                throw Operations.runtimeError("For-loop expects array or tuple iterable", iterableNode);
+            }
+            Value last = Value.VOID;
+            // Both views are live, so elements are read at the start of each iteration
+            for (int i = 0; i < elements.size(); i++) {
+                Frame iterationFrame = frame;
+                if (hasVariable) {
+                    Value element = elements.get(i);
+                    iterationFrame = new Frame(1, frame);
+                    iterationFrame.set(slot, element != null ? element : Value.VOID);
+                }
+                Value result = runLoopBody(body, iterationFrame);
+                if (result == BREAK) {
+                    break;
+                }
+                if (result == RETURN) {
+                    return RETURN;
+                }
+                last = result == CONTINUE ? Value.VOID : result;
+            }
+            return last;
+        };
+    }
+
+    /**
+     * Runs one loop iteration, folding loop control that escaped from a
+     * called function back into a completion marker.
+     */
+    private static Value runLoopBody(Node body, Frame frame) {
+        try {
+            return body.execute(frame);
+        } catch (LoopEscape escape) {
+            return escape.isBreak() ? BREAK : CONTINUE;
+        }
+    }
+
+    private Node sequence(List<StatementNode> statements) {
+        Node[] nodes = compileAll(statements);
+        if (nodes.length == 0) {
+            return frame -> Value.VOID;
+        }
+        if (nodes.length == 1) {
+            return nodes[0];
+        }
+        return frame -> {
+            Value last = Value.VOID;
+            for (Node node : nodes) {
+                last = node.execute(frame);
+                if (last == BREAK || last == CONTINUE || last == RETURN) {
+                    return last;
+                }
+            }
+            return last;
+        };
+    }
+
+    private Node[] compileAll(List<? extends AstNode> nodes) {
+        Node[] compiled = new Node[nodes.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = nodes.get(i).accept(this);
+        }
+        return compiled;
+    }
+
+    private static Value checkDefined(Value value, ReferenceNode node) {
+        if (value == null) {
+            throw undefinedVariable(node);
+        }
+        return value;
+    }
+
+    private static RuntimeError undefinedVariable(ReferenceNode node) {
+        return Operations.runtimeError("Undefined variable: " + node.getName(), node);
+    }
+}
@@ -0,0 +1,80 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.interpreter.BufferedOutputSink;
+import com.javdin.interpreter.ExecutionEngine;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.InputSource;
+import com.javdin.interpreter.OutputSink;
+import com.javdin.interpreter.RuntimeError;
+import com.javdin.interpreter.Value;
+import com.javdin.semantics.Resolver;
+import com.javdin.utils.ErrorHandler;
+
+/**
+ * Execution engine that compiles the whole program into a tree of closures
+ * before running it, so that no visitor dispatch happens at runtime.
+ * With {@code specialize} set, operator and array access sites specialize
+ * themselves on the operand types they observe.
+ */
+public class ClosureEngine implements ExecutionEngine {
+    private final ErrorHandler errorHandler;
+    private final boolean specialize;
+    private final int maxDepth;
+    private OutputSink output;
+    private InputSource input;
+
+    public ClosureEngine(ErrorHandler errorHandler) {
+        this(errorHandler, false);
+    }
+
+    public ClosureEngine(ErrorHandler errorHandler, boolean specialize) {
+        this(errorHandler, specialize, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an engine whose programs fail with a runtime error once calls
+     * nest {@code maxDepth} deep or exhaust the Java thread stack.
+     */
+    public ClosureEngine(ErrorHandler errorHandler, boolean specialize, int maxDepth) {
+        this.errorHandler = errorHandler;
+        this.specialize = specialize;
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public void interpret(ProgramNode program) {
+        new Resolver().resolve(program);
+        OutputSink sink = output != null ? output : new BufferedOutputSink(System.out, false);
+        ClosureCompiler compiler = new ClosureCompiler(specialize, maxDepth, sink,
+            input != null ? input : InputSource.standardInput());
+        Node compiled = compiler.compile(program);
+        try {
+            Value result = compiled.execute(new Frame(0, null));
+            if (result == ClosureCompiler.RETURN) {
+                errorHandler.addError("Return statement outside function", program.getLine(), program.getColumn());
+            } else if (result == ClosureCompiler.BREAK || result == ClosureCompiler.CONTINUE) {
+                errorHandler.addError("Loop control statement outside loop", program.getLine(), program.getColumn());
+            }
+        } catch (RuntimeError error) {
+            errorHandler.addError("Runtime error: " + error.getMessage(), error.getLine(), error.getColumn());
+        } catch (LoopEscape escape) {
+            errorHandler.addError("Loop control statement outside loop", program.getLine(), program.getColumn());
+        } catch (StackOverflowError overflow) {
+            RuntimeError error = compiler.stackExhausted();
+            errorHandler.addError("Runtime error: " + error.getMessage(), error.getLine(), error.getColumn());
+        } finally {
+            sink.flush();
+        }
+    }
+
+    @Override
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    @Override
+    public void setInput(InputSource input) {
+        this.input = input;
+    }
+}
@@ -0,0 +1,22 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.FunctionLiteralNode;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.FunctionValue;
+
+/**
+ * Function value whose body has already been compiled to a {@link Node}.
+ * The body is compiled once per literal and shared by every closure created from it.
+ */
+public final class CompiledFunction extends FunctionValue {
+    private final Node body;
+
+    public CompiledFunction(FunctionLiteralNode node, Frame closureFrame, Node body) {
+        super(node, closureFrame);
+        this.body = body;
+    }
+
+    public Node getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,22 @@
+package com.javdin.compiler;
+
+/**
+ * Carries a break or continue out of a function call to the caller's
+ * enclosing loop. Inside a single function body loop control travels as a
+ * completion value instead, so this is only thrown at call boundaries.
+ */
+final class LoopEscape extends RuntimeException {
+    static final LoopEscape BREAK = new LoopEscape(true);
+    static final LoopEscape CONTINUE = new LoopEscape(false);
+
+    private final boolean isBreak;
+
+    private LoopEscape(boolean isBreak) {
+        super(null, null, false, false);
+        this.isBreak = isBreak;
+    }
+
+    boolean isBreak() {
+        return isBreak;
+    }
+}
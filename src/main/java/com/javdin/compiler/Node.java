@@ -0,0 +1,14 @@
+package com.javdin.compiler;
+
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.Value;
+
+/**
+ * A pre-compiled piece of executable code produced by {@link ClosureCompiler}.
+ * Expression nodes return their value; statement nodes return the statement's
+ * value or one of the compiler's completion markers.
+ */
+@FunctionalInterface
+public interface Node {
+    Value execute(Frame frame);
+}
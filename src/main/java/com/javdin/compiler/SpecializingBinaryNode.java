@@ -0,0 +1,537 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.BinaryOpNode;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.Value;
+
+/**
+ * Arithmetic, comparison and equality node that specializes itself on the
+ * operand types it observes.
+ *
+ * A fresh node picks a specialization from the first operands it sees: both
+ * integers, both reals, any mix of numbers, or (for {@code +}, {@code =} and
+ * {@code /=}) both strings. Specialized states compute directly on the
+ * unboxed operands behind a single type guard. When the guard fails the node
+ * widens once from integers or reals to mixed numbers, and otherwise falls
+ * back for good to the generic {@link Operations} path. Every state produces
+ * exactly the values and errors of that generic path.
+ *
+ * Each operator is its own subclass with its own integer and real fast paths,
+ * so HotSpot sees one small, monomorphic {@code execute} per operator instead
+ * of a shared method branching on the operator.
+ */
+abstract class SpecializingBinaryNode implements Node {
+    private static final int UNINITIALIZED = 0;
+    static final int INTEGERS = 1;
+    static final int REALS = 2;
+    private static final int NUMBERS = 3;
+    private static final int STRINGS = 4;
+    private static final int GENERIC = 5;
+
+    final Node left;
+    final Node right;
+    final BinaryOpNode site;
+    int state = UNINITIALIZED;
+
+    private SpecializingBinaryNode(Node left, Node right, BinaryOpNode site) {
+        this.left = left;
+        this.right = right;
+        this.site = site;
+    }
+
+    /**
+     * Creates a specializing node for {@code site}, or returns null if its
+     * operator has no specialized forms.
+     */
+    static Node create(BinaryOpNode site, Node left, Node right) {
+        return switch (site.getOp()) {
+            case ADD -> new Add(left, right, site);
+            case SUBTRACT -> new Subtract(left, right, site);
+            case MULTIPLY -> new Multiply(left, right, site);
+            case DIVIDE -> new Divide(left, right, site);
+            case LESS -> new Less(left, right, site);
+            case LESS_EQUAL -> new LessEqual(left, right, site);
+            case GREATER -> new Greater(left, right, site);
+            case GREATER_EQUAL -> new GreaterEqual(left, right, site);
+            case EQUAL -> new Equal(left, right, site);
+            case NOT_EQUAL -> new NotEqual(left, right, site);
+            default -> null;
+        };
+    }
+
+    abstract Value integers(int leftValue, int rightValue);
+
+    abstract Value reals(double leftValue, double rightValue);
+
+    abstract Value generic(Value leftValue, Value rightValue);
+
+    /**
+     * Operators that have a string specialization override this.
+     */
+    Value strings(Value leftValue, Value rightValue) {
+        throw new IllegalStateException("No string specialization for " + site.getOperator());
+    }
+
+    boolean hasStrings() {
+        return false;
+    }
+
+    static boolean isInteger(Value value) {
+        return value.getType() == Value.ValueType.INTEGER;
+    }
+
+    static boolean isReal(Value value) {
+        return value.getType() == Value.ValueType.REAL;
+    }
+
+    static int integer(Value value) {
+        return value.asInteger();
+    }
+
+    static double real(Value value) {
+        return value.asReal();
+    }
+
+    /**
+     * Slow path for operands the fast paths of the subclass did not take:
+     * the remaining states, and the transition to a new state.
+     */
+    final Value execute(Value leftValue, Value rightValue) {
+        switch (state) {
+            case NUMBERS:
+                if (leftValue.isNumeric() && rightValue.isNumeric()) {
+                    return numbers(leftValue, rightValue);
+                }
+                break;
+            case STRINGS:
+                if (leftValue.getType() == Value.ValueType.STRING && rightValue.getType() == Value.ValueType.STRING) {
+                    return strings(leftValue, rightValue);
+                }
+                break;
+            case GENERIC:
+                return generic(leftValue, rightValue);
+            default:
+                break;
+        }
+        state = specialize(leftValue, rightValue);
+        return switch (state) {
+            case INTEGERS -> integers(integer(leftValue), integer(rightValue));
+            case REALS -> reals(real(leftValue), real(rightValue));
+            case NUMBERS -> numbers(leftValue, rightValue);
+            case STRINGS -> strings(leftValue, rightValue);
+            default -> generic(leftValue, rightValue);
+        };
+    }
+
+    /**
+     * Picks the next state for operands that failed the current state's guard.
+     */
+    private int specialize(Value leftValue, Value rightValue) {
+        if (leftValue.isNumeric() && rightValue.isNumeric()) {
+            if (state == UNINITIALIZED && leftValue.getType() == rightValue.getType()) {
+                return isInteger(leftValue) ? INTEGERS : REALS;
+            }
+            return state == UNINITIALIZED || state == INTEGERS || state == REALS ? NUMBERS : GENERIC;
+        }
+        if (state == UNINITIALIZED && hasStrings()
+            && leftValue.getType() == Value.ValueType.STRING && rightValue.getType() == Value.ValueType.STRING) {
+            return STRINGS;
+        }
+        return GENERIC;
+    }
+
+    /**
+     * Mixed numbers: integer arithmetic when both happen to be integers, real otherwise.
+     */
+    Value numbers(Value leftValue, Value rightValue) {
+        if (isInteger(leftValue) && isInteger(rightValue)) {
+            return integers(integer(leftValue), integer(rightValue));
+        }
+        return reals(leftValue.asReal(), rightValue.asReal());
+    }
+
+    private static final class Add extends SpecializingBinaryNode {
+        private Add(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.integer(integer(leftValue) + integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.real(real(leftValue) + real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.integer(leftValue + rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.real(leftValue + rightValue);
+        }
+
+        @Override
+        boolean hasStrings() {
+            return true;
+        }
+
+        @Override
+        Value strings(Value leftValue, Value rightValue) {
+            return Value.concat(leftValue, rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.add(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Subtract extends SpecializingBinaryNode {
+        private Subtract(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.integer(integer(leftValue) - integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.real(real(leftValue) - real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.integer(leftValue - rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.real(leftValue - rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.subtract(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Multiply extends SpecializingBinaryNode {
+        private Multiply(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.integer(integer(leftValue) * integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.real(real(leftValue) * real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.integer(leftValue * rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.real(leftValue * rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.multiply(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Divide extends SpecializingBinaryNode {
+        private Divide(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return integers(integer(leftValue), integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return reals(real(leftValue), real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            if (rightValue == 0) {
+                throw Operations.runtimeError("Division by zero", site);
+            }
+            return Value.integer(Math.floorDiv(leftValue, rightValue));
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            if (rightValue == 0.0) {
+                throw Operations.runtimeError("Division by zero", site);
+            }
+            return Value.real(leftValue / rightValue);
+        }
+
+        @Override
+        Value numbers(Value leftValue, Value rightValue) {
+            if (isInteger(rightValue) && integer(rightValue) == 0) {
+                throw Operations.runtimeError("Division by zero", site);
+            }
+            return super.numbers(leftValue, rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.divide(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Less extends SpecializingBinaryNode {
+        private Less(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) < integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(real(leftValue) < real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue < rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(leftValue < rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.lessThan(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class LessEqual extends SpecializingBinaryNode {
+        private LessEqual(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) <= integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(real(leftValue) <= real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue <= rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(leftValue <= rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.lessEqual(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Greater extends SpecializingBinaryNode {
+        private Greater(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) > integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(real(leftValue) > real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue > rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(leftValue > rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.greaterThan(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class GreaterEqual extends SpecializingBinaryNode {
+        private GreaterEqual(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) >= integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(real(leftValue) >= real(rightValue));
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue >= rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(leftValue >= rightValue);
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Operations.greaterEqual(leftValue, rightValue, site);
+        }
+    }
+
+    private static final class Equal extends SpecializingBinaryNode {
+        private Equal(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) == integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(Double.compare(real(leftValue), real(rightValue)) == 0);
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue == rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(Double.compare(leftValue, rightValue) == 0);
+        }
+
+        @Override
+        boolean hasStrings() {
+            return true;
+        }
+
+        @Override
+        Value strings(Value leftValue, Value rightValue) {
+            return Value.bool(leftValue.asString().equals(rightValue.asString()));
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Value.bool(Operations.valuesEqual(leftValue, rightValue));
+        }
+    }
+
+    private static final class NotEqual extends SpecializingBinaryNode {
+        private NotEqual(Node left, Node right, BinaryOpNode site) {
+            super(left, right, site);
+        }
+
+        @Override
+        public Value execute(Frame frame) {
+            Value leftValue = left.execute(frame);
+            Value rightValue = right.execute(frame);
+            if (state == INTEGERS && isInteger(leftValue) && isInteger(rightValue)) {
+                return Value.bool(integer(leftValue) != integer(rightValue));
+            }
+            if (state == REALS && isReal(leftValue) && isReal(rightValue)) {
+                return Value.bool(Double.compare(real(leftValue), real(rightValue)) != 0);
+            }
+            return execute(leftValue, rightValue);
+        }
+
+        @Override
+        Value integers(int leftValue, int rightValue) {
+            return Value.bool(leftValue != rightValue);
+        }
+
+        @Override
+        Value reals(double leftValue, double rightValue) {
+            return Value.bool(Double.compare(leftValue, rightValue) != 0);
+        }
+
+        @Override
+        boolean hasStrings() {
+            return true;
+        }
+
+        @Override
+        Value strings(Value leftValue, Value rightValue) {
+            return Value.bool(!leftValue.asString().equals(rightValue.asString()));
+        }
+
+        @Override
+        Value generic(Value leftValue, Value rightValue) {
+            return Value.bool(!Operations.valuesEqual(leftValue, rightValue));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.ArrayAccessNode;
+import com.javdin.ast.ExpressionNode;
+import com.javdin.interpreter.ArrayValue;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.Value;
+
+/**
+ * Array element read that specializes itself on integer indices. While every
+ * observed index is an integer the index is read directly; the first index
+ * of another type switches the node for good to the generic conversion.
+ */
+final class SpecializingIndexNode implements Node {
+    private final Node array;
+    private final Node index;
+    private final ExpressionNode arrayNode;
+    private boolean integerIndex = true;
+
+    SpecializingIndexNode(ArrayAccessNode site, Node array, Node index) {
+        this.array = array;
+        this.index = index;
+        this.arrayNode = site.getArray();
+    }
+
+    @Override
+    public Value execute(Frame frame) {
+        ArrayValue elements = Operations.requireArray(array.execute(frame), arrayNode);
+        Value indexValue = index.execute(frame);
+        if (integerIndex) {
+            if (indexValue.getType() == Value.ValueType.INTEGER) {
+                return elements.get(indexValue.asInteger());
+            }
+            integerIndex = false;
+        }
+        return elements.get(indexValue.asInteger());
+    }
+}
@@ -0,0 +1,71 @@
+package com.javdin.compiler;
+
+import com.javdin.ast.UnaryOpNode;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.Value;
+
+/**
+ * Unary {@code +}/{@code -} node that specializes itself on the operand type
+ * it observes (integer or real) and falls back for good to the generic
+ * {@link Operations} path once a different type shows up.
+ */
+final class SpecializingUnaryNode implements Node {
+    private static final int UNINITIALIZED = 0;
+    private static final int INTEGER = 1;
+    private static final int REAL = 2;
+    private static final int GENERIC = 3;
+
+    private final boolean negate;
+    private final Node operand;
+    private final UnaryOpNode site;
+    private int state = UNINITIALIZED;
+
+    private SpecializingUnaryNode(boolean negate, Node operand, UnaryOpNode site) {
+        this.negate = negate;
+        this.operand = operand;
+        this.site = site;
+    }
+
+    /**
+     * Creates a specializing node for {@code site}, or returns null if its
+     * operator has no specialized forms.
+     */
+    static Node create(UnaryOpNode site, Node operand) {
+        return switch (site.getOp()) {
+            case PLUS -> new SpecializingUnaryNode(false, operand, site);
+            case NEGATE -> new SpecializingUnaryNode(true, operand, site);
+            default -> null;
+        };
+    }
+
+    @Override
+    public Value execute(Frame frame) {
+        Value value = operand.execute(frame);
+        Value.ValueType type = value.getType();
+        if (state == INTEGER && type == Value.ValueType.INTEGER) {
+            return integer(value.asInteger());
+        }
+        if (state == REAL && type == Value.ValueType.REAL) {
+            return real(value.asReal());
+        }
+        if (state == UNINITIALIZED && type == Value.ValueType.INTEGER) {
+            state = INTEGER;
+            return integer(value.asInteger());
+        }
+        if (state == UNINITIALIZED && type == Value.ValueType.REAL) {
+            state = REAL;
+            return real(value.asReal());
+        }
+        state = GENERIC;
+        return negate ? Operations.negate(value, site) : Operations.unaryPlus(value, site);
+    }
+
+    private Value integer(int number) {
+        return Value.integer(negate ? -number : number);
+    }
+
+    private Value real(double number) {
+        return Value.real(negate ? -number : number);
+    }
+}
@@ -1,74 +1,405 @@
 package com.javdin.interpreter;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 /**
  * Mutable runtime representation of Project D arrays.
  * Implements 1-based indexing semantics and supports sparse-style updates
  * by automatically growing the backing storage with void placeholders.
+ *
+ * Elements are kept in the narrowest of three storage strategies: an
+ * {@code int[]} while every element is an integer, a {@code double[]} while
+ * every element is a real, and a {@code Value[]} otherwise. A write that does
+ * not fit the current strategy, or that leaves a hole, moves the array to
+ * {@code Value[]} storage for good; an empty array adopts the strategy of its
+ * first element. Reads of primitive storage create the element value on
+ * demand, so callers never see the difference.
+ *
+ * A write far past the end (ids used as indices, say) switches the array to
+ * sparse storage instead of filling the gap: elements live in fixed-size
+ * pages that are only allocated once something is written to them, and
+ * missing pages read as void. {@link #size()} still counts the gap.
+ *
+ * Concatenation may share storage with its left operand (see
+ * {@link SharedStorage}), which keeps {@code a := a + [x]} linear overall;
+ * writes copy shared storage first, so arrays keep value semantics.
+ *
+ * The arrays that the file builtins return read their elements from a
+ * {@link MappedFile} as they are accessed; the first write copies them
+ * into {@code Value[]} storage.
  */
 public final class ArrayValue {
-    private final List<Value> elements;
-    
+    private static final int MIN_CAPACITY = 8;
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    // A write that would leave a larger gap than this (or than the current size) goes sparse
+    private static final int SPARSE_GAP = 4 * PAGE_SIZE;
+
+    /**
+     * How the elements are stored.
+     */
+    enum Storage {
+        INTEGER, REAL, GENERIC, SPARSE, MAPPED
+    }
+
+    private Storage storage;
+    private int[] ints;
+    private double[] reals;
+    private Value[] values;
+    private Map<Integer, Value[]> pages;
+    private MappedFile file;
+    // Non-null while the storage arrays are shared with other arrays
+    private SharedStorage sharing;
+    private int size;
+
     public ArrayValue() {
-        this.elements = new ArrayList<>();
+        this.storage = Storage.INTEGER;
+        this.ints = new int[0];
     }
-    
+
     public ArrayValue(List<Value> initialElements) {
-        this.elements = initialElements != null
-            ? new ArrayList<>(initialElements)
-            : new ArrayList<>();
+        this();
+        if (initialElements != null) {
+            int index = 1;
+            for (Value element : initialElements) {
+                set(index++, element);
+            }
+        }
+    }
+
+    /**
+     * A read-only view of the elements of {@code file}.
+     */
+    ArrayValue(MappedFile file) {
+        this.storage = Storage.MAPPED;
+        this.file = file;
+        this.size = file.size();
     }
-    
+
+    private ArrayValue(Storage storage, int[] ints, double[] reals, Value[] values, int size) {
+        this.storage = storage;
+        this.ints = ints;
+        this.reals = reals;
+        this.values = values;
+        this.size = size;
+    }
+
     public int size() {
-        return elements.size();
+        return size;
     }
-    
+
     public Value get(int index) {
         verifyIndex(index);
-        if (index > elements.size()) {
+        if (index > size) {
             return Value.VOID;
         }
-        Value value = elements.get(index - 1);
-        return value != null ? value : Value.VOID;
+        return element(index - 1);
     }
-    
+
     public void set(int index, Value value) {
         verifyIndex(index);
-        ensureCapacity(index);
-        elements.set(index - 1, value);
+        int slot = index - 1;
+        if (sharing != null && (slot < size || !sharing.ownsTail(size))) {
+            unshare();
+        }
+        write(slot, value != null ? value : Value.VOID);
+        size = Math.max(size, index);
+        if (sharing != null) {
+            sharing.used = size;
+        }
     }
-    
+
+    /**
+     * Live read-only view of the elements: it sees later writes, including
+     * elements appended while it is being iterated.
+     */
     public List<Value> snapshot() {
-        return Collections.unmodifiableList(elements);
+        return new AbstractList<>() {
+            @Override
+            public Value get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return element(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
-    
+
+    /**
+     * The elements of this array followed by those of {@code other}. If this
+     * array owns the end of its backing storage and the result fits in it,
+     * the elements of {@code other} are appended there and the storage is
+     * shared; otherwise the result gets storage with room to grow.
+     */
     public ArrayValue concat(ArrayValue other) {
-        List<Value> combined = new ArrayList<>(this.elements.size() + other.elements.size());
-        combined.addAll(this.elements);
-        combined.addAll(other.elements);
-        return new ArrayValue(combined);
+        int combined = size + other.size;
+        if (storage == Storage.SPARSE || other.storage == Storage.SPARSE) {
+            ArrayValue result = new ArrayValue(Storage.SPARSE, null, null, null, combined);
+            result.pages = new HashMap<>();
+            copyInto(result, 0);
+            other.copyInto(result, size);
+            return result;
+        }
+        Storage kind = size == 0 ? other.storage
+            : other.size == 0 || other.storage == storage ? storage : Storage.GENERIC;
+        if (kind == Storage.MAPPED) {
+            kind = Storage.GENERIC;
+        }
+        if (kind == storage && (sharing == null || sharing.ownsTail(size)) && combined <= capacity()) {
+            other.copyTo(kind, ints, reals, values, size);
+            if (sharing == null) {
+                sharing = new SharedStorage(combined);
+            } else {
+                sharing.used = combined;
+            }
+            ArrayValue result = new ArrayValue(kind, ints, reals, values, combined);
+            result.sharing = sharing;
+            return result;
+        }
+        int capacity = Math.max(MIN_CAPACITY, Math.max(combined, size * 2));
+        int[] intElements = kind == Storage.INTEGER ? new int[capacity] : null;
+        double[] realElements = kind == Storage.REAL ? new double[capacity] : null;
+        Value[] valueElements = kind == Storage.GENERIC ? new Value[capacity] : null;
+        copyTo(kind, intElements, realElements, valueElements, 0);
+        other.copyTo(kind, intElements, realElements, valueElements, size);
+        return new ArrayValue(kind, intElements, realElements, valueElements, combined);
+    }
+
+    Storage storage() {
+        return storage;
+    }
+
+    private Value element(int slot) {
+        return switch (storage) {
+            case INTEGER -> Value.integer(ints[slot]);
+            case REAL -> Value.real(reals[slot]);
+            case GENERIC -> values[slot];
+            case SPARSE -> {
+                Value[] page = pages.get(slot >>> PAGE_BITS);
+                yield page != null ? page[slot & (PAGE_SIZE - 1)] : Value.VOID;
+            }
+            case MAPPED -> file.get(slot);
+        };
+    }
+
+    private void write(int slot, Value value) {
+        if (size == 0) {
+            adopt(value);
+        }
+        if (slot <= size) {
+            if (storage == Storage.INTEGER && value.getType() == Value.ValueType.INTEGER) {
+                if (slot == ints.length) {
+                    ints = Arrays.copyOf(ints, grow(ints.length));
+                    sharing = null;
+                }
+                ints[slot] = value.asInteger();
+                return;
+            }
+            if (storage == Storage.REAL && value.getType() == Value.ValueType.REAL) {
+                if (slot == reals.length) {
+                    reals = Arrays.copyOf(reals, grow(reals.length));
+                    sharing = null;
+                }
+                reals[slot] = value.asReal();
+                return;
+            }
+        }
+        if (storage == Storage.SPARSE || slot - size > Math.max(SPARSE_GAP, size)) {
+            sparsify();
+            store(slot, value);
+            return;
+        }
+        generalize();
+        if (slot >= values.length) {
+            values = Arrays.copyOf(values, Math.max(slot + 1, grow(values.length)));
+            sharing = null;
+        }
+        if (slot > size) {
+            // Elements skipped by a sparse write read as void
+            Arrays.fill(values, size, slot, Value.VOID);
+        }
+        values[slot] = value;
+    }
+
+    private int capacity() {
+        return switch (storage) {
+            case INTEGER -> ints.length;
+            case REAL -> reals.length;
+            case GENERIC -> values.length;
+            case SPARSE, MAPPED -> 0;
+        };
+    }
+
+    /**
+     * Copies the elements into the target array for {@code kind}, starting
+     * at {@code offset}. Primitive kinds require this array to have that
+     * storage (or no elements).
+     */
+    private void copyTo(Storage kind, int[] intTarget, double[] realTarget, Value[] valueTarget, int offset) {
+        if (size == 0) {
+            return;
+        }
+        switch (kind) {
+            case INTEGER -> System.arraycopy(ints, 0, intTarget, offset, size);
+            case REAL -> System.arraycopy(reals, 0, realTarget, offset, size);
+            default -> {
+                if (storage == Storage.GENERIC) {
+                    System.arraycopy(values, 0, valueTarget, offset, size);
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        valueTarget[offset + i] = element(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives this array storage of its own before a write other sharers must not see.
+     */
+    private void unshare() {
+        int capacity = Math.max(size, MIN_CAPACITY);
+        switch (storage) {
+            case INTEGER -> ints = Arrays.copyOf(ints, capacity);
+            case REAL -> reals = Arrays.copyOf(reals, capacity);
+            case GENERIC -> values = Arrays.copyOf(values, capacity);
+            case SPARSE, MAPPED -> { }
+        }
+        sharing = null;
+    }
+
+    /**
+     * Stores into sparse storage, allocating the page if needed.
+     */
+    private void store(int slot, Value value) {
+        Value[] page = pages.computeIfAbsent(slot >>> PAGE_BITS, number -> {
+            Value[] fresh = new Value[PAGE_SIZE];
+            Arrays.fill(fresh, Value.VOID);
+            return fresh;
+        });
+        page[slot & (PAGE_SIZE - 1)] = value;
     }
-    
-    private void ensureCapacity(int index) {
-        while (elements.size() < index) {
-            elements.add(Value.VOID);
+
+    /**
+     * Writes the elements of this array into the sparse {@code target},
+     * starting at {@code offset}. Void elements are skipped.
+     */
+    private void copyInto(ArrayValue target, int offset) {
+        if (storage != Storage.SPARSE) {
+            for (int i = 0; i < size; i++) {
+                Value value = element(i);
+                if (value != Value.VOID) {
+                    target.store(offset + i, value);
+                }
+            }
+            return;
+        }
+        for (Map.Entry<Integer, Value[]> entry : pages.entrySet()) {
+            int base = entry.getKey() << PAGE_BITS;
+            Value[] page = entry.getValue();
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                if (page[i] != Value.VOID) {
+                    target.store(offset + base + i, page[i]);
+                }
+            }
         }
     }
-    
+
+    /**
+     * Picks the storage for the first element of an empty array.
+     */
+    private void adopt(Value first) {
+        Storage wanted = switch (first.getType()) {
+            case INTEGER -> Storage.INTEGER;
+            case REAL -> Storage.REAL;
+            default -> Storage.GENERIC;
+        };
+        if (wanted == storage) {
+            return;
+        }
+        storage = wanted;
+        sharing = null;
+        file = null;
+        ints = wanted == Storage.INTEGER ? new int[0] : null;
+        reals = wanted == Storage.REAL ? new double[0] : null;
+        values = wanted == Storage.GENERIC ? new Value[0] : null;
+    }
+
+    private void generalize() {
+        if (storage == Storage.GENERIC) {
+            return;
+        }
+        Value[] elements = new Value[Math.max(size, MIN_CAPACITY)];
+        for (int i = 0; i < size; i++) {
+            elements[i] = element(i);
+        }
+        storage = Storage.GENERIC;
+        sharing = null;
+        file = null;
+        values = elements;
+        ints = null;
+        reals = null;
+    }
+
+    private void sparsify() {
+        if (storage == Storage.SPARSE) {
+            return;
+        }
+        Map<Integer, Value[]> existing = new HashMap<>();
+        ArrayValue target = new ArrayValue(Storage.SPARSE, null, null, null, size);
+        target.pages = existing;
+        copyInto(target, 0);
+        storage = Storage.SPARSE;
+        sharing = null;
+        file = null;
+        pages = existing;
+        ints = null;
+        reals = null;
+        values = null;
+    }
+
+    private static int grow(int capacity) {
+        return Math.max(MIN_CAPACITY, capacity * 2);
+    }
+
     private void verifyIndex(int index) {
         if (index <= 0) {
             throw new RuntimeError("Array index out of bounds: " + index + " (indices must be >= 1)");
         }
     }
-    
+
+    /**
+     * Writes the printed form of this array, without creating values for
+     * primitive elements.
+     */
+    void writeTo(OutputSink sink) {
+        sink.write('[');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sink.write(", ");
+            }
+            switch (storage) {
+                case INTEGER -> sink.writeInt(ints[i]);
+                case REAL -> ValueWriter.writeReal(reals[i], sink);
+                default -> ValueWriter.write(element(i), sink);
+            }
+        }
+        sink.write(']');
+    }
+
     @Override
     public String toString() {
-        return elements.stream()
-            .map(value -> value != null ? value.asString() : Value.VOID.asString())
-            .collect(Collectors.joining(", ", "[", "]"));
+        StringOutputSink text = new StringOutputSink();
+        writeTo(text);
+        return text.toString();
     }
 }
@@ -0,0 +1,207 @@
+package com.javdin.interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Output stream that hands its bytes to a background thread, which writes
+ * them to a file with a {@link FileChannel}. Bytes are copied into a ring
+ * of {@value #SLOTS} reusable buffers of {@value #SLOT_SIZE} bytes; a full
+ * buffer goes to the writer, which writes every buffer waiting at that point
+ * in one gathering write and then returns them for reuse. The producing
+ * thread only blocks when all buffers are waiting to be written.
+ *
+ * {@link #flush()} waits until everything written so far is in the file;
+ * {@link #close()} also stops the writer. A failed write is reported by the
+ * next call on the producing thread.
+ */
+public final class AsyncFileOutput extends OutputStream {
+    static final int SLOTS = 8;
+    static final int SLOT_SIZE = 1 << 20;
+    // Tells the writer to stop
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(SLOTS + 1);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(SLOTS);
+    private final Thread writer;
+    // Buffer the producer is filling, or null if it has none
+    private ByteBuffer current;
+    // Buffers handed to and written by the writer; guarded by this
+    private long handedOff;
+    private long written;
+    private IOException failure;
+    private boolean closed;
+
+    public AsyncFileOutput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        for (int i = 0; i < SLOTS; i++) {
+            free.add(ByteBuffer.allocateDirect(SLOT_SIZE));
+        }
+        this.writer = new Thread(this::drain, "javdin-output");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkOpen();
+        while (length > 0) {
+            if (current == null) {
+                current = take(free);
+            }
+            int count = Math.min(length, current.remaining());
+            current.put(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (!current.hasRemaining()) {
+                handOff();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        if (current != null && current.position() > 0) {
+            handOff();
+        }
+        synchronized (this) {
+            while (written < handedOff && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for output to be written", e);
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            filled.add(END);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+
+    private void handOff() throws IOException {
+        current.flip();
+        synchronized (this) {
+            handedOff++;
+        }
+        put(filled, current);
+        current = null;
+    }
+
+    /**
+     * Writer thread: writes every waiting buffer in one gathering write.
+     */
+    private void drain() {
+        List<ByteBuffer> batch = new ArrayList<>(SLOTS);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(filled.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            filled.drainTo(batch);
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                if (batch.get(i) == END) {
+                    batch.remove(i);
+                    running = false;
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(List<ByteBuffer> batch) {
+        ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+        IOException error = null;
+        try {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+            free.add(buffer);
+        }
+        synchronized (this) {
+            written += buffers.length;
+            if (error != null && failure == null) {
+                failure = error;
+            }
+            notifyAll();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Output is closed");
+        }
+        checkFailure();
+    }
+
+    private synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Writing output failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    private static ByteBuffer take(BlockingQueue<ByteBuffer> queue) throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an output buffer", e);
+        }
+    }
+
+    private static void put(BlockingQueue<ByteBuffer> queue, ByteBuffer buffer) throws IOException {
+        try {
+            queue.put(buffer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while handing off output", e);
+        }
+    }
+}
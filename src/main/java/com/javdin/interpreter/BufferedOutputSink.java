@@ -0,0 +1,144 @@
+package com.javdin.interpreter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output sink that encodes text into a large byte buffer and writes it to a
+ * stream only when the buffer fills up or on {@link #flush()}. ASCII text is
+ * copied straight into the buffer; anything else is encoded in the
+ * platform charset, like {@code System.out} does. In line-flush mode every
+ * completed line is flushed, for interactive use.
+ */
+public final class BufferedOutputSink implements OutputSink {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final OutputStream out;
+    private final boolean lineFlush;
+    private final Charset charset;
+    // Whether ASCII characters encode as themselves in the charset
+    private final boolean asciiCompatible;
+    private final byte[] buffer;
+    private int position;
+
+    public BufferedOutputSink(OutputStream out, boolean lineFlush) {
+        this(out, lineFlush, DEFAULT_CAPACITY);
+    }
+
+    public BufferedOutputSink(OutputStream out, boolean lineFlush, int capacity) {
+        this.out = out;
+        this.lineFlush = lineFlush;
+        this.charset = Charset.defaultCharset();
+        this.asciiCompatible = charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+            || charset.equals(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    @Override
+    public void write(CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || !asciiCompatible) {
+                writeBytes(text.subSequence(i, length).toString().getBytes(charset));
+                return;
+            }
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) c;
+        }
+    }
+
+    @Override
+    public void write(char c) {
+        if (c >= 0x80 || !asciiCompatible) {
+            writeBytes(String.valueOf(c).getBytes(charset));
+            return;
+        }
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) c;
+    }
+
+    @Override
+    public void writeInt(int value) {
+        if (!asciiCompatible || value == Integer.MIN_VALUE) {
+            write(Integer.toString(value));
+            return;
+        }
+        // Sign and ten digits
+        if (buffer.length - position < 11) {
+            drain();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digits(value);
+        int cursor = end;
+        do {
+            buffer[--cursor] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        position = end;
+    }
+
+    @Override
+    public void endLine() {
+        write(System.lineSeparator());
+        if (lineFlush) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int digits(int value) {
+        int count = 1;
+        while (value >= 10) {
+            value /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private void writeBytes(byte[] bytes) {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                writeOut(bytes, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void drain() {
+        if (position > 0) {
+            writeOut(buffer, position);
+            position = 0;
+        }
+    }
+
+    private void writeOut(byte[] bytes, int length) {
+        try {
+            out.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.Builtin;
+import com.javdin.ast.FunctionCallNode;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static com.javdin.interpreter.Operations.runtimeError;
+
+/**
+ * Runtime side of the {@link Builtin} functions, shared by all engines.
+ */
+public final class Builtins {
+    private Builtins() {
+    }
+
+    /**
+     * Calls the builtin that the resolver bound {@code node} to.
+     */
+    public static Value call(FunctionCallNode node, Value[] arguments) {
+        Builtin builtin = node.getBuiltin();
+        if (arguments.length != builtin.getArity()) {
+            throw runtimeError("Builtin " + builtin.getName() + " expected " + builtin.getArity()
+                + " arguments but received " + arguments.length, node);
+        }
+        return switch (builtin) {
+            case LINES -> Value.array(new ArrayValue(open(arguments[0], 0, node)));
+            case RECORDS -> {
+                Value size = arguments[1];
+                if (size.getType() != Value.ValueType.INTEGER || size.asInteger() <= 0) {
+                    throw runtimeError("Record size must be a positive integer", node);
+                }
+                yield Value.array(new ArrayValue(open(arguments[0], size.asInteger(), node)));
+            }
+        };
+    }
+
+    private static MappedFile open(Value name, int recordSize, FunctionCallNode node) {
+        if (name.getType() != Value.ValueType.STRING) {
+            throw runtimeError("File name must be a string", node);
+        }
+        try {
+            Path path = Path.of(name.asString());
+            return recordSize > 0 ? MappedFile.records(path, recordSize) : MappedFile.lines(path);
+        } catch (NoSuchFileException e) {
+            throw runtimeError("Cannot open file '" + name.asString() + "': no such file", node);
+        } catch (IOException | InvalidPathException e) {
+            throw runtimeError("Cannot open file '" + name.asString() + "': " + e.getMessage(), node);
+        } catch (RuntimeError error) {
+            throw runtimeError(error.getMessage(), node);
+        }
+    }
+}
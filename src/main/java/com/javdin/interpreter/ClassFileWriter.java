@@ -0,0 +1,441 @@
+package com.javdin.interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JVM class file assembler used by the {@link JitCompiler}.
+ *
+ * It writes version 49 class files, which the JVM verifies by type inference,
+ * so no stack map frames have to be computed. Only the instructions the JIT
+ * emits are supported. Operand stack depth is tracked while instructions are
+ * appended; the JIT only branches with an empty operand stack, which keeps
+ * that tracking linear.
+ */
+final class ClassFileWriter {
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    static final int ACONST_NULL = 0x01;
+    static final int ICONST_0 = 0x03;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC = 0x12;
+    static final int LDC_W = 0x13;
+    static final int ILOAD = 0x15;
+    static final int ALOAD = 0x19;
+    static final int AALOAD = 0x32;
+    static final int ISTORE = 0x36;
+    static final int ASTORE = 0x3a;
+    static final int AASTORE = 0x53;
+    static final int POP = 0x57;
+    static final int DUP = 0x59;
+    static final int IADD = 0x60;
+    static final int IFEQ = 0x99;
+    static final int IFLE = 0x9e;
+    static final int IF_ICMPLT = 0xa1;
+    static final int IF_ICMPGE = 0xa2;
+    static final int IF_ICMPGT = 0xa3;
+    static final int IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7;
+    static final int ARETURN = 0xb0;
+    static final int RETURN = 0xb1;
+    static final int GETSTATIC = 0xb2;
+    static final int GETFIELD = 0xb4;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int INVOKEINTERFACE = 0xb9;
+    static final int NEW = 0xbb;
+    static final int ANEWARRAY = 0xbd;
+    static final int CHECKCAST = 0xc0;
+
+    private static final int CLASS_VERSION = 49;
+    private static final int WIDE = 0xc4;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private final List<byte[]> methods = new ArrayList<>();
+    private int poolCount = 1;
+    private final int thisClass;
+    private final int superClass;
+
+    ClassFileWriter(String internalName, String superName) {
+        this.thisClass = classRef(internalName);
+        this.superClass = classRef(superName);
+    }
+
+    Code newCode(int parameterSlots) {
+        return new Code(parameterSlots);
+    }
+
+    void addMethod(int access, String name, String descriptor, Code code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            byte[] body = code.toByteArray();
+            out.writeInt(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int utf8(String value) {
+        return constant("U" + value, out -> {
+            out.writeByte(1);
+            out.writeUTF(value);
+        });
+    }
+
+    private int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, out -> {
+            out.writeByte(7);
+            out.writeShort(name);
+        });
+    }
+
+    private int stringRef(String value) {
+        int utf = utf8(value);
+        return constant("S" + value, out -> {
+            out.writeByte(8);
+            out.writeShort(utf);
+        });
+    }
+
+    private int integerRef(int value) {
+        return constant("I" + value, out -> {
+            out.writeByte(3);
+            out.writeInt(value);
+        });
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, out -> {
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return constant("M" + tag + owner + "." + name + ":" + descriptor, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, PoolEntry entry) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (poolCount > 0xFFFE) {
+            throw new IllegalStateException("Constant pool overflow");
+        }
+        try {
+            entry.write(poolOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int index = poolCount++;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    /**
+     * Number of operand stack slots taken by the arguments of a method descriptor.
+     */
+    private static int argumentSlots(String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+                continue;
+            }
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+            slots++;
+        }
+        return slots;
+    }
+
+    private static int returnSlots(String descriptor) {
+        char c = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return c == 'V' ? 0 : (c == 'J' || c == 'D') ? 2 : 1;
+    }
+
+    @FunctionalInterface
+    private interface PoolEntry {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A branch target inside one {@link Code} attribute.
+     */
+    static final class Label {
+        private int position = -1;
+        private final List<Integer> fixups = new ArrayList<>();
+    }
+
+    private record Handler(Label start, Label end, Label target, int type) {
+    }
+
+    /**
+     * Instruction stream, exception table and stack bookkeeping of one method.
+     */
+    final class Code {
+        private byte[] code = new byte[256];
+        private int length;
+        private final List<Handler> handlers = new ArrayList<>();
+        private final List<Label> pending = new ArrayList<>();
+        private int maxLocals;
+        private int depth;
+        private int maxDepth;
+
+        private Code(int parameterSlots) {
+            this.maxLocals = parameterSlots;
+        }
+
+        int newLocal() {
+            return maxLocals++;
+        }
+
+        int size() {
+            return length;
+        }
+
+        void aload(int local) {
+            local(ALOAD, local, 1);
+        }
+
+        void astore(int local) {
+            local(ASTORE, local, -1);
+        }
+
+        void iload(int local) {
+            local(ILOAD, local, 1);
+        }
+
+        void istore(int local) {
+            local(ISTORE, local, -1);
+        }
+
+        void iconst(int value) {
+            if (value >= -1 && value <= 5) {
+                op(ICONST_0 + value, 1);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                op(BIPUSH, 1);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(SIPUSH, 1);
+                u2(value);
+            } else {
+                ldc(integerRef(value));
+            }
+        }
+
+        void sconst(String value) {
+            ldc(stringRef(value));
+        }
+
+        void op(int opcode, int stackDelta) {
+            u1(opcode);
+            adjust(stackDelta);
+        }
+
+        void field(int opcode, String owner, String name, String descriptor) {
+            u1(opcode);
+            u2(memberRef(9, owner, name, descriptor));
+            adjust(opcode == GETSTATIC ? 1 : 0);
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor) {
+            boolean isInterface = opcode == INVOKEINTERFACE;
+            int arguments = argumentSlots(descriptor);
+            u1(opcode);
+            u2(memberRef(isInterface ? 11 : 10, owner, name, descriptor));
+            if (isInterface) {
+                u1(arguments + 1);
+                u1(0);
+            }
+            adjust(-arguments - (opcode == INVOKESTATIC ? 0 : 1) + returnSlots(descriptor));
+        }
+
+        void type(int opcode, String internalName) {
+            u1(opcode);
+            u2(classRef(internalName));
+            adjust(opcode == NEW ? 1 : 0);
+        }
+
+        void jump(int opcode, Label target) {
+            int start = length;
+            adjust(switch (opcode) {
+                case GOTO -> 0;
+                case IFEQ, IFLE -> -1;
+                default -> -2;
+            });
+            requireEmptyStack();
+            u1(opcode);
+            if (target.position >= 0) {
+                u2(target.position - start);
+            } else {
+                if (target.fixups.isEmpty()) {
+                    pending.add(target);
+                }
+                target.fixups.add(start);
+                u2(0);
+            }
+        }
+
+        void mark(Label label) {
+            requireEmptyStack();
+            label.position = length;
+            for (int start : label.fixups) {
+                int offset = label.position - start;
+                code[start + 1] = (byte) (offset >> 8);
+                code[start + 2] = (byte) offset;
+            }
+            label.fixups.clear();
+            pending.remove(label);
+        }
+
+        /**
+         * Marks an exception handler entry, where the caught exception is on the stack.
+         */
+        void markHandler(Label label) {
+            mark(label);
+            adjust(1);
+        }
+
+        /**
+         * Registers a handler for the code between {@code start} and {@code end}.
+         * The JVM searches handlers in registration order, so handlers of inner
+         * regions must be registered before those of enclosing regions.
+         */
+        void handler(Label start, Label end, Label target, String exceptionType) {
+            handlers.add(new Handler(start, end, target, classRef(exceptionType)));
+        }
+
+        private void requireEmptyStack() {
+            if (depth != 0) {
+                throw new IllegalStateException("Branch with non-empty operand stack");
+            }
+        }
+
+        private void local(int opcode, int local, int stackDelta) {
+            if (local > 0xFF) {
+                u1(WIDE);
+                u1(opcode);
+                u2(local);
+            } else {
+                u1(opcode);
+                u1(local);
+            }
+            adjust(stackDelta);
+        }
+
+        private void ldc(int index) {
+            if (index <= 0xFF) {
+                u1(LDC);
+                u1(index);
+            } else {
+                u1(LDC_W);
+                u2(index);
+            }
+            adjust(1);
+        }
+
+        private void adjust(int delta) {
+            depth += delta;
+            if (depth < 0) {
+                throw new IllegalStateException("Operand stack underflow");
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        private void u1(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private byte[] toByteArray() {
+            if (!pending.isEmpty()) {
+                throw new IllegalStateException("Jump to a label that was never marked");
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeShort(maxDepth);
+                out.writeShort(maxLocals);
+                out.writeInt(length);
+                out.write(code, 0, length);
+                out.writeShort(handlers.size());
+                for (Handler handler : handlers) {
+                    out.writeShort(handler.start().position);
+                    out.writeShort(handler.end().position);
+                    out.writeShort(handler.target().position);
+                    out.writeShort(handler.type());
+                }
+                out.writeShort(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
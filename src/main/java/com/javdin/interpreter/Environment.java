@@ -1,97 +1,66 @@
 package com.javdin.interpreter;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Runtime environment for variable storage and lexical scope management.
+ * Variables live in slot-addressed {@link Frame}s laid out by the resolver.
  */
 public class Environment {
-    private RuntimeScope currentScope;
-    
+    private Frame currentFrame;
+
     public Environment() {
-        this.currentScope = new RuntimeScope(null);
+        this.currentFrame = new Frame(0, null);
     }
-    
-    public RuntimeScope enterScope() {
-        currentScope = new RuntimeScope(currentScope);
-        return currentScope;
+
+    public Frame enterFrame(int size) {
+        currentFrame = new Frame(size, currentFrame);
+        return currentFrame;
     }
-    
-    public void exitScope() {
-        if (currentScope.parent == null) {
+
+    public void exitFrame() {
+        if (currentFrame.getParent() == null) {
             throw new IllegalStateException("Cannot exit global scope");
         }
-        currentScope = currentScope.parent;
+        currentFrame = currentFrame.getParent();
     }
-    
-    public RuntimeScope captureCurrentScope() {
-        return currentScope;
+
+    public Frame captureCurrentFrame() {
+        return currentFrame;
     }
-    
-    public RuntimeScope pushFunctionScope(RuntimeScope parentScope) {
-        RuntimeScope previous = currentScope;
-        currentScope = new RuntimeScope(parentScope);
+
+    public Frame pushFunctionFrame(Frame parentFrame, int size) {
+        Frame previous = currentFrame;
+        currentFrame = new Frame(size, parentFrame);
         return previous;
     }
-    
-    public void restoreScope(RuntimeScope scope) {
-        if (scope == null) {
-            throw new IllegalArgumentException("Previous scope cannot be null");
+
+    public void restoreFrame(Frame frame) {
+        if (frame == null) {
+            throw new IllegalArgumentException("Previous frame cannot be null");
         }
-        currentScope = scope;
+        currentFrame = frame;
     }
-    
-    public void define(String name, Value value) {
-        currentScope.values.put(name, value);
+
+    public void define(int slot, Value value) {
+        currentFrame.set(slot, value);
     }
-    
-    public Value lookup(String name) {
-        RuntimeScope scope = resolveScope(name);
-        return scope != null ? scope.values.get(name) : null;
+
+    /**
+     * Returns the value at the given address, or null if the slot was never defined.
+     */
+    public Value lookup(int depth, int slot) {
+        return currentFrame.ancestor(depth).get(slot);
     }
-    
-    public boolean assign(String name, Value value) {
-        RuntimeScope scope = resolveScope(name);
-        if (scope == null) {
+
+    public boolean assign(int depth, int slot, Value value) {
+        Frame frame = currentFrame.ancestor(depth);
+        if (frame.get(slot) == null) {
             return false;
         }
-        scope.values.put(name, value);
+        frame.set(slot, value);
         return true;
     }
-    
-    public boolean isDefined(String name) {
-        return resolveScope(name) != null;
-    }
-    
-    public RuntimeScope getCurrentScope() {
-        return currentScope;
-    }
-    
-    private RuntimeScope resolveScope(String name) {
-        RuntimeScope scope = currentScope;
-        while (scope != null) {
-            if (scope.values.containsKey(name)) {
-                return scope;
-            }
-            scope = scope.parent;
-        }
-        return null;
-    }
-    
-    /**
-     * Single lexical scope frame with pointer to parent scope.
-     */
-    public static final class RuntimeScope {
-        private final RuntimeScope parent;
-        private final Map<String, Value> values = new HashMap<>();
-        
-        private RuntimeScope(RuntimeScope parent) {
-            this.parent = parent;
-        }
-        
-        public RuntimeScope getParent() {
-            return parent;
-        }
+
+    public Frame getCurrentFrame() {
+        return currentFrame;
     }
 }
@@ -0,0 +1,31 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.ProgramNode;
+
+/**
+ * Common entry point for the ways Javdin can execute a program.
+ * Implementations report runtime failures to their error handler
+ * instead of throwing.
+ */
+public interface ExecutionEngine {
+    /** Nested calls allowed before a program fails with a runtime error. */
+    int DEFAULT_MAX_DEPTH = 1_000_000;
+
+    /**
+     * Execute the given (optimized) program.
+     */
+    void interpret(ProgramNode program);
+
+    /**
+     * Sends the output of print statements to {@code output} instead of a
+     * buffered sink over {@code System.out}. The engine flushes it when the
+     * program ends.
+     */
+    void setOutput(OutputSink output);
+
+    /**
+     * Reads the values of input expressions from {@code input} instead of
+     * the shared {@link InputSource#standardInput()}.
+     */
+    void setInput(InputSource input);
+}
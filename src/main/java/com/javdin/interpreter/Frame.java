@@ -0,0 +1,43 @@
+package com.javdin.interpreter;
+
+/**
+ * Fixed-size activation record holding the variables of one runtime scope.
+ * Slots are assigned ahead of time by the resolver, so reading a variable is
+ * a walk of {@code depth} parent links followed by an array index.
+ */
+public final class Frame {
+    private final Value[] slots;
+    private final Frame parent;
+
+    public Frame(int size, Frame parent) {
+        this.slots = new Value[size];
+        this.parent = parent;
+    }
+
+    public Value get(int slot) {
+        return slots[slot];
+    }
+
+    public void set(int slot, Value value) {
+        slots[slot] = value;
+    }
+
+    public Frame getParent() {
+        return parent;
+    }
+
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * Returns the frame {@code depth} levels up the parent chain (0 is this frame).
+     */
+    public Frame ancestor(int depth) {
+        Frame frame = this;
+        for (int i = 0; i < depth; i++) {
+            frame = frame.parent;
+        }
+        return frame;
+    }
+}
@@ -8,19 +8,25 @@ import java.util.List;
 
 /**
  * Runtime representation of a Project D function literal, including
- * the parameter list, body form, and the lexical scope captured when
- * the literal was created (closure).
+ * the parameter list, body form, and the frame captured when the
+ * literal was created (closure). Execution engines that compile
+ * function bodies extend this class to attach their compiled form.
  */
-public final class FunctionValue {
+public class FunctionValue {
     private final List<String> parameters;
     private final boolean expressionBody;
     private final List<StatementNode> statementBody;
     private final ExpressionNode expressionBodyNode;
-    private final Environment.RuntimeScope closureScope;
+    private final Frame closureFrame;
+    private final int frameSize;
     private final int line;
     private final int column;
+    private final FunctionLiteralNode literal;
+    private int calls;
+    private JitCode jitCode;
+    private MemoCache memo;
     
-    public FunctionValue(FunctionLiteralNode node, Environment.RuntimeScope closureScope) {
+    public FunctionValue(FunctionLiteralNode node, Frame closureFrame) {
         this.parameters = List.copyOf(node.getParameters());
         this.expressionBody = node.isExpressionBody();
         if (expressionBody) {
@@ -30,9 +36,11 @@ public final class FunctionValue {
             this.statementBody = List.copyOf(node.getStatementBody());
             this.expressionBodyNode = null;
         }
-        this.closureScope = closureScope;
+        this.closureFrame = closureFrame;
+        this.frameSize = node.getFrameSize();
         this.line = node.getLine();
         this.column = node.getColumn();
+        this.literal = node;
     }
     
     public List<String> getParameters() {
@@ -51,8 +59,12 @@ public final class FunctionValue {
         return expressionBodyNode;
     }
     
-    public Environment.RuntimeScope getClosureScope() {
-        return closureScope;
+    public Frame getClosureFrame() {
+        return closureFrame;
+    }
+    
+    public int getFrameSize() {
+        return frameSize;
     }
     
     public int getLine() {
@@ -63,6 +75,43 @@ public final class FunctionValue {
         return column;
     }
     
+    public FunctionLiteralNode getLiteral() {
+        return literal;
+    }
+    
+    /**
+     * Records one more call and returns the number of calls so far.
+     */
+    int countCall() {
+        return ++calls;
+    }
+    
+    /**
+     * Whether the purity analysis found that this function's result depends
+     * only on its arguments.
+     */
+    public boolean isPure() {
+        return literal.isPure();
+    }
+    
+    /**
+     * The memoized results of this closure, created on first use.
+     */
+    MemoCache memo(int capacity) {
+        if (memo == null) {
+            memo = new MemoCache(capacity);
+        }
+        return memo;
+    }
+    
+    JitCode getJitCode() {
+        return jitCode;
+    }
+    
+    void setJitCode(JitCode jitCode) {
+        this.jitCode = jitCode;
+    }
+    
     @Override
     public String toString() {
         return "func(" + String.join(", ", parameters) + ")";
@@ -0,0 +1,296 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.InputNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Source of the values that {@code input} expressions read. Bytes are read
+ * from the stream a large block at a time, and numbers are parsed straight
+ * from those bytes; only lines are decoded, in the platform charset like
+ * {@code System.in} text. There is one shared source over {@code System.in}
+ * (see {@link #standardInput()}), so nothing that one reader buffered is lost
+ * to the next.
+ *
+ * Numbers are whitespace-separated tokens; reading one stops right after
+ * it, so a line read that follows returns the rest of that line. Every read
+ * returns void at end of input.
+ */
+public final class InputSource {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    // Powers of ten that are exact doubles
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Decimal digits that always fit a double's mantissa exactly
+    private static final int EXACT_DIGITS = 15;
+
+    private static InputSource standardInput;
+
+    private final InputStream in;
+    private final Charset charset;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean exhausted;
+    // Holds a line or token that runs past the end of the buffer
+    private byte[] scratch = new byte[64];
+    // Where the last token read lies: in the buffer or in scratch
+    private byte[] token;
+    private int tokenStart;
+    private int tokenEnd;
+
+    public InputSource(InputStream in) {
+        this(in, DEFAULT_CAPACITY);
+    }
+
+    public InputSource(InputStream in, int capacity) {
+        this.in = in;
+        this.charset = Charset.defaultCharset();
+        this.buffer = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * The source over {@code System.in} that engines read from unless given
+     * another one.
+     */
+    public static synchronized InputSource standardInput() {
+        if (standardInput == null) {
+            standardInput = new InputSource(System.in);
+        }
+        return standardInput;
+    }
+
+    public Value read(InputNode.Kind kind) {
+        return switch (kind) {
+            case LINE -> readLine();
+            case INTEGER -> readInteger();
+            case REAL -> readReal();
+        };
+    }
+
+    /**
+     * The rest of the current line without its terminator, or void if the
+     * input is exhausted.
+     */
+    public Value readLine() {
+        if (!fill()) {
+            return Value.VOID;
+        }
+        int length = 0;
+        while (true) {
+            int start = position;
+            int end = start;
+            while (end < limit && buffer[end] != '\n') {
+                end++;
+            }
+            if (end < limit) {
+                position = end + 1;
+                if (length == 0) {
+                    return line(buffer, start, end);
+                }
+                length = keep(start, end, length);
+                return line(scratch, 0, length);
+            }
+            length = keep(start, limit, length);
+            position = limit;
+            if (!fill()) {
+                return line(scratch, 0, length);
+            }
+        }
+    }
+
+    /**
+     * The next token as an integer, or void if the input is exhausted.
+     */
+    public Value readInteger() {
+        if (!nextToken()) {
+            return Value.VOID;
+        }
+        byte[] bytes = token;
+        int i = tokenStart;
+        boolean negative = bytes[i] == '-';
+        if (negative || bytes[i] == '+') {
+            i++;
+        }
+        if (i == tokenEnd) {
+            throw malformed("integer");
+        }
+        long value = 0;
+        for (; i < tokenEnd; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("integer");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw malformed("integer");
+            }
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw malformed("integer");
+        }
+        return Value.integer((int) value);
+    }
+
+    /**
+     * The next token as a real, or void if the input is exhausted. Plain
+     * decimals with few enough digits are converted exactly without going
+     * through a string.
+     */
+    public Value readReal() {
+        if (!nextToken()) {
+            return Value.VOID;
+        }
+        byte[] bytes = token;
+        int i = tokenStart;
+        boolean negative = bytes[i] == '-';
+        if (negative || bytes[i] == '+') {
+            i++;
+        }
+        long mantissa = 0;
+        int significant = 0;
+        int scale = 0;
+        boolean digits = false;
+        boolean point = false;
+        for (; i < tokenEnd; i++) {
+            if (bytes[i] == '.' && !point) {
+                point = true;
+                continue;
+            }
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            digits = true;
+            if (mantissa != 0 || digit != 0) {
+                significant++;
+            }
+            mantissa = mantissa * 10 + digit;
+            if (point) {
+                scale++;
+            }
+        }
+        if (i == tokenEnd && digits && significant <= EXACT_DIGITS && scale < POWERS_OF_TEN.length) {
+            // Both operands are exact, so the quotient is correctly rounded
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return Value.real(negative ? -value : value);
+        }
+        try {
+            return Value.real(Double.parseDouble(tokenText()));
+        } catch (NumberFormatException e) {
+            throw malformed("real");
+        }
+    }
+
+    /**
+     * Skips whitespace and finds the next token, copying it to scratch if it
+     * runs past the end of the buffer. False at end of input.
+     */
+    private boolean nextToken() {
+        while (true) {
+            if (!fill()) {
+                return false;
+            }
+            if ((buffer[position] & 0xFF) > ' ') {
+                break;
+            }
+            position++;
+        }
+        int start = position;
+        int end = tokenEnd(start);
+        position = end;
+        if (end < limit) {
+            token = buffer;
+            tokenStart = start;
+            tokenEnd = end;
+            return true;
+        }
+        int length = keep(start, end, 0);
+        while (fill()) {
+            start = position;
+            end = tokenEnd(start);
+            length = keep(start, end, length);
+            position = end;
+            if (end < limit) {
+                break;
+            }
+        }
+        token = scratch;
+        tokenStart = 0;
+        tokenEnd = length;
+        return true;
+    }
+
+    private int tokenEnd(int from) {
+        int end = from;
+        while (end < limit && (buffer[end] & 0xFF) > ' ') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Appends {@code buffer[from..to)} to the {@code length} bytes already in
+     * scratch, returning the new length.
+     */
+    private int keep(int from, int to, int length) {
+        int count = to - from;
+        if (length + count > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(length + count, scratch.length * 2));
+        }
+        System.arraycopy(buffer, from, scratch, length, count);
+        return length + count;
+    }
+
+    private Value line(byte[] bytes, int from, int to) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+        return Value.string(new String(bytes, from, to - from, charset));
+    }
+
+    private String tokenText() {
+        return new String(token, tokenStart, tokenEnd - tokenStart, charset);
+    }
+
+    private RuntimeError malformed(String type) {
+        return new RuntimeError("Cannot read " + type + " from input: '" + tokenText() + "'");
+    }
+
+    /**
+     * Makes sure there are unread bytes in the buffer, reading the next
+     * block if needed. False at end of input.
+     */
+    private boolean fill() {
+        if (position < limit) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        int count;
+        try {
+            do {
+                count = in.read(buffer, 0, buffer.length);
+            } while (count == 0);
+        } catch (IOException e) {
+            throw new RuntimeError("Cannot read input: " + e.getMessage());
+        }
+        position = 0;
+        if (count < 0) {
+            exhausted = true;
+            limit = 0;
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+}
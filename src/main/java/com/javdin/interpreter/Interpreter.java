@@ -1,6 +1,8 @@
 package com.javdin.interpreter;
 
 import com.javdin.ast.*;
+import com.javdin.semantics.PurityAnalyzer;
+import com.javdin.semantics.Resolver;
 import com.javdin.utils.ErrorHandler;
 
 import java.util.ArrayList;
@@ -10,46 +12,132 @@ import java.util.List;
  * Interpreter for the Javdin language.
  * Executes the AST and produces runtime behavior.
  */
-public class Interpreter implements AstVisitor<Value> {
+public class Interpreter implements AstVisitor<Value>, ExecutionEngine {
+    /** Calls after which a function is compiled to JVM bytecode by the {@link JitCompiler}. */
+    public static final int DEFAULT_JIT_THRESHOLD = 1000;
+    /** Results remembered per pure closure with memoization switched on. */
+    public static final int DEFAULT_MEMO_CAPACITY = 4096;
+
     private final ErrorHandler errorHandler;
     private final Environment environment;
+    private final JitCompiler jit;
+    private final int maxDepth;
+    private int depth;
+    // Sink set by setOutput, and the one the running program prints to
+    private OutputSink output;
+    private OutputSink out;
+    // Source set by setInput, and the one the running program reads from
+    private InputSource input;
+    private InputSource in;
+    // Results kept per pure closure; zero disables memoization
+    private final int memoCapacity;
+    // Whether an impure function ran since the innermost memoized call began
+    private boolean impureCall;
+    // Innermost call that ran out of Java stack, reported once there is room again
+    private AstNode overflowSite;
+    private int overflowDepth;
+    // Pending break, continue or return of the statement just executed
+    private Completion completion = Completion.NORMAL;
+    private Value returnValue;
+    // Callee and arguments of a pending tail call
+    private FunctionValue tailFunction;
+    private Value[] tailArguments;
+    private AstNode tailCallSite;
     
     public Interpreter(ErrorHandler errorHandler) {
+        this(errorHandler, DEFAULT_JIT_THRESHOLD);
+    }
+
+    /**
+     * Creates an interpreter that compiles functions once they have been called
+     * {@code jitThreshold} times; a threshold of zero or less disables the JIT.
+     */
+    public Interpreter(ErrorHandler errorHandler, int jitThreshold) {
+        this(errorHandler, jitThreshold, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an interpreter that fails with a runtime error once calls nest
+     * {@code maxDepth} deep, or once they exhaust the Java thread stack,
+     * whichever comes first.
+     */
+    public Interpreter(ErrorHandler errorHandler, int jitThreshold, int maxDepth) {
+        this(errorHandler, jitThreshold, maxDepth, 0);
+    }
+
+    /**
+     * Creates an interpreter that also remembers up to {@code memoCapacity}
+     * results of every closure the {@link PurityAnalyzer} finds pure; zero
+     * disables memoization.
+     */
+    public Interpreter(ErrorHandler errorHandler, int jitThreshold, int maxDepth, int memoCapacity) {
         this.errorHandler = errorHandler;
         this.environment = new Environment();
+        this.jit = jitThreshold > 0 ? new JitCompiler(jitThreshold) : null;
+        this.maxDepth = maxDepth;
+        this.memoCapacity = memoCapacity;
     }
     
+    @Override
     public void interpret(ProgramNode program) {
+        new Resolver().resolve(program);
+        if (memoCapacity > 0) {
+            new PurityAnalyzer().analyze(program);
+        }
+        out = output != null ? output : new BufferedOutputSink(System.out, false);
+        in = input != null ? input : InputSource.standardInput();
         try {
             program.accept(this);
+            if (completion == Completion.RETURN) {
+                errorHandler.addError("Return statement outside function", program.getLine(), program.getColumn());
+            } else if (completion != Completion.NORMAL) {
+                errorHandler.addError("Loop control statement outside loop", program.getLine(), program.getColumn());
+            }
         } catch (RuntimeError error) {
             errorHandler.addError("Runtime error: " + error.getMessage(), error.getLine(), error.getColumn());
-        } catch (ReturnSignal signal) {
-            errorHandler.addError("Return statement outside function", program.getLine(), program.getColumn());
         } catch (BreakSignal | ContinueSignal signal) {
             errorHandler.addError("Loop control statement outside loop", program.getLine(), program.getColumn());
+        } catch (StackOverflowError error) {
+            AstNode site = overflowSite != null ? overflowSite : program;
+            errorHandler.addError("Runtime error: Call stack exhausted after " + overflowDepth + " nested calls",
+                site.getLine(), site.getColumn());
+        } finally {
+            overflowSite = null;
+            completion = Completion.NORMAL;
+            returnValue = null;
+            tailFunction = null;
+            tailArguments = null;
+            tailCallSite = null;
+            out.flush();
         }
     }
+
+    @Override
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    @Override
+    public void setInput(InputSource input) {
+        this.input = input;
+    }
     
     @Override
     public Value visitProgram(ProgramNode node) {
-        Value lastValue = Value.VOID;
-        for (StatementNode statement : node.getStatements()) {
-            lastValue = statement.accept(this);
-        }
-        return lastValue;
+        environment.enterFrame(node.getFrameSize());
+        return executeStatements(node.getStatements());
     }
     
     @Override
     public Value visitDeclaration(DeclarationNode node) {
         // Predeclare all variables to support mutual recursion and self references
         for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
-            environment.define(definition.getName(), Value.VOID);
+            environment.define(definition.getSlot(), Value.VOID);
         }
         for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
             if (definition.getInitialValue() != null) {
                 Value value = evaluate(definition.getInitialValue());
-                environment.assign(definition.getName(), value);
+                environment.define(definition.getSlot(), value);
             }
         }
         return Value.VOID;
@@ -76,13 +164,19 @@ public class Interpreter implements AstVisitor<Value> {
     public Value visitWhile(WhileNode node) {
         Value last = Value.VOID;
         while (evaluate(node.getCondition()).isTruthy()) {
+            Value value;
             try {
-                last = node.getBody().accept(this);
+                value = node.getBody().accept(this);
             } catch (ContinueSignal ignore) {
                 continue;
             } catch (BreakSignal ignore) {
                 break;
             }
+            if (completion == Completion.NORMAL) {
+                last = value;
+            } else if (!resumeLoop()) {
+                break;
+            }
         }
         return last;
     }
@@ -102,30 +196,35 @@ public class Interpreter implements AstVisitor<Value> {
     @Override
     public Value visitReturn(ReturnNode node) {
         Value value = node.getValue() != null ? evaluate(node.getValue()) : Value.VOID;
-        throw new ReturnSignal(value);
+        if (completion != Completion.TAIL_CALL) {
+            returnValue = value;
+            completion = Completion.RETURN;
+        }
+        return Value.VOID;
     }
     
     @Override
     public Value visitBreak(BreakNode node) {
-        throw new BreakSignal();
+        completion = Completion.BREAK;
+        return Value.VOID;
     }
     
     @Override
     public Value visitContinue(ContinueNode node) {
-        throw new ContinueSignal();
+        completion = Completion.CONTINUE;
+        return Value.VOID;
     }
     
     @Override
     public Value visitBlock(BlockNode node) {
-        environment.enterScope();
+        if (node.getFrameSize() == 0) {
+            return executeStatements(node.getStatements());
+        }
+        environment.enterFrame(node.getFrameSize());
         try {
-            Value last = Value.VOID;
-            for (StatementNode statement : node.getStatements()) {
-                last = statement.accept(this);
-            }
-            return last;
+            return executeStatements(node.getStatements());
         } finally {
-            environment.exitScope();
+            environment.exitFrame();
         }
     }
     
@@ -136,28 +235,42 @@ public class Interpreter implements AstVisitor<Value> {
     
     @Override
     public Value visitLiteral(LiteralNode node) {
-        return switch (node.getType()) {
-            case INTEGER -> Value.integer(((Number) node.getValue()).intValue());
-            case REAL -> Value.real(((Number) node.getValue()).doubleValue());
-            case BOOLEAN -> Value.bool((Boolean) node.getValue());
-            case STRING -> Value.string((String) node.getValue());
-            case NONE -> Value.VOID;
-        };
+        return Operations.literal(node);
     }
     
     @Override
     public Value visitPrint(PrintNode node) {
-        List<String> outputs = new ArrayList<>();
-        for (ExpressionNode expression : node.getExpressions()) {
-            outputs.add(evaluate(expression).asString());
+        List<ExpressionNode> expressions = node.getExpressions();
+        Value[] values = new Value[expressions.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(expressions.get(i));
         }
-        System.out.println(String.join(" ", outputs));
+        print(values);
         return Value.VOID;
     }
+
+    /**
+     * Prints the values of a print statement; JIT-compiled code calls this too.
+     */
+    void print(Value[] values) {
+        out.printLine(values, 0, values.length);
+    }
+
+    @Override
+    public Value visitInput(InputNode node) {
+        return read(node);
+    }
+
+    /**
+     * Evaluates an input expression; compiled code calls this too.
+     */
+    Value read(InputNode node) {
+        return Operations.read(in, node);
+    }
     
     @Override
     public Value visitReference(ReferenceNode node) {
-        Value value = environment.lookup(node.getName());
+        Value value = node.isResolved() ? environment.lookup(node.getDepth(), node.getSlot()) : null;
         if (value == null) {
             throw runtimeError("Undefined variable: " + node.getName(), node);
         }
@@ -168,76 +281,61 @@ public class Interpreter implements AstVisitor<Value> {
     public Value visitBinaryOp(BinaryOpNode node) {
         Value left = evaluate(node.getLeft());
         Value right = evaluate(node.getRight());
-        String operator = node.getOperator();
-        return switch (operator) {
-            case "+" -> add(left, right, node);
-            case "-" -> subtract(left, right, node);
-            case "*" -> multiply(left, right, node);
-            case "/" -> divide(left, right, node);
-            case "<", "<=", ">", ">=" -> compare(left, right, operator, node);
-            case "=", "==" -> Value.bool(equals(left, right));
-            case "!=", "/=" -> Value.bool(!equals(left, right));
-            case "and" -> Value.bool(requireBoolean(left, node) && requireBoolean(right, node));
-            case "or" -> Value.bool(requireBoolean(left, node) || requireBoolean(right, node));
-            case "xor" -> Value.bool(requireBoolean(left, node) ^ requireBoolean(right, node));
-            default -> throw runtimeError("Unsupported operator '" + operator + "'", node);
+        return switch (node.getOp()) {
+            case ADD -> Operations.add(left, right, node);
+            case SUBTRACT -> Operations.subtract(left, right, node);
+            case MULTIPLY -> Operations.multiply(left, right, node);
+            case DIVIDE -> Operations.divide(left, right, node);
+            case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> Operations.compare(left, right, node.getOp(), node);
+            case EQUAL -> Value.bool(Operations.valuesEqual(left, right));
+            case NOT_EQUAL -> Value.bool(!Operations.valuesEqual(left, right));
+            case AND -> Value.bool(Operations.requireBoolean(left, node) && Operations.requireBoolean(right, node));
+            case OR -> Value.bool(Operations.requireBoolean(left, node) || Operations.requireBoolean(right, node));
+            case XOR -> Value.bool(Operations.requireBoolean(left, node) ^ Operations.requireBoolean(right, node));
+            default -> throw runtimeError("Unsupported operator '" + node.getOperator() + "'", node);
         };
     }
     
     @Override
     public Value visitUnaryOp(UnaryOpNode node) {
         Value operand = evaluate(node.getOperand());
-        return switch (node.getOperator()) {
-            case "+" -> {
-                if (operand.getType() == Value.ValueType.REAL) {
-                    yield Value.real(operand.asReal());
-                }
-                if (operand.getType() == Value.ValueType.INTEGER) {
-                    yield Value.integer(operand.asInteger());
-                }
-                throw runtimeError("Unary '+' expects numeric operand", node);
-            }
-            case "-" -> {
-                if (operand.getType() == Value.ValueType.REAL) {
-                    yield Value.real(-operand.asReal());
-                }
-                if (operand.getType() == Value.ValueType.INTEGER) {
-                    yield Value.integer(-operand.asInteger());
-                }
-                throw runtimeError("Unary '-' expects numeric operand", node);
-            }
-            case "not" -> Value.bool(!requireBoolean(operand, node));
+        return switch (node.getOp()) {
+            case PLUS -> Operations.unaryPlus(operand, node);
+            case NEGATE -> Operations.negate(operand, node);
+            case NOT -> Value.bool(!Operations.requireBoolean(operand, node));
             default -> throw runtimeError("Unsupported unary operator '" + node.getOperator() + "'", node);
         };
     }
     
     @Override
     public Value visitFunctionCall(FunctionCallNode node) {
-        Value functionValue = evaluate(node.getFunction());
-        if (functionValue.getType() != Value.ValueType.FUNCTION) {
-            throw runtimeError("Attempted to call a non-function value", node.getFunction());
+        FunctionValue function = node.getBuiltin() == null
+            ? Operations.requireFunction(evaluate(node.getFunction()), node.getFunction())
+            : null;
+        List<ExpressionNode> argumentNodes = node.getArguments();
+        Value[] arguments = new Value[argumentNodes.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = evaluate(argumentNodes.get(i));
         }
-        FunctionValue function = functionValue.asFunction();
-        List<Value> arguments = new ArrayList<>();
-        for (ExpressionNode argument : node.getArguments()) {
-            arguments.add(evaluate(argument));
+        if (function == null) {
+            return Builtins.call(node, arguments);
         }
-        return invokeFunction(function, arguments, node);
+        if (node.isTailCall()) {
+            return tailCall(function, arguments, node);
+        }
+        return invokeFunction(function, arguments, node, true);
     }
     
     @Override
     public Value visitArrayAccess(ArrayAccessNode node) {
-        Value arrayValue = evaluate(node.getArray());
-        if (arrayValue.getType() != Value.ValueType.ARRAY) {
-            throw runtimeError("Attempted to index non-array value", node.getArray());
-        }
+        ArrayValue array = Operations.requireArray(evaluate(node.getArray()), node.getArray());
         int index = evaluate(node.getIndex()).asInteger();
-        return arrayValue.asArray().get(index);
+        return array.get(index);
     }
     
     @Override
     public Value visitFunctionLiteral(FunctionLiteralNode node) {
-        FunctionValue functionValue = new FunctionValue(node, environment.captureCurrentScope());
+        FunctionValue functionValue = new FunctionValue(node, environment.captureCurrentFrame());
         return Value.function(functionValue);
     }
     
@@ -252,74 +350,95 @@ public class Interpreter implements AstVisitor<Value> {
     
     @Override
     public Value visitTupleLiteral(TupleLiteralNode node) {
-        TupleValue tuple = new TupleValue();
-        for (TupleLiteralNode.TupleElement element : node.getElements()) {
-            Value value = element.getValue() != null ? evaluate(element.getValue()) : Value.VOID;
-            tuple.append(element.getName(), value);
+        List<TupleLiteralNode.TupleElement> elements = node.getElements();
+        TupleShape shape = TupleShape.EMPTY;
+        Value[] values = new Value[elements.size()];
+        for (int i = 0; i < values.length; i++) {
+            TupleLiteralNode.TupleElement element = elements.get(i);
+            values[i] = element.getValue() != null ? evaluate(element.getValue()) : Value.VOID;
+            shape = shape.withMember(element.getName());
         }
-        return Value.tuple(tuple);
+        return Value.tuple(new TupleValue(shape, values));
     }
     
     @Override
     public Value visitTypeCheck(TypeCheckNode node) {
         Value value = evaluate(node.getExpression());
-        String indicator = node.getTypeIndicator().toLowerCase();
-        boolean result = switch (indicator) {
-            case "int" -> value.getType() == Value.ValueType.INTEGER;
-            case "real" -> value.getType() == Value.ValueType.REAL;
-            case "bool" -> value.getType() == Value.ValueType.BOOLEAN;
-            case "string" -> value.getType() == Value.ValueType.STRING;
-            case "none" -> value.getType() == Value.ValueType.VOID;
-            case "array", "[]" -> value.getType() == Value.ValueType.ARRAY;
-            case "tuple", "{}" -> value.getType() == Value.ValueType.TUPLE;
-            case "func" -> value.getType() == Value.ValueType.FUNCTION;
-            default -> throw runtimeError("Unknown type indicator '" + indicator + "'", node);
-        };
-        return Value.bool(result);
+        return Value.bool(value.getType() == Operations.typeForIndicator(node.getTypeIndicator(), node));
     }
     
     @Override
     public Value visitTupleMemberAccess(TupleMemberAccessNode node) {
-        Value tupleValue = evaluate(node.getTuple());
-        if (tupleValue.getType() != Value.ValueType.TUPLE) {
-            throw runtimeError("Attempted to access member on non-tuple", node.getTuple());
-        }
-        TupleValue tuple = tupleValue.asTuple();
+        TupleValue tuple = Operations.requireTuple(evaluate(node.getTuple()), node.getTuple());
         return node.isNumericIndex()
-            ? tuple.getByIndex(Integer.parseInt(node.getMemberName()))
-            : tuple.getByName(node.getMemberName());
+            ? tuple.getByIndex(node.getIndex())
+            : memberCache(node).get(tuple);
+    }
+    
+    /**
+     * The inline cache of a by-name member access site, created on first use.
+     */
+    static MemberCache memberCache(TupleMemberAccessNode node) {
+        MemberCache cache = (MemberCache) node.getInlineCache();
+        if (cache == null) {
+            cache = new MemberCache(node.getMemberName());
+            node.setInlineCache(cache);
+        }
+        return cache;
     }
     
     private Value evaluate(ExpressionNode node) {
         return node.accept(this);
     }
     
+    private Value executeStatements(List<StatementNode> statements) {
+        Value last = Value.VOID;
+        for (StatementNode statement : statements) {
+            last = statement.accept(this);
+            if (completion != Completion.NORMAL) {
+                break;
+            }
+        }
+        return last;
+    }
+    
+    /**
+     * Consumes the pending completion of a loop body: a continue resumes the
+     * loop and a break ends it, while a return stays pending and ends the loop
+     * on its way to the enclosing function.
+     */
+    private boolean resumeLoop() {
+        switch (completion) {
+            case CONTINUE:
+                completion = Completion.NORMAL;
+                return true;
+            case BREAK:
+                completion = Completion.NORMAL;
+                return false;
+            default:
+                return completion == Completion.NORMAL;
+        }
+    }
+    
     private void assignTarget(ExpressionNode target, Value value) {
         if (target instanceof ReferenceNode reference) {
-            if (!environment.assign(reference.getName(), value)) {
+            if (!reference.isResolved() || !environment.assign(reference.getDepth(), reference.getSlot(), value)) {
                 throw runtimeError("Undefined variable: " + reference.getName(), target);
             }
             return;
         }
         if (target instanceof ArrayAccessNode arrayAccess) {
-            Value arrayValue = evaluate(arrayAccess.getArray());
-            if (arrayValue.getType() != Value.ValueType.ARRAY) {
-                throw runtimeError("Attempted to index non-array value", arrayAccess.getArray());
-            }
+            ArrayValue array = Operations.requireArray(evaluate(arrayAccess.getArray()), arrayAccess.getArray());
             int index = evaluate(arrayAccess.getIndex()).asInteger();
-            arrayValue.asArray().set(index, value);
+            array.set(index, value);
             return;
         }
         if (target instanceof TupleMemberAccessNode tupleAccess) {
-            Value tupleValue = evaluate(tupleAccess.getTuple());
-            if (tupleValue.getType() != Value.ValueType.TUPLE) {
-                throw runtimeError("Attempted to access member on non-tuple", tupleAccess.getTuple());
-            }
-            TupleValue tuple = tupleValue.asTuple();
+            TupleValue tuple = Operations.requireTuple(evaluate(tupleAccess.getTuple()), tupleAccess.getTuple());
             if (tupleAccess.isNumericIndex()) {
-                tuple.setByIndex(Integer.parseInt(tupleAccess.getMemberName()), value);
+                tuple.setByIndex(tupleAccess.getIndex(), value);
             } else {
-                tuple.setByName(tupleAccess.getMemberName(), value);
+                memberCache(tupleAccess).set(tuple, value);
             }
             return;
         }
@@ -329,13 +448,19 @@ public class Interpreter implements AstVisitor<Value> {
     private Value executeInfiniteLoop(StatementNode body) {
         Value last = Value.VOID;
         while (true) {
+            Value value;
             try {
-                last = body.accept(this);
+                value = body.accept(this);
             } catch (ContinueSignal ignore) {
                 continue;
             } catch (BreakSignal ignore) {
                 break;
             }
+            if (completion == Completion.NORMAL) {
+                last = value;
+            } else if (!resumeLoop()) {
+                break;
+            }
         }
         return last;
     }
@@ -343,25 +468,68 @@ public class Interpreter implements AstVisitor<Value> {
     private Value executeRangeLoop(ForNode node) {
         int start = evaluate(node.getIterable()).asInteger();
         int end = evaluate(node.getRangeEnd()).asInteger();
+        if (node.getVariable() != null && node.isVariableCaptured()) {
+            return executeCapturedRangeLoop(node, start, end);
+        }
+        // No closure can see the loop frame, so one frame serves every iteration
+        boolean bound = node.getVariable() != null;
+        int slot = node.getVariableSlot();
+        StatementNode body = node.getBody();
+        int step = start <= end ? 1 : -1;
+        Value last = Value.VOID;
+        if (bound) {
+            environment.enterFrame(1);
+        }
+        try {
+            for (int current = start; step > 0 ? current <= end : current >= end; current += step) {
+                if (bound) {
+                    environment.define(slot, Value.integer(current));
+                }
+                Value value;
+                try {
+                    value = body.accept(this);
+                } catch (ContinueSignal ignore) {
+                    continue;
+                } catch (BreakSignal ignore) {
+                    break;
+                }
+                if (completion == Completion.NORMAL) {
+                    last = value;
+                } else if (!resumeLoop()) {
+                    break;
+                }
+            }
+        } finally {
+            if (bound) {
+                environment.exitFrame();
+            }
+        }
+        return last;
+    }
+    
+    /**
+     * Range loop whose body creates closures: every iteration gets a fresh
+     * frame, so each closure keeps the value of the loop variable it saw.
+     */
+    private Value executeCapturedRangeLoop(ForNode node, int start, int end) {
         int step = start <= end ? 1 : -1;
         Value last = Value.VOID;
         for (int current = start; step > 0 ? current <= end : current >= end; current += step) {
+            environment.enterFrame(1);
             try {
-                if (node.getVariable() != null) {
-                    environment.enterScope();
-                    environment.define(node.getVariable(), Value.integer(current));
-                    last = node.getBody().accept(this);
-                } else {
-                    last = node.getBody().accept(this);
+                environment.define(node.getVariableSlot(), Value.integer(current));
+                Value value = node.getBody().accept(this);
+                if (completion == Completion.NORMAL) {
+                    last = value;
+                } else if (!resumeLoop()) {
+                    break;
                 }
             } catch (ContinueSignal ignore) {
                 continue;
             } catch (BreakSignal ignore) {
                 break;
             } finally {
-                if (node.getVariable() != null) {
-                    environment.exitScope();
-                }
+                environment.exitFrame();
             }
         }
         return last;
@@ -373,23 +541,39 @@ public class Interpreter implements AstVisitor<Value> {
         if (iterable.getType() == Value.ValueType.ARRAY) {
             List<Value> elements = iterable.asArray().snapshot();
             for (int i = 0; i < elements.size(); i++) {
+                Value elementValue = elements.get(i);
+                Value value;
                 try {
-                    Value elementValue = elements.get(i);
-                    last = executeLoopBody(node, elementValue != null ? elementValue : Value.VOID);
+                    value = executeLoopBody(node, elementValue != null ? elementValue : Value.VOID);
                 } catch (BreakSignal ignore) {
                     break;
                 }
+                if (completion == Completion.NORMAL) {
+                    last = value;
+                } else if (resumeLoop()) {
+                    last = Value.VOID;
+                } else {
+                    break;
+                }
             }
             return last;
         }
         if (iterable.getType() == Value.ValueType.TUPLE) {
-            List<TupleValue.TupleEntry> entries = iterable.asTuple().snapshot();
-            for (TupleValue.TupleEntry entry : entries) {
+            List<Value> values = iterable.asTuple().values();
+            for (Value element : values) {
+                Value value;
                 try {
-                    last = executeLoopBody(node, entry.value());
+                    value = executeLoopBody(node, element);
                 } catch (BreakSignal ignore) {
                     break;
                 }
+                if (completion == Completion.NORMAL) {
+                    last = value;
+                } else if (resumeLoop()) {
+                    last = Value.VOID;
+                } else {
+                    break;
+                }
             }
             return last;
         }
@@ -400,199 +584,196 @@ public class Interpreter implements AstVisitor<Value> {
         Value last = Value.VOID;
         try {
             if (node.getVariable() != null) {
-                environment.enterScope();
-                environment.define(node.getVariable(), loopValue);
+                environment.enterFrame(1);
+                environment.define(node.getVariableSlot(), loopValue);
             }
             last = node.getBody().accept(this);
         } catch (ContinueSignal ignore) {
             // Continue just proceeds to next iteration
-        } catch (BreakSignal e) {
-            throw e;
         } finally {
             if (node.getVariable() != null) {
-                environment.exitScope();
+                environment.exitFrame();
             }
         }
         return last;
     }
     
-    private Value invokeFunction(FunctionValue function, List<Value> arguments, AstNode callSite) {
-        List<String> parameters = function.getParameters();
-        if (arguments.size() != parameters.size()) {
-            throw runtimeError(
-                "Function expected " + parameters.size() + " arguments but received " + arguments.size(),
-                callSite);
-        }
-        Environment.RuntimeScope previousScope = environment.pushFunctionScope(function.getClosureScope());
-        try {
-            for (int i = 0; i < parameters.size(); i++) {
-                environment.define(parameters.get(i), arguments.get(i));
-            }
-            if (function.isExpressionBody()) {
-                return evaluate(function.getExpressionBody());
-            }
-            Value last = Value.VOID;
-            try {
-                for (StatementNode statement : function.getStatementBody()) {
-                    last = statement.accept(this);
-                }
-                return last;
-            } catch (ReturnSignal signal) {
-                return signal.value;
-            }
-        } finally {
-            environment.restoreScope(previousScope);
-        }
-    }
-    
-    private Value add(Value left, Value right, AstNode node) {
-        if (left.isNumeric() && right.isNumeric()) {
-            if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
-                return Value.real(left.asReal() + right.asReal());
-            }
-            return Value.integer(left.asInteger() + right.asInteger());
-        }
-        if (left.getType() == Value.ValueType.STRING && right.getType() == Value.ValueType.STRING) {
-            return Value.string(left.asString() + right.asString());
-        }
-        if (left.getType() == Value.ValueType.ARRAY && right.getType() == Value.ValueType.ARRAY) {
-            return Value.array(left.asArray().concat(right.asArray()));
-        }
-        if (left.getType() == Value.ValueType.TUPLE && right.getType() == Value.ValueType.TUPLE) {
-            return Value.tuple(left.asTuple().concat(right.asTuple()));
-        }
-        throw runtimeError("Unsupported operand types for '+': " + left.getType() + " and " + right.getType(), node);
+    /**
+     * Entry point for JIT-compiled code calling another function.
+     */
+    Value call(FunctionValue function, Value[] arguments, AstNode callSite) {
+        return invokeFunction(function, arguments, callSite, true);
     }
     
-    private Value subtract(Value left, Value right, AstNode node) {
-        if (!left.isNumeric() || !right.isNumeric()) {
-            throw runtimeError("'-' expects numeric operands", node);
-        }
-        if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
-            return Value.real(left.asReal() - right.asReal());
-        }
-        return Value.integer(left.asInteger() - right.asInteger());
-    }
-    
-    private Value multiply(Value left, Value right, AstNode node) {
-        if (!left.isNumeric() || !right.isNumeric()) {
-            throw runtimeError("'*' expects numeric operands", node);
-        }
-        if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
-            return Value.real(left.asReal() * right.asReal());
-        }
-        return Value.integer(left.asInteger() * right.asInteger());
-    }
-    
-    private Value divide(Value left, Value right, AstNode node) {
-        if (!left.isNumeric() || !right.isNumeric()) {
-            throw runtimeError("'/' expects numeric operands", node);
-        }
-        if ((right.getType() == Value.ValueType.INTEGER && right.asInteger() == 0)
-            || (right.getType() == Value.ValueType.REAL && right.asReal() == 0.0)) {
-            throw runtimeError("Division by zero", node);
-        }
-        if (left.getType() == Value.ValueType.INTEGER && right.getType() == Value.ValueType.INTEGER) {
-            return Value.integer(Math.floorDiv(left.asInteger(), right.asInteger()));
-        }
-        return Value.real(left.asReal() / right.asReal());
-    }
-    
-    private Value compare(Value left, Value right, String operator, AstNode node) {
-        if (!left.isNumeric() || !right.isNumeric()) {
-            throw runtimeError("Comparison operators expect numeric operands", node);
-        }
-        double l = left.asReal();
-        double r = right.asReal();
-        return switch (operator) {
-            case "<" -> Value.bool(l < r);
-            case "<=" -> Value.bool(l <= r);
-            case ">" -> Value.bool(l > r);
-            case ">=" -> Value.bool(l >= r);
-            default -> throw runtimeError("Unsupported comparison operator", node);
-        };
+    /**
+     * Leaves a call in tail position pending instead of making it, so that
+     * the calling function returns first and the call runs from
+     * {@link #invokeFunction} without growing the stack.
+     */
+    Value tailCall(FunctionValue function, Value[] arguments, AstNode callSite) {
+        tailFunction = function;
+        tailArguments = arguments;
+        tailCallSite = callSite;
+        completion = Completion.TAIL_CALL;
+        return Value.VOID;
     }
     
-    private boolean equals(Value left, Value right) {
-        if (left.isNumeric() && right.isNumeric()) {
-            return Double.compare(left.asReal(), right.asReal()) == 0;
+    /**
+     * Calls a pure function through its memo. A result is only remembered if
+     * no impure function ran during the call, since the analysis cannot tell
+     * which functions a call will reach.
+     */
+    private Value invokeMemoized(FunctionValue function, Value[] arguments, AstNode callSite) {
+        MemoCache.Key key = MemoCache.key(arguments);
+        if (key == null) {
+            return invokeFunction(function, arguments, callSite, false);
+        }
+        MemoCache memo = function.memo(memoCapacity);
+        Value cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        boolean outerImpure = impureCall;
+        impureCall = false;
+        Value result;
+        boolean impure;
+        try {
+            result = invokeFunction(function, arguments, callSite, false);
+        } finally {
+            impure = impureCall;
+            impureCall = outerImpure || impure;
         }
-        if (left.getType() != right.getType()) {
-            return false;
+        if (!impure && MemoCache.isImmutable(result)) {
+            memo.put(key, result);
         }
-        return switch (left.getType()) {
-            case BOOLEAN, STRING -> left.getValue().equals(right.getValue());
-            case ARRAY -> arraysEqual(left.asArray(), right.asArray());
-            case TUPLE -> tuplesEqual(left.asTuple(), right.asTuple());
-            case FUNCTION -> left.getValue() == right.getValue();
-            case VOID -> true;
-            default -> left.getValue().equals(right.getValue());
-        };
+        return result;
     }
     
-    private boolean arraysEqual(ArrayValue left, ArrayValue right) {
-        List<Value> leftElements = left.snapshot();
-        List<Value> rightElements = right.snapshot();
-        if (leftElements.size() != rightElements.size()) {
-            return false;
+    /**
+     * Runs a call and then any tail calls it leaves pending, all from this
+     * one Java frame. A pure function goes through its memo first unless
+     * {@code memoize} is false.
+     */
+    private Value invokeFunction(FunctionValue function, Value[] arguments, AstNode callSite, boolean memoize) {
+        if (memoize && memoCapacity > 0 && function.isPure()) {
+            return invokeMemoized(function, arguments, callSite);
         }
-        for (int i = 0; i < leftElements.size(); i++) {
-            Value leftValue = leftElements.get(i) != null ? leftElements.get(i) : Value.VOID;
-            Value rightValue = rightElements.get(i) != null ? rightElements.get(i) : Value.VOID;
-            if (!equals(leftValue, rightValue)) {
-                return false;
+        while (true) {
+            List<String> parameters = function.getParameters();
+            if (arguments.length != parameters.size()) {
+                throw runtimeError(
+                    "Function expected " + parameters.size() + " arguments but received " + arguments.length,
+                    callSite);
             }
-        }
-        return true;
-    }
-    
-    private boolean tuplesEqual(TupleValue left, TupleValue right) {
-        List<TupleValue.TupleEntry> leftEntries = left.snapshot();
-        List<TupleValue.TupleEntry> rightEntries = right.snapshot();
-        if (leftEntries.size() != rightEntries.size()) {
-            return false;
-        }
-        for (int i = 0; i < leftEntries.size(); i++) {
-            TupleValue.TupleEntry leftEntry = leftEntries.get(i);
-            TupleValue.TupleEntry rightEntry = rightEntries.get(i);
-            if (leftEntry.name() == null ? rightEntry.name() != null : !leftEntry.name().equals(rightEntry.name())) {
-                return false;
+            if (depth == maxDepth) {
+                throw runtimeError("Maximum call depth of " + maxDepth + " exceeded", callSite);
             }
-            if (!equals(leftEntry.value(), rightEntry.value())) {
-                return false;
+            if (memoCapacity > 0 && !function.isPure()) {
+                impureCall = true;
             }
-        }
-        return true;
+            Value result;
+            depth++;
+            try {
+                JitCode code = jit != null ? jit.codeFor(function) : null;
+                if (code != null) {
+                    Frame frame = new Frame(function.getFrameSize(), function.getClosureFrame());
+                    for (int i = 0; i < arguments.length; i++) {
+                        frame.set(i, arguments[i]);
+                    }
+                    result = code.run(frame, this);
+                } else {
+                    Frame previousFrame = environment.pushFunctionFrame(function.getClosureFrame(), function.getFrameSize());
+                    try {
+                        for (int i = 0; i < parameters.size(); i++) {
+                            environment.define(i, arguments[i]);
+                        }
+                        if (function.isExpressionBody()) {
+                            result = evaluate(function.getExpressionBody());
+                        } else {
+                            result = Value.VOID;
+                            for (StatementNode statement : function.getStatementBody()) {
+                                result = statement.accept(this);
+                                if (completion != Completion.NORMAL) {
+                                    result = completeCall();
+                                    break;
+                                }
+                            }
+                        }
+                    } finally {
+                        environment.restoreFrame(previousFrame);
+                    }
+                }
+            } catch (StackOverflowError error) {
+                // Building the error needs stack, so only remember where it happened
+                if (overflowSite == null) {
+                    overflowSite = callSite;
+                    overflowDepth = depth;
+                }
+                throw error;
+            } finally {
+                depth--;
+            }
+            if (completion != Completion.TAIL_CALL) {
+                return result;
+            }
+            function = tailFunction;
+            arguments = tailArguments;
+            callSite = tailCallSite;
+            completion = Completion.NORMAL;
+            tailFunction = null;
+            tailArguments = null;
+            tailCallSite = null;
+        }
+    }
+    
+    /**
+     * Takes the return value of a function body that stopped early. An exit
+     * from a loop in the caller leaves the call as a signal, so it also skips
+     * the rest of the expression the call is part of. A pending tail call is
+     * left for {@link #invokeFunction}.
+     */
+    private Value completeCall() {
+        Completion pending = completion;
+        if (pending == Completion.TAIL_CALL) {
+            return Value.VOID;
+        }
+        completion = Completion.NORMAL;
+        if (pending == Completion.BREAK) {
+            throw BreakSignal.INSTANCE;
+        }
+        if (pending == Completion.CONTINUE) {
+            throw ContinueSignal.INSTANCE;
+        }
+        Value value = returnValue;
+        returnValue = null;
+        return value;
     }
     
-    private boolean requireBoolean(Value value, AstNode context) {
-        if (value.getType() != Value.ValueType.BOOLEAN) {
-            throw runtimeError("Expected boolean value but got " + value.getType(), context);
-        }
-        return value.asBoolean();
+    private RuntimeError runtimeError(String message, AstNode node) {
+        return Operations.runtimeError(message, node);
     }
     
-    private RuntimeError runtimeError(String message, AstNode node) {
-        return new RuntimeError(message, node.getLine(), node.getColumn());
+    private enum Completion {
+        NORMAL, BREAK, CONTINUE, RETURN, TAIL_CALL
     }
     
-    private static final class BreakSignal extends RuntimeException {
+    /**
+     * Break and continue that leave a function through its call, to end or
+     * resume a loop in a caller; stackless and shared, as they carry no state.
+     */
+    static final class BreakSignal extends RuntimeException {
+        static final BreakSignal INSTANCE = new BreakSignal();
+        
         private BreakSignal() {
             super(null, null, false, false);
         }
     }
     
-    private static final class ContinueSignal extends RuntimeException {
+    static final class ContinueSignal extends RuntimeException {
+        static final ContinueSignal INSTANCE = new ContinueSignal();
+        
         private ContinueSignal() {
             super(null, null, false, false);
         }
     }
-    
-    private static final class ReturnSignal extends RuntimeException {
-        private final Value value;
-        private ReturnSignal(Value value) {
-            super(null, null, false, false);
-            this.value = value;
-        }
-    }
 }
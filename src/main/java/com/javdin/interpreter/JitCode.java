@@ -0,0 +1,25 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.AstNode;
+
+/**
+ * Base class of the hidden classes generated by the {@link JitCompiler}.
+ * One instance exists per compiled function literal and is shared by every
+ * closure created from it; closure state arrives through the frame argument.
+ */
+public abstract class JitCode {
+    /** AST nodes referenced by the compiled body: error positions, call sites and nested literals. */
+    protected final AstNode[] sites;
+    /** Prebuilt values of the literals in the compiled body. */
+    protected final Value[] constants;
+
+    protected JitCode(AstNode[] sites, Value[] constants) {
+        this.sites = sites;
+        this.constants = constants;
+    }
+
+    /**
+     * Runs the function body in {@code frame}, whose parameter slots are already bound.
+     */
+    public abstract Value run(Frame frame, Interpreter interpreter);
+}
@@ -0,0 +1,849 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.*;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.javdin.interpreter.ClassFileWriter.*;
+
+/**
+ * Just-in-time compiler for hot functions of the tree-walking interpreter.
+ *
+ * Every {@link FunctionValue} counts its calls. When a function reaches the
+ * threshold, the body of its literal is translated to a JVM class that is
+ * loaded with {@link MethodHandles.Lookup#defineHiddenClass}, so HotSpot can
+ * profile and optimize Project D code like any other Java method. Compiled
+ * code keeps the interpreter's runtime model: variables live in the same
+ * slot-addressed {@link Frame}s, dynamic operations call {@link Operations}
+ * and {@link JitRuntime}, and calls go back through the interpreter, which
+ * dispatches to compiled or interpreted callees. Compiled code is cached per
+ * function literal and shared by all closures created from it.
+ *
+ * Bodies the compiler cannot handle (or that would exceed the size HotSpot
+ * is willing to compile) are remembered and keep running in the interpreter.
+ */
+final class JitCompiler {
+    private static final String VALUE = "com/javdin/interpreter/Value";
+    private static final String VALUE_TYPE = "com/javdin/interpreter/Value$ValueType";
+    private static final String FRAME = "com/javdin/interpreter/Frame";
+    private static final String OPERATIONS = "com/javdin/interpreter/Operations";
+    private static final String BUILTINS = "com/javdin/interpreter/Builtins";
+    private static final String RUNTIME = "com/javdin/interpreter/JitRuntime";
+    private static final String JIT_CODE = "com/javdin/interpreter/JitCode";
+    private static final String INTERPRETER = "com/javdin/interpreter/Interpreter";
+    private static final String FUNCTION_VALUE = "com/javdin/interpreter/FunctionValue";
+    private static final String ARRAY_VALUE = "com/javdin/interpreter/ArrayValue";
+    private static final String TUPLE_VALUE = "com/javdin/interpreter/TupleValue";
+    private static final String BREAK_SIGNAL = "com/javdin/interpreter/Interpreter$BreakSignal";
+    private static final String CONTINUE_SIGNAL = "com/javdin/interpreter/Interpreter$ContinueSignal";
+    private static final String AST_NODE = "com/javdin/ast/AstNode";
+    private static final String REFERENCE_NODE = "com/javdin/ast/ReferenceNode";
+    private static final String FUNCTION_LITERAL_NODE = "com/javdin/ast/FunctionLiteralNode";
+    private static final String TUPLE_MEMBER_ACCESS_NODE = "com/javdin/ast/TupleMemberAccessNode";
+    private static final String INPUT_NODE = "com/javdin/ast/InputNode";
+    private static final String FUNCTION_CALL_NODE = "com/javdin/ast/FunctionCallNode";
+    private static final String LIST = "java/util/List";
+
+    private static final String V = "L" + VALUE + ";";
+    private static final String N = "L" + AST_NODE + ";";
+    private static final String BINARY = "(" + V + V + N + ")" + V;
+
+    /** HotSpot does not compile methods above this bytecode size (DontCompileHugeMethods). */
+    private static final int MAX_CODE_SIZE = 8000;
+
+    private static final int THIS = 0;
+    private static final int FRAME_ARGUMENT = 1;
+    private static final int INTERPRETER_ARGUMENT = 2;
+
+    private final int threshold;
+    private final Map<FunctionLiteralNode, JitCode> compiled = new IdentityHashMap<>();
+
+    JitCompiler(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Counts a call of {@code function} and returns its compiled code, compiling
+     * it when the function has just become hot. Returns null while the function
+     * should still be interpreted.
+     */
+    JitCode codeFor(FunctionValue function) {
+        JitCode code = function.getJitCode();
+        if (code != null || function.countCall() != threshold) {
+            return code;
+        }
+        FunctionLiteralNode literal = function.getLiteral();
+        if (!compiled.containsKey(literal)) {
+            compiled.put(literal, compile(literal));
+        }
+        code = compiled.get(literal);
+        function.setJitCode(code);
+        return code;
+    }
+
+    /**
+     * Compiles one function literal, or returns null if it has to stay interpreted.
+     */
+    JitCode compile(FunctionLiteralNode literal) {
+        try {
+            return new BodyCompiler(literal).compile();
+        } catch (Unsupported | IllegalStateException | LinkageError | ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Raised while generating code for a body that must stay interpreted.
+     */
+    private static final class Unsupported extends RuntimeException {
+        private Unsupported(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    private record LoopLabels(Label breakTarget, Label continueTarget) {
+    }
+
+    /**
+     * Generates the hidden class for one function literal. Statements are
+     * compiled with a target local: a statement whose value can become the
+     * function result stores it there, all others (target -1) discard it.
+     * Each runtime frame the body creates gets its own JVM local, so variable
+     * addresses inside the body resolve to a local load instead of a walk up
+     * the parent chain.
+     */
+    private static final class BodyCompiler implements AstVisitor<Void> {
+        private final FunctionLiteralNode literal;
+        private final ClassFileWriter writer;
+        private final ClassFileWriter.Code code;
+        private final List<AstNode> sites = new ArrayList<>();
+        private final Map<AstNode, Integer> siteIndex = new IdentityHashMap<>();
+        private final List<Value> constants = new ArrayList<>();
+        private final List<Integer> frames = new ArrayList<>();
+        private final Deque<LoopLabels> loops = new ArrayDeque<>();
+        private int target = -1;
+        private int assignTemp = -1;
+
+        private BodyCompiler(FunctionLiteralNode literal) {
+            this.literal = literal;
+            String name = "com/javdin/interpreter/JitFunction_" + literal.getLine() + "_" + literal.getColumn();
+            this.writer = new ClassFileWriter(name, JIT_CODE);
+            this.code = writer.newCode(3);
+        }
+
+        private JitCode compile() throws ReflectiveOperationException {
+            frames.add(FRAME_ARGUMENT);
+            if (literal.isExpressionBody()) {
+                expression(literal.getExpressionBody());
+            } else {
+                int result = code.newLocal();
+                code.field(GETSTATIC, VALUE, "VOID", V);
+                code.astore(result);
+                statements(literal.getStatementBody(), result);
+                code.aload(result);
+            }
+            code.op(ARETURN, -1);
+            if (code.size() > MAX_CODE_SIZE) {
+                throw new Unsupported("Function body too large");
+            }
+            writer.addMethod(ACC_PUBLIC, "run", "(L" + FRAME + ";L" + INTERPRETER + ";)" + V, code);
+            writer.addMethod(ACC_PUBLIC, "<init>", "([" + N + "[" + V + ")V", constructor());
+
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(writer.toByteArray(), true);
+            return (JitCode) lookup.lookupClass()
+                .getDeclaredConstructor(AstNode[].class, Value[].class)
+                .newInstance(sites.toArray(new AstNode[0]), constants.toArray(new Value[0]));
+        }
+
+        private ClassFileWriter.Code constructor() {
+            ClassFileWriter.Code init = writer.newCode(3);
+            init.aload(0);
+            init.aload(1);
+            init.aload(2);
+            init.invoke(INVOKESPECIAL, JIT_CODE, "<init>", "([" + N + "[" + V + ")V");
+            init.op(RETURN, 0);
+            return init;
+        }
+
+        @Override
+        public Void visitProgram(ProgramNode node) {
+            throw new Unsupported("Program is not a function body");
+        }
+
+        @Override
+        public Void visitDeclaration(DeclarationNode node) {
+            int result = target;
+            // Predeclare all variables to support mutual recursion and self references
+            for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+                code.aload(currentFrame());
+                code.iconst(definition.getSlot());
+                code.field(GETSTATIC, VALUE, "VOID", V);
+                code.invoke(INVOKEVIRTUAL, FRAME, "set", "(I" + V + ")V");
+            }
+            for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+                if (definition.getInitialValue() != null) {
+                    code.aload(currentFrame());
+                    code.iconst(definition.getSlot());
+                    expression(definition.getInitialValue());
+                    code.invoke(INVOKEVIRTUAL, FRAME, "set", "(I" + V + ")V");
+                }
+            }
+            voidResult(result);
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(AssignmentNode node) {
+            int result = target;
+            if (assignTemp < 0) {
+                assignTemp = code.newLocal();
+            }
+            expression(node.getValue());
+            code.astore(assignTemp);
+            ExpressionNode assignee = node.getTarget();
+            if (assignee instanceof ReferenceNode reference && reference.isResolved()) {
+                loadFrame(reference.getDepth());
+                code.iconst(reference.getSlot());
+                code.aload(assignTemp);
+                site(reference, REFERENCE_NODE);
+                code.invoke(INVOKESTATIC, RUNTIME, "assign", "(L" + FRAME + ";I" + V + "L" + REFERENCE_NODE + ";)V");
+            } else if (assignee instanceof ReferenceNode reference) {
+                fail("Undefined variable: " + reference.getName(), reference);
+                code.op(POP, -1);
+            } else if (assignee instanceof ArrayAccessNode arrayAccess) {
+                arrayOperand(arrayAccess);
+                expression(arrayAccess.getIndex());
+                code.invoke(INVOKEVIRTUAL, VALUE, "asInteger", "()I");
+                code.aload(assignTemp);
+                code.invoke(INVOKEVIRTUAL, ARRAY_VALUE, "set", "(I" + V + ")V");
+            } else if (assignee instanceof TupleMemberAccessNode tupleAccess) {
+                tupleOperand(tupleAccess);
+                if (tupleAccess.isNumericIndex()) {
+                    code.iconst(tupleAccess.getIndex());
+                    code.aload(assignTemp);
+                    code.invoke(INVOKEVIRTUAL, TUPLE_VALUE, "setByIndex", "(I" + V + ")V");
+                } else {
+                    code.aload(assignTemp);
+                    site(tupleAccess, TUPLE_MEMBER_ACCESS_NODE);
+                    code.invoke(INVOKESTATIC, RUNTIME, "setMember",
+                        "(L" + TUPLE_VALUE + ";" + V + "L" + TUPLE_MEMBER_ACCESS_NODE + ";)V");
+                }
+            } else {
+                fail("Invalid assignment target", assignee);
+                code.op(POP, -1);
+            }
+            if (result >= 0) {
+                code.aload(assignTemp);
+                code.astore(result);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIf(IfNode node) {
+            int result = target;
+            Label elseBranch = new Label();
+            Label end = new Label();
+            expression(node.getCondition());
+            code.invoke(INVOKEVIRTUAL, VALUE, "isTruthy", "()Z");
+            code.jump(IFEQ, elseBranch);
+            statement(node.getThenStatement(), result);
+            code.jump(GOTO, end);
+            code.mark(elseBranch);
+            if (node.getElseStatement() != null) {
+                statement(node.getElseStatement(), result);
+            } else {
+                voidResult(result);
+            }
+            code.mark(end);
+            return null;
+        }
+
+        @Override
+        public Void visitWhile(WhileNode node) {
+            int result = target;
+            int last = beginLoopValue(result);
+            Label head = new Label();
+            Label end = new Label();
+            code.mark(head);
+            expression(node.getCondition());
+            code.invoke(INVOKEVIRTUAL, VALUE, "isTruthy", "()Z");
+            code.jump(IFEQ, end);
+            loopBody(node.getBody(), last, head, head, end);
+            code.mark(end);
+            endLoopValue(last, result);
+            return null;
+        }
+
+        @Override
+        public Void visitFor(ForNode node) {
+            if (node.isInfiniteLoop()) {
+                compileInfiniteLoop(node);
+            } else if (node.isRangeLoop()) {
+                compileRangeLoop(node);
+            } else if (node.isIterableLoop()) {
+                compileIterableLoop(node);
+            } else {
+                throw new Unsupported("Unsupported for-loop form");
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitReturn(ReturnNode node) {
+            if (node.getValue() != null) {
+                expression(node.getValue());
+            } else {
+                code.field(GETSTATIC, VALUE, "VOID", V);
+            }
+            code.op(ARETURN, -1);
+            return null;
+        }
+
+        @Override
+        public Void visitBreak(BreakNode node) {
+            if (loops.isEmpty()) {
+                // exit in a function defined inside a loop ends the caller's loop
+                code.invoke(INVOKESTATIC, RUNTIME, "throwBreak", "()V");
+            } else {
+                code.jump(GOTO, loops.peek().breakTarget());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitContinue(ContinueNode node) {
+            if (loops.isEmpty()) {
+                code.invoke(INVOKESTATIC, RUNTIME, "throwContinue", "()V");
+            } else {
+                code.jump(GOTO, loops.peek().continueTarget());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(BlockNode node) {
+            int result = target;
+            if (node.getFrameSize() == 0) {
+                statements(node.getStatements(), result);
+                return null;
+            }
+            pushFrame(node.getFrameSize());
+            statements(node.getStatements(), result);
+            frames.remove(frames.size() - 1);
+            return null;
+        }
+
+        @Override
+        public Void visitExpressionStatement(ExpressionStatementNode node) {
+            int result = target;
+            expression(node.getExpression());
+            storeResult(result);
+            return null;
+        }
+
+        @Override
+        public Void visitPrint(PrintNode node) {
+            int result = target;
+            code.aload(INTERPRETER_ARGUMENT);
+            valueArray(node.getExpressions());
+            code.invoke(INVOKEVIRTUAL, INTERPRETER, "print", "([" + V + ")V");
+            voidResult(result);
+            return null;
+        }
+
+        @Override
+        public Void visitInput(InputNode node) {
+            code.aload(INTERPRETER_ARGUMENT);
+            site(node, INPUT_NODE);
+            code.invoke(INVOKEVIRTUAL, INTERPRETER, "read", "(L" + INPUT_NODE + ";)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitLiteral(LiteralNode node) {
+            Value value = Operations.literal(node);
+            if (value == Value.VOID) {
+                code.field(GETSTATIC, VALUE, "VOID", V);
+                return null;
+            }
+            constants.add(value);
+            code.aload(THIS);
+            code.field(GETFIELD, JIT_CODE, "constants", "[" + V);
+            code.iconst(constants.size() - 1);
+            code.op(AALOAD, -1);
+            return null;
+        }
+
+        @Override
+        public Void visitReference(ReferenceNode node) {
+            if (!node.isResolved()) {
+                fail("Undefined variable: " + node.getName(), node);
+                return null;
+            }
+            loadFrame(node.getDepth());
+            code.iconst(node.getSlot());
+            code.invoke(INVOKEVIRTUAL, FRAME, "get", "(I)" + V);
+            site(node, REFERENCE_NODE);
+            code.invoke(INVOKESTATIC, RUNTIME, "defined", "(" + V + "L" + REFERENCE_NODE + ";)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitBinaryOp(BinaryOpNode node) {
+            expression(node.getLeft());
+            expression(node.getRight());
+            switch (node.getOp()) {
+                case ADD -> binary(OPERATIONS, "add", node);
+                case SUBTRACT -> binary(OPERATIONS, "subtract", node);
+                case MULTIPLY -> binary(OPERATIONS, "multiply", node);
+                case DIVIDE -> binary(OPERATIONS, "divide", node);
+                case LESS -> binary(OPERATIONS, "lessThan", node);
+                case LESS_EQUAL -> binary(OPERATIONS, "lessEqual", node);
+                case GREATER -> binary(OPERATIONS, "greaterThan", node);
+                case GREATER_EQUAL -> binary(OPERATIONS, "greaterEqual", node);
+                case EQUAL -> code.invoke(INVOKESTATIC, RUNTIME, "equal", "(" + V + V + ")" + V);
+                case NOT_EQUAL -> code.invoke(INVOKESTATIC, RUNTIME, "notEqual", "(" + V + V + ")" + V);
+                case AND -> binary(RUNTIME, "and", node);
+                case OR -> binary(RUNTIME, "or", node);
+                case XOR -> binary(RUNTIME, "xor", node);
+                default -> {
+                    code.op(POP, -1);
+                    code.op(POP, -1);
+                    fail("Unsupported operator '" + node.getOperator() + "'", node);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitUnaryOp(UnaryOpNode node) {
+            expression(node.getOperand());
+            switch (node.getOp()) {
+                case PLUS -> unary(OPERATIONS, "unaryPlus", node);
+                case NEGATE -> unary(OPERATIONS, "negate", node);
+                case NOT -> unary(RUNTIME, "not", node);
+                default -> {
+                    code.op(POP, -1);
+                    fail("Unsupported unary operator '" + node.getOperator() + "'", node);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionCall(FunctionCallNode node) {
+            if (node.getBuiltin() != null) {
+                site(node, FUNCTION_CALL_NODE);
+                valueArray(node.getArguments());
+                code.invoke(INVOKESTATIC, BUILTINS, "call", "(L" + FUNCTION_CALL_NODE + ";[" + V + ")" + V);
+                return null;
+            }
+            code.aload(INTERPRETER_ARGUMENT);
+            expression(node.getFunction());
+            site(node.getFunction());
+            code.invoke(INVOKESTATIC, OPERATIONS, "requireFunction", "(" + V + N + ")L" + FUNCTION_VALUE + ";");
+            valueArray(node.getArguments());
+            site(node);
+            // A tail call is left pending and made by the interpreter once this body has returned
+            String method = node.isTailCall() ? "tailCall" : "call";
+            code.invoke(INVOKEVIRTUAL, INTERPRETER, method, "(L" + FUNCTION_VALUE + ";[" + V + N + ")" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayAccess(ArrayAccessNode node) {
+            arrayOperand(node);
+            expression(node.getIndex());
+            code.invoke(INVOKEVIRTUAL, VALUE, "asInteger", "()I");
+            code.invoke(INVOKEVIRTUAL, ARRAY_VALUE, "get", "(I)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitFunctionLiteral(FunctionLiteralNode node) {
+            code.type(NEW, FUNCTION_VALUE);
+            code.op(DUP, 1);
+            site(node, FUNCTION_LITERAL_NODE);
+            code.aload(currentFrame());
+            code.invoke(INVOKESPECIAL, FUNCTION_VALUE, "<init>", "(L" + FUNCTION_LITERAL_NODE + ";L" + FRAME + ";)V");
+            code.invoke(INVOKESTATIC, VALUE, "function", "(L" + FUNCTION_VALUE + ";)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayLiteral(ArrayLiteralNode node) {
+            valueArray(node.getElements());
+            code.invoke(INVOKESTATIC, RUNTIME, "array", "([" + V + ")" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitTupleLiteral(TupleLiteralNode node) {
+            code.type(NEW, TUPLE_VALUE);
+            code.op(DUP, 1);
+            code.invoke(INVOKESPECIAL, TUPLE_VALUE, "<init>", "()V");
+            for (TupleLiteralNode.TupleElement element : node.getElements()) {
+                code.op(DUP, 1);
+                if (element.getName() != null) {
+                    code.sconst(element.getName());
+                } else {
+                    code.op(ACONST_NULL, 1);
+                }
+                if (element.getValue() != null) {
+                    expression(element.getValue());
+                } else {
+                    code.field(GETSTATIC, VALUE, "VOID", V);
+                }
+                code.invoke(INVOKEVIRTUAL, TUPLE_VALUE, "append", "(Ljava/lang/String;" + V + ")V");
+            }
+            code.invoke(INVOKESTATIC, VALUE, "tuple", "(L" + TUPLE_VALUE + ";)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitTypeCheck(TypeCheckNode node) {
+            expression(node.getExpression());
+            Value.ValueType type;
+            try {
+                type = Operations.typeForIndicator(node.getTypeIndicator(), node);
+            } catch (RuntimeError error) {
+                code.op(POP, -1);
+                fail(error.getMessage(), node);
+                return null;
+            }
+            code.field(GETSTATIC, VALUE_TYPE, type.name(), "L" + VALUE_TYPE + ";");
+            code.invoke(INVOKESTATIC, RUNTIME, "typeCheck", "(" + V + "L" + VALUE_TYPE + ";)" + V);
+            return null;
+        }
+
+        @Override
+        public Void visitTupleMemberAccess(TupleMemberAccessNode node) {
+            tupleOperand(node);
+            if (node.isNumericIndex()) {
+                code.iconst(node.getIndex());
+                code.invoke(INVOKEVIRTUAL, TUPLE_VALUE, "getByIndex", "(I)" + V);
+            } else {
+                site(node, TUPLE_MEMBER_ACCESS_NODE);
+                code.invoke(INVOKESTATIC, RUNTIME, "getMember",
+                    "(L" + TUPLE_VALUE + ";L" + TUPLE_MEMBER_ACCESS_NODE + ";)" + V);
+            }
+            return null;
+        }
+
+        private void compileInfiniteLoop(ForNode node) {
+            int result = target;
+            int last = beginLoopValue(result);
+            Label head = new Label();
+            Label end = new Label();
+            code.mark(head);
+            loopBody(node.getBody(), last, head, head, end);
+            code.mark(end);
+            endLoopValue(last, result);
+        }
+
+        private void compileRangeLoop(ForNode node) {
+            int result = target;
+            int last = beginLoopValue(result);
+            int current = code.newLocal();
+            int limit = code.newLocal();
+            int step = code.newLocal();
+            Label ascending = new Label();
+            Label test = new Label();
+            Label descending = new Label();
+            Label body = new Label();
+            Label advance = new Label();
+            Label end = new Label();
+
+            expression(node.getIterable());
+            code.invoke(INVOKEVIRTUAL, VALUE, "asInteger", "()I");
+            code.istore(current);
+            expression(node.getRangeEnd());
+            code.invoke(INVOKEVIRTUAL, VALUE, "asInteger", "()I");
+            code.istore(limit);
+            code.iconst(1);
+            code.istore(step);
+            code.iload(current);
+            code.iload(limit);
+            code.jump(IF_ICMPLE, ascending);
+            code.iconst(-1);
+            code.istore(step);
+            code.mark(ascending);
+
+            code.mark(test);
+            code.iload(step);
+            code.jump(IFLE, descending);
+            code.iload(current);
+            code.iload(limit);
+            code.jump(IF_ICMPGT, end);
+            code.jump(GOTO, body);
+            code.mark(descending);
+            code.iload(current);
+            code.iload(limit);
+            code.jump(IF_ICMPLT, end);
+            code.mark(body);
+
+            boolean bound = node.getVariable() != null;
+            if (bound) {
+                pushFrame(1);
+                code.aload(currentFrame());
+                code.iconst(node.getVariableSlot());
+                code.iload(current);
+                code.invoke(INVOKESTATIC, VALUE, "integer", "(I)" + V);
+                code.invoke(INVOKEVIRTUAL, FRAME, "set", "(I" + V + ")V");
+            }
+            loopBody(node.getBody(), last, advance, advance, end);
+            if (bound) {
+                frames.remove(frames.size() - 1);
+            }
+            code.mark(advance);
+            code.iload(current);
+            code.iload(step);
+            code.op(IADD, -1);
+            code.istore(current);
+            code.jump(GOTO, test);
+            code.mark(end);
+            endLoopValue(last, result);
+        }
+
+        private void compileIterableLoop(ForNode node) {
+            int result = target;
+            int last = beginLoopValue(result);
+            int elements = code.newLocal();
+            int index = code.newLocal();
+            Label test = new Label();
+            Label end = new Label();
+
+            expression(node.getIterable());
+            site(node.getIterable());
+            code.invoke(INVOKESTATIC, RUNTIME, "loopElements", "(" + V + N + ")L" + LIST + ";");
+            code.astore(elements);
+            code.iconst(0);
+            code.istore(index);
+
+            code.mark(test);
+            code.iload(index);
+            code.aload(elements);
+            code.invoke(INVOKEINTERFACE, LIST, "size", "()I");
+            code.jump(IF_ICMPGE, end);
+
+            boolean bound = node.getVariable() != null;
+            if (bound) {
+                pushFrame(1);
+                code.aload(currentFrame());
+                code.iconst(node.getVariableSlot());
+                code.aload(elements);
+                code.iload(index);
+                code.invoke(INVOKESTATIC, RUNTIME, "loopElement", "(L" + LIST + ";I)" + V);
+                code.invoke(INVOKEVIRTUAL, FRAME, "set", "(I" + V + ")V");
+            }
+            Label advance = new Label();
+            Label skipped = new Label();
+            loopBody(node.getBody(), last, advance, skipped, end);
+            if (bound) {
+                frames.remove(frames.size() - 1);
+            }
+            code.mark(end);
+            endLoopValue(last, result);
+
+            // Out of line: continue resets the loop value, then both paths advance
+            Label resume = new Label();
+            code.jump(GOTO, resume);
+            code.mark(skipped);
+            voidResult(last);
+            code.mark(advance);
+            code.iload(index);
+            code.iconst(1);
+            code.op(IADD, -1);
+            code.istore(index);
+            code.jump(GOTO, test);
+            code.mark(resume);
+        }
+
+        /**
+         * Compiles a loop body followed by a jump to {@code next}. Break and
+         * continue signals raised by calls inside the body are caught and
+         * routed like a direct {@code exit}/continue.
+         */
+        private void loopBody(StatementNode body, int last, Label next, Label continueTarget, Label end) {
+            Label start = new Label();
+            Label finish = new Label();
+            code.mark(start);
+            int bodyStart = code.size();
+            loops.push(new LoopLabels(end, continueTarget));
+            statement(body, last);
+            loops.pop();
+            boolean empty = code.size() == bodyStart;
+            code.mark(finish);
+            code.jump(GOTO, next);
+            if (empty) {
+                return;
+            }
+            Label onContinue = new Label();
+            Label onBreak = new Label();
+            code.markHandler(onContinue);
+            code.op(POP, -1);
+            code.jump(GOTO, continueTarget);
+            code.markHandler(onBreak);
+            code.op(POP, -1);
+            code.jump(GOTO, end);
+            code.handler(start, finish, onContinue, CONTINUE_SIGNAL);
+            code.handler(start, finish, onBreak, BREAK_SIGNAL);
+        }
+
+        private int beginLoopValue(int result) {
+            if (result < 0) {
+                return -1;
+            }
+            int last = code.newLocal();
+            voidResult(last);
+            return last;
+        }
+
+        private void endLoopValue(int last, int result) {
+            if (last >= 0) {
+                code.aload(last);
+                code.astore(result);
+            }
+        }
+
+        private void statements(List<StatementNode> statements, int result) {
+            if (statements.isEmpty()) {
+                voidResult(result);
+                return;
+            }
+            for (int i = 0; i < statements.size(); i++) {
+                statement(statements.get(i), i == statements.size() - 1 ? result : -1);
+            }
+        }
+
+        private void statement(StatementNode statement, int result) {
+            target = result;
+            statement.accept(this);
+            target = -1;
+        }
+
+        private void expression(ExpressionNode expression) {
+            expression.accept(this);
+        }
+
+        private void storeResult(int result) {
+            if (result >= 0) {
+                code.astore(result);
+            } else {
+                code.op(POP, -1);
+            }
+        }
+
+        private void voidResult(int result) {
+            if (result >= 0) {
+                code.field(GETSTATIC, VALUE, "VOID", V);
+                code.astore(result);
+            }
+        }
+
+        private void binary(String owner, String name, AstNode node) {
+            site(node);
+            code.invoke(INVOKESTATIC, owner, name, BINARY);
+        }
+
+        private void unary(String owner, String name, AstNode node) {
+            site(node);
+            code.invoke(INVOKESTATIC, owner, name, "(" + V + N + ")" + V);
+        }
+
+        private void arrayOperand(ArrayAccessNode node) {
+            expression(node.getArray());
+            site(node.getArray());
+            code.invoke(INVOKESTATIC, OPERATIONS, "requireArray", "(" + V + N + ")L" + ARRAY_VALUE + ";");
+        }
+
+        private void tupleOperand(TupleMemberAccessNode node) {
+            expression(node.getTuple());
+            site(node.getTuple());
+            code.invoke(INVOKESTATIC, OPERATIONS, "requireTuple", "(" + V + N + ")L" + TUPLE_VALUE + ";");
+        }
+
+        /**
+         * Pushes a new Value[] holding the values of {@code expressions}, evaluated in order.
+         */
+        private void valueArray(List<ExpressionNode> expressions) {
+            code.iconst(expressions.size());
+            code.type(ANEWARRAY, VALUE);
+            for (int i = 0; i < expressions.size(); i++) {
+                code.op(DUP, 1);
+                code.iconst(i);
+                expression(expressions.get(i));
+                code.op(AASTORE, -3);
+            }
+        }
+
+        /**
+         * Pushes the result of a runtime error helper; it never returns normally.
+         */
+        private void fail(String message, AstNode node) {
+            code.sconst(message);
+            site(node);
+            code.invoke(INVOKESTATIC, RUNTIME, "fail", "(Ljava/lang/String;" + N + ")" + V);
+        }
+
+        private void site(AstNode node) {
+            Integer index = siteIndex.get(node);
+            if (index == null) {
+                index = sites.size();
+                sites.add(node);
+                siteIndex.put(node, index);
+            }
+            code.aload(THIS);
+            code.field(GETFIELD, JIT_CODE, "sites", "[" + N);
+            code.iconst(index);
+            code.op(AALOAD, -1);
+        }
+
+        private void site(AstNode node, String type) {
+            site(node);
+            code.type(CHECKCAST, type);
+        }
+
+        private int currentFrame() {
+            return frames.get(frames.size() - 1);
+        }
+
+        private void pushFrame(int size) {
+            int local = code.newLocal();
+            code.type(NEW, FRAME);
+            code.op(DUP, 1);
+            code.iconst(size);
+            code.aload(currentFrame());
+            code.invoke(INVOKESPECIAL, FRAME, "<init>", "(IL" + FRAME + ";)V");
+            code.astore(local);
+            frames.add(local);
+        }
+
+        /**
+         * Pushes the frame {@code depth} levels above the current one. Frames
+         * created inside this body are JVM locals; the walk only starts at the
+         * function frame's closure.
+         */
+        private void loadFrame(int depth) {
+            int current = frames.size() - 1;
+            if (depth <= current) {
+                code.aload(frames.get(current - depth));
+                return;
+            }
+            code.aload(frames.get(0));
+            code.invoke(INVOKEVIRTUAL, FRAME, "getParent", "()L" + FRAME + ";");
+            int remaining = depth - current - 1;
+            if (remaining > 0) {
+                code.iconst(remaining);
+                code.invoke(INVOKEVIRTUAL, FRAME, "ancestor", "(I)L" + FRAME + ";");
+            }
+        }
+    }
+}
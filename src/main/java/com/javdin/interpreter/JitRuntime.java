@@ -0,0 +1,107 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.AstNode;
+import com.javdin.ast.ReferenceNode;
+import com.javdin.ast.TupleMemberAccessNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runtime helpers called from JIT-compiled code for operations that have no
+ * direct counterpart in {@link Operations}. Each one reproduces the
+ * interpreter's behaviour for the corresponding AST node, including the order
+ * in which type errors are reported. Helpers that only raise an error are
+ * declared with the result type of the expression they replace, so generated
+ * code keeps a consistent operand stack.
+ */
+final class JitRuntime {
+
+    private JitRuntime() {
+    }
+
+    static Value defined(Value value, ReferenceNode reference) {
+        if (value == null) {
+            throw Operations.runtimeError("Undefined variable: " + reference.getName(), reference);
+        }
+        return value;
+    }
+
+    static void assign(Frame frame, int slot, Value value, ReferenceNode reference) {
+        if (frame.get(slot) == null) {
+            throw Operations.runtimeError("Undefined variable: " + reference.getName(), reference);
+        }
+        frame.set(slot, value);
+    }
+
+    static Value fail(String message, AstNode node) {
+        throw Operations.runtimeError(message, node);
+    }
+
+    static Value equal(Value left, Value right) {
+        return Value.bool(Operations.valuesEqual(left, right));
+    }
+
+    static Value notEqual(Value left, Value right) {
+        return Value.bool(!Operations.valuesEqual(left, right));
+    }
+
+    static Value and(Value left, Value right, AstNode node) {
+        return Value.bool(Operations.requireBoolean(left, node) && Operations.requireBoolean(right, node));
+    }
+
+    static Value or(Value left, Value right, AstNode node) {
+        return Value.bool(Operations.requireBoolean(left, node) || Operations.requireBoolean(right, node));
+    }
+
+    static Value xor(Value left, Value right, AstNode node) {
+        return Value.bool(Operations.requireBoolean(left, node) ^ Operations.requireBoolean(right, node));
+    }
+
+    static Value not(Value operand, AstNode node) {
+        return Value.bool(!Operations.requireBoolean(operand, node));
+    }
+
+    static Value typeCheck(Value value, Value.ValueType type) {
+        return Value.bool(value.getType() == type);
+    }
+
+    static Value getMember(TupleValue tuple, TupleMemberAccessNode node) {
+        return Interpreter.memberCache(node).get(tuple);
+    }
+
+    static void setMember(TupleValue tuple, Value value, TupleMemberAccessNode node) {
+        Interpreter.memberCache(node).set(tuple, value);
+    }
+
+    static Value array(Value[] elements) {
+        return Value.array(new ArrayValue(Arrays.asList(elements)));
+    }
+
+    /**
+     * Returns the live element list of an array, or the value list of a tuple,
+     * exactly as the interpreter's iterable for-loop sees them.
+     */
+    static List<Value> loopElements(Value iterable, AstNode node) {
+        if (iterable.getType() == Value.ValueType.ARRAY) {
+            return iterable.asArray().snapshot();
+        }
+        if (iterable.getType() == Value.ValueType.TUPLE) {
+            return iterable.asTuple().values();
+        }
+        throw Operations.runtimeError("For-loop expects array or tuple iterable", node);
+    }
+
+    static Value loopElement(List<Value> elements, int index) {
+        Value element = elements.get(index);
+        return element != null ? element : Value.VOID;
+    }
+
+    static void throwBreak() {
+        throw Interpreter.BreakSignal.INSTANCE;
+    }
+
+    static void throwContinue() {
+        throw Interpreter.ContinueSignal.INSTANCE;
+    }
+}
@@ -0,0 +1,196 @@
+package com.javdin.interpreter;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The lines or fixed-size records of a file mapped into memory, read as
+ * strings one at a time. Nothing is copied to the heap until an element is
+ * read, and then only that element's bytes, so a file much larger than the
+ * heap can be iterated; the operating system pages the mapping in and out.
+ *
+ * Lines are found on demand. Opening a file counts them and remembers
+ * where every {@value #CHECKPOINT_INTERVAL}th one starts; reading a line
+ * then scans forward from the last line read or the nearest such
+ * checkpoint, so reading the lines in order takes one pass.
+ */
+final class MappedFile {
+    // Files are mapped in windows of this size, the most one buffer can hold
+    private static final int WINDOW_BITS = 30;
+    private static final long WINDOW_SIZE = 1L << WINDOW_BITS;
+    private static final int CHECKPOINT_BITS = 10;
+    private static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_BITS;
+    // A newline in every byte, and the constants that find a zero byte in a word
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final MappedByteBuffer[] windows;
+    private final long length;
+    // Bytes per record, or zero for lines
+    private final int recordSize;
+    private final int size;
+    // Offset of every CHECKPOINT_INTERVAL-th line
+    private final long[] checkpoints;
+    private final Charset charset = Charset.defaultCharset();
+    // Start of the line after the last one read
+    private int cursor;
+    private long cursorOffset;
+    private byte[] scratch = new byte[256];
+
+    private MappedFile(MappedByteBuffer[] windows, long length, int recordSize) {
+        this.windows = windows;
+        this.length = length;
+        this.recordSize = recordSize;
+        if (recordSize > 0) {
+            long records = (length + recordSize - 1) / recordSize;
+            this.size = checkedSize(records, "records");
+            this.checkpoints = null;
+        } else {
+            long[] starts = new long[16];
+            long lines = 0;
+            long offset = 0;
+            while (offset < length) {
+                if ((lines & (CHECKPOINT_INTERVAL - 1)) == 0) {
+                    int checkpoint = (int) (lines >>> CHECKPOINT_BITS);
+                    if (checkpoint == starts.length) {
+                        starts = Arrays.copyOf(starts, checkpoint * 2);
+                    }
+                    starts[checkpoint] = offset;
+                }
+                offset = lineEnd(offset) + 1;
+                lines++;
+            }
+            this.size = checkedSize(lines, "lines");
+            this.checkpoints = starts;
+        }
+    }
+
+    /**
+     * Maps the lines of the file at {@code path}. A final line need not end
+     * with a newline, and a carriage return before one is dropped.
+     */
+    static MappedFile lines(Path path) throws IOException {
+        return map(path, 0);
+    }
+
+    /**
+     * Maps the file at {@code path} as records of {@code recordSize} bytes;
+     * the last one is shorter if the file size is not a multiple of it.
+     */
+    static MappedFile records(Path path, int recordSize) throws IOException {
+        return map(path, recordSize);
+    }
+
+    private static MappedFile map(Path path, int recordSize) throws IOException {
+        // The mappings stay valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((length + WINDOW_SIZE - 1) >>> WINDOW_BITS)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i << WINDOW_BITS;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, length - start));
+                windows[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new MappedFile(windows, length, recordSize);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The element at 0-based {@code slot}, which must be below {@link #size()}.
+     */
+    Value get(int slot) {
+        if (recordSize > 0) {
+            long start = (long) slot * recordSize;
+            return text(start, Math.min(start + recordSize, length));
+        }
+        int line = slot & -CHECKPOINT_INTERVAL;
+        long start = checkpoints[slot >>> CHECKPOINT_BITS];
+        if (cursor > line && cursor <= slot) {
+            line = cursor;
+            start = cursorOffset;
+        }
+        for (; line < slot; line++) {
+            start = lineEnd(start) + 1;
+        }
+        long end = lineEnd(start);
+        cursor = slot + 1;
+        cursorOffset = end + 1;
+        if (end > start && byteAt(end - 1) == '\r') {
+            end--;
+        }
+        return text(start, end);
+    }
+
+    /**
+     * Offset of the first newline at or after {@code from}, or the file
+     * length if there is none. Whole words are tested for a newline byte
+     * at a time.
+     */
+    private long lineEnd(long from) {
+        long offset = from;
+        while (offset < length) {
+            MappedByteBuffer window = windows[(int) (offset >>> WINDOW_BITS)];
+            long base = offset & -WINDOW_SIZE;
+            int index = (int) (offset - base);
+            int limit = window.limit();
+            while (index + Long.BYTES <= limit) {
+                long word = window.getLong(index) ^ NEWLINES;
+                long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+                if (found != 0) {
+                    // The lowest flagged byte is always a real match, and the first in memory
+                    return base + index + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+                index += Long.BYTES;
+            }
+            for (; index < limit; index++) {
+                if (window.get(index) == '\n') {
+                    return base + index;
+                }
+            }
+            offset = base + limit;
+        }
+        return length;
+    }
+
+    private byte byteAt(long offset) {
+        return windows[(int) (offset >>> WINDOW_BITS)].get((int) (offset & (WINDOW_SIZE - 1)));
+    }
+
+    /**
+     * Decodes the bytes in {@code [start, end)}.
+     */
+    private Value text(long start, long end) {
+        int count = checkedSize(end - start, "bytes on one line");
+        if (count > scratch.length) {
+            scratch = new byte[Math.max(count, scratch.length * 2)];
+        }
+        int copied = 0;
+        while (copied < count) {
+            long offset = start + copied;
+            MappedByteBuffer window = windows[(int) (offset >>> WINDOW_BITS)];
+            int index = (int) (offset & (WINDOW_SIZE - 1));
+            int chunk = Math.min(count - copied, window.limit() - index);
+            window.get(index, scratch, copied, chunk);
+            copied += chunk;
+        }
+        return Value.string(new String(scratch, 0, count, charset));
+    }
+
+    private static int checkedSize(long count, String what) {
+        if (count > Integer.MAX_VALUE) {
+            throw new RuntimeError("File has too many " + what + ": " + count);
+        }
+        return (int) count;
+    }
+}
@@ -0,0 +1,53 @@
+package com.javdin.interpreter;
+
+/**
+ * Polymorphic inline cache for one tuple member access by name.
+ * Remembers the slot of the member for each of the first few tuple shapes
+ * seen at the site, so a site that keeps seeing tuples of the same shapes
+ * resolves the member with a reference comparison instead of a name lookup.
+ */
+public final class MemberCache {
+    private static final int MAX_SHAPES = 4;
+
+    private final String name;
+    private final TupleShape[] shapes = new TupleShape[MAX_SHAPES];
+    private final int[] slots = new int[MAX_SHAPES];
+    private int count;
+
+    public MemberCache(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Value get(TupleValue tuple) {
+        return tuple.valueAt(slot(tuple));
+    }
+
+    public void set(TupleValue tuple, Value value) {
+        tuple.setValueAt(slot(tuple), value);
+    }
+
+    private int slot(TupleValue tuple) {
+        TupleShape shape = tuple.getShape();
+        for (int i = 0; i < count; i++) {
+            if (shapes[i] == shape) {
+                return slots[i];
+            }
+        }
+        int slot = tuple.indexOf(name);
+        if (count < MAX_SHAPES) {
+            shapes[count] = shape;
+            slots[count] = slot;
+            count++;
+        }
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
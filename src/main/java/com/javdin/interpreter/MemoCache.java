@@ -0,0 +1,121 @@
+package com.javdin.interpreter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Results of one pure closure, keyed by its arguments and evicted least
+ * recently used first. Only calls whose arguments and result are immutable
+ * (numbers, booleans, strings and void) are remembered: arrays and tuples
+ * can change after the call, and a remembered array would be shared by
+ * every caller.
+ */
+final class MemoCache {
+    private final LinkedHashMap<Key, Value> results;
+
+    MemoCache(int capacity) {
+        this.results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Value> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * The key for a call with these arguments, or null if one of them is not
+     * immutable and the call cannot be memoized.
+     */
+    static Key key(Value[] arguments) {
+        for (Value argument : arguments) {
+            if (!isImmutable(argument)) {
+                return null;
+            }
+        }
+        return new Key(arguments);
+    }
+
+    static boolean isImmutable(Value value) {
+        return switch (value.getType()) {
+            case INTEGER, REAL, BOOLEAN, STRING, VOID -> true;
+            default -> false;
+        };
+    }
+
+    Value get(Key key) {
+        return results.get(key);
+    }
+
+    void put(Key key, Value result) {
+        results.put(key, result);
+    }
+
+    int size() {
+        return results.size();
+    }
+
+    /**
+     * Arguments compared by type and value, so that 1 and 1.0 stay distinct.
+     */
+    static final class Key {
+        private final Value[] arguments;
+        private final int hash;
+
+        private Key(Value[] arguments) {
+            this.arguments = arguments.clone();
+            int hash = 1;
+            for (Value argument : this.arguments) {
+                hash = 31 * hash + hashOf(argument);
+            }
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key key) || key.hash != hash || key.arguments.length != arguments.length) {
+                return false;
+            }
+            for (int i = 0; i < arguments.length; i++) {
+                if (!sameValue(arguments[i], key.arguments[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(arguments);
+        }
+
+        private static int hashOf(Value value) {
+            int type = value.getType().ordinal();
+            return switch (value.getType()) {
+                case INTEGER -> 31 * type + Integer.hashCode(value.asInteger());
+                case REAL -> 31 * type + Double.hashCode(value.asReal());
+                case BOOLEAN -> 31 * type + Boolean.hashCode(value.asBoolean());
+                case STRING -> 31 * type + value.asString().hashCode();
+                default -> type;
+            };
+        }
+
+        private static boolean sameValue(Value left, Value right) {
+            if (left.getType() != right.getType()) {
+                return false;
+            }
+            return switch (left.getType()) {
+                case INTEGER -> left.asInteger() == right.asInteger();
+                case REAL -> Double.compare(left.asReal(), right.asReal()) == 0;
+                case BOOLEAN -> left.asBoolean() == right.asBoolean();
+                case STRING -> left.asString().equals(right.asString());
+                default -> true;
+            };
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.AstNode;
+import com.javdin.ast.InputNode;
+import com.javdin.ast.LiteralNode;
+import com.javdin.ast.Operator;
+
+import java.util.List;
+
+/**
+ * Dynamically typed Project D operations shared by every execution engine.
+ * Each helper validates operand types and reports failures as a
+ * {@link RuntimeError} positioned at the given AST node.
+ */
+public final class Operations {
+
+    private Operations() {
+    }
+
+    public static Value add(Value left, Value right, AstNode node) {
+        if (left.isNumeric() && right.isNumeric()) {
+            if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
+                return Value.real(left.asReal() + right.asReal());
+            }
+            return Value.integer(left.asInteger() + right.asInteger());
+        }
+        if (left.getType() == Value.ValueType.STRING && right.getType() == Value.ValueType.STRING) {
+            return Value.concat(left, right);
+        }
+        if (left.getType() == Value.ValueType.ARRAY && right.getType() == Value.ValueType.ARRAY) {
+            return Value.array(left.asArray().concat(right.asArray()));
+        }
+        if (left.getType() == Value.ValueType.TUPLE && right.getType() == Value.ValueType.TUPLE) {
+            return Value.tuple(left.asTuple().concat(right.asTuple()));
+        }
+        throw runtimeError("Unsupported operand types for '+': " + left.getType() + " and " + right.getType(), node);
+    }
+
+    public static Value subtract(Value left, Value right, AstNode node) {
+        if (!left.isNumeric() || !right.isNumeric()) {
+            throw runtimeError("'-' expects numeric operands", node);
+        }
+        if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
+            return Value.real(left.asReal() - right.asReal());
+        }
+        return Value.integer(left.asInteger() - right.asInteger());
+    }
+
+    public static Value multiply(Value left, Value right, AstNode node) {
+        if (!left.isNumeric() || !right.isNumeric()) {
+            throw runtimeError("'*' expects numeric operands", node);
+        }
+        if (left.getType() == Value.ValueType.REAL || right.getType() == Value.ValueType.REAL) {
+            return Value.real(left.asReal() * right.asReal());
+        }
+        return Value.integer(left.asInteger() * right.asInteger());
+    }
+
+    public static Value divide(Value left, Value right, AstNode node) {
+        if (!left.isNumeric() || !right.isNumeric()) {
+            throw runtimeError("'/' expects numeric operands", node);
+        }
+        if ((right.getType() == Value.ValueType.INTEGER && right.asInteger() == 0)
+            || (right.getType() == Value.ValueType.REAL && right.asReal() == 0.0)) {
+            throw runtimeError("Division by zero", node);
+        }
+        if (left.getType() == Value.ValueType.INTEGER && right.getType() == Value.ValueType.INTEGER) {
+            return Value.integer(Math.floorDiv(left.asInteger(), right.asInteger()));
+        }
+        return Value.real(left.asReal() / right.asReal());
+    }
+
+    public static Value compare(Value left, Value right, Operator operator, AstNode node) {
+        return switch (operator) {
+            case LESS -> lessThan(left, right, node);
+            case LESS_EQUAL -> lessEqual(left, right, node);
+            case GREATER -> greaterThan(left, right, node);
+            case GREATER_EQUAL -> greaterEqual(left, right, node);
+            default -> throw runtimeError("Unsupported comparison operator", node);
+        };
+    }
+
+    public static Value lessThan(Value left, Value right, AstNode node) {
+        requireComparable(left, right, node);
+        return Value.bool(left.asReal() < right.asReal());
+    }
+
+    public static Value lessEqual(Value left, Value right, AstNode node) {
+        requireComparable(left, right, node);
+        return Value.bool(left.asReal() <= right.asReal());
+    }
+
+    public static Value greaterThan(Value left, Value right, AstNode node) {
+        requireComparable(left, right, node);
+        return Value.bool(left.asReal() > right.asReal());
+    }
+
+    public static Value greaterEqual(Value left, Value right, AstNode node) {
+        requireComparable(left, right, node);
+        return Value.bool(left.asReal() >= right.asReal());
+    }
+
+    public static Value unaryPlus(Value operand, AstNode node) {
+        if (operand.getType() == Value.ValueType.REAL) {
+            return Value.real(operand.asReal());
+        }
+        if (operand.getType() == Value.ValueType.INTEGER) {
+            return Value.integer(operand.asInteger());
+        }
+        throw runtimeError("Unary '+' expects numeric operand", node);
+    }
+
+    public static Value negate(Value operand, AstNode node) {
+        if (operand.getType() == Value.ValueType.REAL) {
+            return Value.real(-operand.asReal());
+        }
+        if (operand.getType() == Value.ValueType.INTEGER) {
+            return Value.integer(-operand.asInteger());
+        }
+        throw runtimeError("Unary '-' expects numeric operand", node);
+    }
+
+    public static boolean valuesEqual(Value left, Value right) {
+        if (left.isNumeric() && right.isNumeric()) {
+            return Double.compare(left.asReal(), right.asReal()) == 0;
+        }
+        if (left.getType() != right.getType()) {
+            return false;
+        }
+        return switch (left.getType()) {
+            case BOOLEAN -> left.asBoolean() == right.asBoolean();
+            case STRING -> left.asString().equals(right.asString());
+            case ARRAY -> arraysEqual(left.asArray(), right.asArray());
+            case TUPLE -> tuplesEqual(left.asTuple(), right.asTuple());
+            case FUNCTION -> left.getValue() == right.getValue();
+            case VOID -> true;
+            default -> left.getValue().equals(right.getValue());
+        };
+    }
+
+    public static boolean requireBoolean(Value value, AstNode context) {
+        if (value.getType() != Value.ValueType.BOOLEAN) {
+            throw runtimeError("Expected boolean value but got " + value.getType(), context);
+        }
+        return value.asBoolean();
+    }
+
+    public static ArrayValue requireArray(Value value, AstNode context) {
+        if (value.getType() != Value.ValueType.ARRAY) {
+            throw runtimeError("Attempted to index non-array value", context);
+        }
+        return value.asArray();
+    }
+
+    public static TupleValue requireTuple(Value value, AstNode context) {
+        if (value.getType() != Value.ValueType.TUPLE) {
+            throw runtimeError("Attempted to access member on non-tuple", context);
+        }
+        return value.asTuple();
+    }
+
+    public static FunctionValue requireFunction(Value value, AstNode context) {
+        if (value.getType() != Value.ValueType.FUNCTION) {
+            throw runtimeError("Attempted to call a non-function value", context);
+        }
+        return value.asFunction();
+    }
+
+    /**
+     * The value of a literal, built on first use and then kept on the node so
+     * every later evaluation returns the same instance without allocating.
+     */
+    public static Value literal(LiteralNode node) {
+        Value value = (Value) node.getRuntimeValue();
+        if (value == null) {
+            value = switch (node.getType()) {
+                case INTEGER -> Value.integer(((Number) node.getValue()).intValue());
+                case REAL -> Value.real(((Number) node.getValue()).doubleValue());
+                case BOOLEAN -> Value.bool((Boolean) node.getValue());
+                case STRING -> Value.string((String) node.getValue());
+                case NONE -> Value.VOID;
+            };
+            node.setRuntimeValue(value);
+        }
+        return value;
+    }
+
+    /**
+     * Maps an {@code is} type indicator to the runtime type it tests for.
+     */
+    public static Value.ValueType typeForIndicator(String typeIndicator, AstNode node) {
+        String indicator = typeIndicator.toLowerCase();
+        return switch (indicator) {
+            case "int" -> Value.ValueType.INTEGER;
+            case "real" -> Value.ValueType.REAL;
+            case "bool" -> Value.ValueType.BOOLEAN;
+            case "string" -> Value.ValueType.STRING;
+            case "none" -> Value.ValueType.VOID;
+            case "array", "[]" -> Value.ValueType.ARRAY;
+            case "tuple", "{}" -> Value.ValueType.TUPLE;
+            case "func" -> Value.ValueType.FUNCTION;
+            default -> throw runtimeError("Unknown type indicator '" + indicator + "'", node);
+        };
+    }
+
+    /**
+     * Evaluates an input expression against {@code input}, positioning read
+     * errors at the expression.
+     */
+    public static Value read(InputSource input, InputNode node) {
+        try {
+            return input.read(node.getKind());
+        } catch (RuntimeError error) {
+            throw runtimeError(error.getMessage(), node);
+        }
+    }
+
+    public static RuntimeError runtimeError(String message, AstNode node) {
+        return new RuntimeError(message, node.getLine(), node.getColumn());
+    }
+
+    private static void requireComparable(Value left, Value right, AstNode node) {
+        if (!left.isNumeric() || !right.isNumeric()) {
+            throw runtimeError("Comparison operators expect numeric operands", node);
+        }
+    }
+
+    private static boolean arraysEqual(ArrayValue left, ArrayValue right) {
+        List<Value> leftElements = left.snapshot();
+        List<Value> rightElements = right.snapshot();
+        if (leftElements.size() != rightElements.size()) {
+            return false;
+        }
+        for (int i = 0; i < leftElements.size(); i++) {
+            Value leftValue = leftElements.get(i) != null ? leftElements.get(i) : Value.VOID;
+            Value rightValue = rightElements.get(i) != null ? rightElements.get(i) : Value.VOID;
+            if (!valuesEqual(leftValue, rightValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean tuplesEqual(TupleValue left, TupleValue right) {
+        // Interned shapes are equal exactly when they are the same object
+        if (left.getShape() != right.getShape()) {
+            return false;
+        }
+        for (int i = 1; i <= left.size(); i++) {
+            if (!valuesEqual(left.getByIndex(i), right.getByIndex(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
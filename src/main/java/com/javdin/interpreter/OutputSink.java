@@ -0,0 +1,43 @@
+package com.javdin.interpreter;
+
+/**
+ * Destination of the text that {@code print} statements produce. Engines
+ * write through a sink instead of {@code System.out}, and flush it when the
+ * program ends, whether normally or with an error.
+ */
+public interface OutputSink {
+    void write(CharSequence text);
+
+    void write(char c);
+
+    /**
+     * Writes the decimal digits of {@code value}.
+     */
+    default void writeInt(int value) {
+        write(Integer.toString(value));
+    }
+
+    /**
+     * Ends the current line.
+     */
+    void endLine();
+
+    /**
+     * Hands everything written so far to the underlying destination.
+     */
+    void flush();
+
+    /**
+     * Writes {@code values[from..to)} separated by spaces as one line, the
+     * way a {@code print} statement shows them.
+     */
+    default void printLine(Value[] values, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                write(' ');
+            }
+            ValueWriter.write(values[i], this);
+        }
+        endLine();
+    }
+}
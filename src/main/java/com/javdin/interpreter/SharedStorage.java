@@ -0,0 +1,27 @@
+package com.javdin.interpreter;
+
+/**
+ * Bookkeeping for a backing array that several arrays, tuples or tuple
+ * shapes share after a concatenation or shape transition. {@code left + right} may write the elements of
+ * {@code right} into spare capacity after {@code left} and share the result,
+ * so that accumulating with {@code a := a + [x]} does not copy {@code a}.
+ *
+ * Every sharer sees a prefix of the backing array. Only the sharer whose
+ * size equals {@link #used} may append in place; any other write first
+ * copies the sharer's prefix into storage of its own.
+ */
+final class SharedStorage {
+    // Length of the longest prefix some sharer can see
+    int used;
+
+    SharedStorage(int used) {
+        this.used = used;
+    }
+
+    /**
+     * Whether a sharer of the given size owns the end of the backing array.
+     */
+    boolean ownsTail(int size) {
+        return used == size;
+    }
+}
@@ -0,0 +1,37 @@
+package com.javdin.interpreter;
+
+/**
+ * Output sink that collects text in memory, for {@code toString} and tests.
+ */
+final class StringOutputSink implements OutputSink {
+    private final StringBuilder text = new StringBuilder();
+
+    @Override
+    public void write(CharSequence value) {
+        text.append(value);
+    }
+
+    @Override
+    public void write(char c) {
+        text.append(c);
+    }
+
+    @Override
+    public void writeInt(int value) {
+        text.append(value);
+    }
+
+    @Override
+    public void endLine() {
+        text.append(System.lineSeparator());
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
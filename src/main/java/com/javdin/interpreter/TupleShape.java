@@ -0,0 +1,118 @@
+package com.javdin.interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared layout of tuples: the member names in slot order and the slot each
+ * name resolves to. Shapes are interned through transitions from
+ * {@link #EMPTY}, so all tuples with the same member names in the same order
+ * share one shape and can be recognised by a reference comparison.
+ *
+ * A shape and the shape it was extended from share one names array when
+ * there is room in it, so a chain of n transitions (a tuple accumulated
+ * member by member) holds O(n) names rather than O(n^2).
+ */
+public final class TupleShape {
+    public static final TupleShape EMPTY = new TupleShape(new String[0], 0, new SharedStorage(0), Map.of());
+
+    // The first size entries are the member names; the array may be shared with shapes extending this one
+    private final String[] names;
+    private final int size;
+    private final SharedStorage nameStorage;
+    // Name -> slot; a repeated name resolves to its last slot
+    private final Map<String, Integer> slots;
+    private final Map<String, TupleShape> namedTransitions = new ConcurrentHashMap<>();
+    private volatile TupleShape unnamedTransition;
+
+    private TupleShape(String[] names, int size, SharedStorage nameStorage, Map<String, Integer> slots) {
+        this.names = names;
+        this.size = size;
+        this.nameStorage = nameStorage;
+        this.slots = slots;
+    }
+
+    /**
+     * The interned shape with the given member names (null for unnamed members).
+     */
+    public static TupleShape of(String... names) {
+        TupleShape shape = EMPTY;
+        for (String name : names) {
+            shape = shape.withMember(name);
+        }
+        return shape;
+    }
+
+    /**
+     * The interned shape of this shape followed by one more member.
+     */
+    public TupleShape withMember(String name) {
+        if (name == null) {
+            TupleShape next = unnamedTransition;
+            if (next == null) {
+                synchronized (this) {
+                    next = unnamedTransition;
+                    if (next == null) {
+                        next = extend(null);
+                        unnamedTransition = next;
+                    }
+                }
+            }
+            return next;
+        }
+        return namedTransitions.computeIfAbsent(name, this::extend);
+    }
+
+    /**
+     * The interned shape of this shape followed by the members of {@code other}.
+     */
+    public TupleShape concat(TupleShape other) {
+        TupleShape shape = this;
+        for (int slot = 0; slot < other.size; slot++) {
+            shape = shape.withMember(other.names[slot]);
+        }
+        return shape;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Name of the member at 0-based {@code slot}, or null if it is unnamed.
+     */
+    public String nameAt(int slot) {
+        return names[slot];
+    }
+
+    /**
+     * 0-based slot of the member named {@code name}, or -1 if there is none.
+     */
+    public int slotOf(String name) {
+        Integer slot = slots.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    private TupleShape extend(String name) {
+        String[] extended = names;
+        SharedStorage extendedStorage = nameStorage;
+        synchronized (nameStorage) {
+            if (nameStorage.ownsTail(size) && size < names.length) {
+                names[size] = name;
+                nameStorage.used = size + 1;
+            } else {
+                extended = Arrays.copyOf(names, Math.max(4, size * 2));
+                extended[size] = name;
+                extendedStorage = new SharedStorage(size + 1);
+            }
+        }
+        Map<String, Integer> extendedSlots = slots;
+        if (name != null) {
+            extendedSlots = new HashMap<>(slots);
+            extendedSlots.put(name, size);
+        }
+        return new TupleShape(extended, size + 1, extendedStorage, extendedSlots);
+    }
+}
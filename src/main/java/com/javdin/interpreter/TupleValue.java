@@ -1,117 +1,199 @@
 package com.javdin.interpreter;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 /**
  * Mutable runtime representation of Project D tuples.
  * Preserves declaration order and allows member lookup by name or 1-based index.
+ * Member names live in a shared, interned {@link TupleShape}; the tuple itself
+ * only holds its member values in a flat array indexed by slot.
+ * Like arrays, a tuple built by concatenation may share that array with its
+ * left operand until one of them is written to (see {@link SharedStorage}).
  */
 public final class TupleValue {
-    private final List<TupleEntry> entries = new ArrayList<>();
-    private final Map<String, Integer> nameToIndex = new LinkedHashMap<>();
-    
+    private static final Value[] NO_VALUES = new Value[0];
+
+    private TupleShape shape;
+    private Value[] values;
+    // Non-null while the values array is shared with other tuples
+    private SharedStorage sharing;
+    private int size;
+
     public TupleValue() {
+        this.shape = TupleShape.EMPTY;
+        this.values = NO_VALUES;
     }
-    
-    public TupleValue(List<TupleEntry> initialEntries) {
-        if (initialEntries != null) {
-            for (TupleEntry entry : initialEntries) {
-                append(entry.name(), entry.value());
-            }
+
+    /**
+     * Creates a tuple of the given shape that takes ownership of {@code values}.
+     */
+    public TupleValue(TupleShape shape, Value[] values) {
+        if (shape.size() != values.length) {
+            throw new IllegalArgumentException("Tuple shape has " + shape.size() + " members but got " + values.length + " values");
         }
+        this.shape = shape;
+        this.values = values;
+        this.size = values.length;
+    }
+
+    private TupleValue(TupleShape shape, Value[] values, int size) {
+        this.shape = shape;
+        this.values = values;
+        this.size = size;
     }
-    
+
     public int size() {
-        return entries.size();
+        return size;
     }
-    
+
+    public TupleShape getShape() {
+        return shape;
+    }
+
     public void append(String name, Value value) {
-        TupleEntry entry = new TupleEntry(name, value);
-        entries.add(entry);
-        if (name != null) {
-            nameToIndex.put(name, entries.size() - 1);
+        if (sharing != null && !sharing.ownsTail(size)) {
+            unshare();
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size * 2));
+            sharing = null;
+        }
+        values[size++] = value;
+        shape = shape.withMember(name);
+        if (sharing != null) {
+            sharing.used = size;
         }
     }
-    
+
     public Value getByIndex(int index) {
         verifyIndex(index);
-        return entries.get(index - 1).value();
+        return values[index - 1];
     }
-    
+
     public Value getByName(String name) {
-        Integer idx = nameToIndex.get(name);
-        if (idx == null) {
-            throw new RuntimeError("Tuple has no member named '" + name + "'");
-        }
-        return entries.get(idx).value();
+        return values[indexOf(name)];
     }
-    
+
     public void setByIndex(int index, Value value) {
         verifyIndex(index);
-        entries.get(index - 1).setValue(value);
+        setValueAt(index - 1, value);
     }
-    
+
     public void setByName(String name, Value value) {
-        Integer idx = nameToIndex.get(name);
-        if (idx == null) {
-            throw new RuntimeError("Tuple has no member named '" + name + "'");
-        }
-        entries.get(idx).setValue(value);
-    }
-    
-    public TupleValue concat(TupleValue other) {
-        TupleValue result = new TupleValue();
-        this.entries.forEach(entry -> result.append(entry.name(), entry.value()));
-        other.entries.forEach(entry -> result.append(entry.name(), entry.value()));
-        return result;
+        setValueAt(indexOf(name), value);
     }
-    
-    public List<TupleEntry> snapshot() {
-        return Collections.unmodifiableList(entries);
+
+    /**
+     * Name of the member at 1-based {@code index}, or null if it is unnamed.
+     */
+    public String getNameAt(int index) {
+        verifyIndex(index);
+        return shape.nameAt(index - 1);
     }
-    
-    private void verifyIndex(int index) {
-        if (index <= 0 || index > entries.size()) {
-            throw new RuntimeError("Tuple index out of bounds: " + index + " (valid range: 1 to " + entries.size() + ")");
+
+    /**
+     * The members of this tuple followed by those of {@code other}, sharing
+     * this tuple's values array when it owns the end of it and has room.
+     */
+    public TupleValue concat(TupleValue other) {
+        int combined = size + other.size;
+        TupleShape combinedShape = shape.concat(other.shape);
+        if ((sharing == null || sharing.ownsTail(size)) && combined <= values.length) {
+            System.arraycopy(other.values, 0, values, size, other.size);
+            if (sharing == null) {
+                sharing = new SharedStorage(combined);
+            } else {
+                sharing.used = combined;
+            }
+            TupleValue result = new TupleValue(combinedShape, values, combined);
+            result.sharing = sharing;
+            return result;
         }
+        Value[] elements = Arrays.copyOf(values, Math.max(combined, size * 2));
+        System.arraycopy(other.values, 0, elements, size, other.size);
+        return new TupleValue(combinedShape, elements, combined);
     }
-    
-    @Override
-    public String toString() {
-        return entries.stream()
-            .map(entry -> entry.name() != null
-                ? entry.name() + ":=" + entry.value().asString()
-                : entry.value().asString())
-            .collect(Collectors.joining(", ", "{", "}"));
+
+    /**
+     * Live, read-only view of the member values in declaration order.
+     */
+    public List<Value> values() {
+        return new AbstractList<>() {
+            @Override
+            public Value get(int index) {
+                Objects.checkIndex(index, size);
+                return values[index];
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
     }
-    
+
     /**
-     * Tuple element with optional name.
+     * 0-based slot of the member named {@code name}.
      */
-    public static final class TupleEntry {
-        private final String name;
-        private Value value;
-        
-        public TupleEntry(String name, Value value) {
-            this.name = name;
-            this.value = value;
+    int indexOf(String name) {
+        int slot = shape.slotOf(name);
+        if (slot < 0) {
+            throw new RuntimeError("Tuple has no member named '" + name + "'");
         }
-        
-        public String name() {
-            return name;
+        return slot;
+    }
+
+    Value valueAt(int slot) {
+        return values[slot];
+    }
+
+    void setValueAt(int slot, Value value) {
+        if (sharing != null) {
+            unshare();
         }
-        
-        public Value value() {
-            return value;
+        values[slot] = value;
+    }
+
+    /**
+     * Gives this tuple a values array of its own before a write other sharers must not see.
+     */
+    private void unshare() {
+        values = Arrays.copyOf(values, size);
+        sharing = null;
+    }
+
+    private void verifyIndex(int index) {
+        if (index <= 0 || index > size) {
+            throw new RuntimeError("Tuple index out of bounds: " + index + " (valid range: 1 to " + size + ")");
         }
-        
-        private void setValue(Value value) {
-            this.value = value;
+    }
+
+    /**
+     * Writes the printed form of this tuple.
+     */
+    void writeTo(OutputSink sink) {
+        sink.write('{');
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sink.write(", ");
+            }
+            String name = shape.nameAt(i);
+            if (name != null) {
+                sink.write(name);
+                sink.write(":=");
+            }
+            ValueWriter.write(values[i], sink);
         }
+        sink.write('}');
+    }
+
+    @Override
+    public String toString() {
+        StringOutputSink text = new StringOutputSink();
+        writeTo(text);
+        return text.toString();
     }
 }
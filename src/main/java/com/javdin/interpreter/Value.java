@@ -2,160 +2,390 @@ package com.javdin.interpreter;
 
 /**
  * Runtime value wrapper for dynamic typing.
+ * Numbers and booleans are held in primitive fields of their own subclasses,
+ * so arithmetic allocates a single small object and never boxes; strings,
+ * arrays, tuples and functions are held by reference. The type tag is a
+ * plain field set at construction. Booleans and small integers are
+ * canonical instances, so comparisons and loop counters do not allocate.
+ * Long strings built by concatenation share one growing buffer (see
+ * {@link #concat}) and are flattened to a {@link String} on first use.
  */
-public class Value {
-    public static final Value VOID = new Value(null);
-    
-    private final Object value;
+public abstract sealed class Value {
+    public static final Value VOID = new VoidValue();
+    public static final Value TRUE = new BooleanValue(true);
+    public static final Value FALSE = new BooleanValue(false);
+
+    // Integers in [SMALL_MIN, SMALL_MAX] are canonical: loop counters, indices, flags
+    private static final int SMALL_MIN = -128;
+    private static final int SMALL_MAX = 1023;
+    private static final Value[] SMALL_INTEGERS = new Value[SMALL_MAX - SMALL_MIN + 1];
+    // Concatenations shorter than this produce flat strings
+    private static final int BUFFERED_LENGTH = 256;
+
+    static {
+        for (int i = 0; i < SMALL_INTEGERS.length; i++) {
+            SMALL_INTEGERS[i] = new IntegerValue(SMALL_MIN + i);
+        }
+    }
+
     private final ValueType type;
-    
+
     public enum ValueType {
         INTEGER, REAL, BOOLEAN, STRING, ARRAY, TUPLE, FUNCTION, VOID
     }
-    
-    public Value(Object value) {
-        this.value = value;
-        this.type = determineType(value);
+
+    private Value(ValueType type) {
+        this.type = type;
     }
-    
+
     public static Value integer(int value) {
-        return new Value(value);
+        if (value >= SMALL_MIN && value <= SMALL_MAX) {
+            return SMALL_INTEGERS[value - SMALL_MIN];
+        }
+        return new IntegerValue(value);
     }
-    
+
     public static Value real(double value) {
-        return new Value(value);
+        return new RealValue(value);
     }
-    
+
     public static Value bool(boolean value) {
-        return new Value(value);
+        return value ? TRUE : FALSE;
     }
-    
+
     public static Value string(String value) {
-        return new Value(value);
+        return value != null ? new StringValue(value) : VOID;
+    }
+
+    /**
+     * The concatenation of two strings. A long result appends {@code right}
+     * to a buffer that {@code left} ends and shares it, so building a string
+     * piece by piece does not copy what was built so far.
+     */
+    public static Value concat(Value left, Value right) {
+        StringValue prefix = (StringValue) left;
+        StringValue suffix = (StringValue) right;
+        int length = prefix.length + suffix.length;
+        if (length < BUFFERED_LENGTH) {
+            return new StringValue(prefix.asString() + suffix.asString());
+        }
+        StringBuilder buffer = prefix.buffer;
+        if (buffer == null || buffer.length() != prefix.length) {
+            // Someone else already appended to the buffer, or there is none
+            buffer = new StringBuilder(Math.max(length, 2 * prefix.length));
+            prefix.appendTo(buffer);
+        }
+        suffix.appendTo(buffer);
+        return new StringValue(buffer, length);
     }
-    
+
     public static Value array(ArrayValue value) {
-        return new Value(value);
+        return value != null ? new ReferenceValue(ValueType.ARRAY, value) : VOID;
     }
-    
+
     public static Value tuple(TupleValue value) {
-        return new Value(value);
+        return value != null ? new ReferenceValue(ValueType.TUPLE, value) : VOID;
     }
-    
+
     public static Value function(FunctionValue value) {
-        return new Value(value);
-    }
-    
-    private ValueType determineType(Object value) {
-        if (value == null) return ValueType.VOID;
-        if (value instanceof Integer) return ValueType.INTEGER;
-        if (value instanceof Double) return ValueType.REAL;
-        if (value instanceof Boolean) return ValueType.BOOLEAN;
-        if (value instanceof String) return ValueType.STRING;
-        if (value instanceof ArrayValue) return ValueType.ARRAY;
-        if (value instanceof TupleValue) return ValueType.TUPLE;
-        if (value instanceof FunctionValue) return ValueType.FUNCTION;
-        return ValueType.VOID;
-    }
-    
-    public Object getValue() {
-        return value;
-    }
-    
-    public ValueType getType() {
+        return value != null ? new ReferenceValue(ValueType.FUNCTION, value) : VOID;
+    }
+
+    /**
+     * A fresh void value that is distinct from {@link #VOID} and from every
+     * other marker, for engines that signal control flow by identity.
+     */
+    public static Value marker() {
+        return new VoidValue();
+    }
+
+    /**
+     * The wrapped value as an object: a boxed number or boolean, a string,
+     * array, tuple or function, or null for void. Boxes on every call.
+     */
+    public abstract Object getValue();
+
+    public final ValueType getType() {
         return type;
     }
-    
-    public boolean isTruthy() {
-        return switch (type) {
-            case BOOLEAN -> (Boolean) value;
-            case INTEGER -> (Integer) value != 0;
-            case REAL -> (Double) value != 0.0;
-            case STRING -> !((String) value).isEmpty();
-            case ARRAY -> ((ArrayValue) value).size() > 0;
-            case TUPLE -> ((TupleValue) value).size() > 0;
-            case FUNCTION -> true;
-            case VOID -> false;
-        };
-    }
-    
+
+    public abstract boolean isTruthy();
+
     public int asInteger() {
-        return switch (type) {
-            case INTEGER -> (Integer) value;
-            case REAL -> ((Double) value).intValue();
-            case BOOLEAN -> (Boolean) value ? 1 : 0;
-            case STRING -> parseInteger((String) value);
-            default -> throw new RuntimeError("Cannot convert " + type + " to integer");
-        };
-    }
-    
+        throw new RuntimeError("Cannot convert " + type + " to integer");
+    }
+
     public double asReal() {
-        return switch (type) {
-            case INTEGER -> ((Integer) value).doubleValue();
-            case REAL -> (Double) value;
-            case BOOLEAN -> (Boolean) value ? 1.0 : 0.0;
-            case STRING -> parseReal((String) value);
-            default -> throw new RuntimeError("Cannot convert " + type + " to real");
-        };
-    }
-    
+        throw new RuntimeError("Cannot convert " + type + " to real");
+    }
+
     public boolean asBoolean() {
-        if (type != ValueType.BOOLEAN) {
-            throw new RuntimeError("Expected boolean but got " + type);
-        }
-        return (Boolean) value;
+        throw new RuntimeError("Expected boolean but got " + type);
     }
-    
+
     public ArrayValue asArray() {
-        if (type != ValueType.ARRAY) {
-            throw new RuntimeError("Expected array but got " + type);
-        }
-        return (ArrayValue) value;
+        throw new RuntimeError("Expected array but got " + type);
     }
-    
+
     public TupleValue asTuple() {
-        if (type != ValueType.TUPLE) {
-            throw new RuntimeError("Expected tuple but got " + type);
-        }
-        return (TupleValue) value;
+        throw new RuntimeError("Expected tuple but got " + type);
     }
-    
+
     public FunctionValue asFunction() {
-        if (type != ValueType.FUNCTION) {
-            throw new RuntimeError("Expected function but got " + type);
+        throw new RuntimeError("Expected function but got " + type);
+    }
+
+    public abstract String asString();
+
+    public final boolean isNumeric() {
+        return type == ValueType.INTEGER || type == ValueType.REAL;
+    }
+
+    @Override
+    public String toString() {
+        return asString();
+    }
+
+    private static final class IntegerValue extends Value {
+        private final int value;
+
+        private IntegerValue(int value) {
+            super(ValueType.INTEGER);
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return value != 0;
+        }
+
+        @Override
+        public int asInteger() {
+            return value;
+        }
+
+        @Override
+        public double asReal() {
+            return value;
+        }
+
+        @Override
+        public String asString() {
+            return Integer.toString(value);
         }
-        return (FunctionValue) value;
     }
-    
-    public String asString() {
-        if (value == null) {
-            return "none";
+
+    private static final class RealValue extends Value {
+        private final double value;
+
+        private RealValue(double value) {
+            super(ValueType.REAL);
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return value != 0.0;
+        }
+
+        @Override
+        public int asInteger() {
+            return (int) value;
+        }
+
+        @Override
+        public double asReal() {
+            return value;
+        }
+
+        @Override
+        public String asString() {
+            return Double.toString(value);
         }
-        return value.toString();
     }
-    
-    public boolean isNumeric() {
-        return type == ValueType.INTEGER || type == ValueType.REAL;
+
+    private static final class BooleanValue extends Value {
+        private final boolean value;
+
+        private BooleanValue(boolean value) {
+            super(ValueType.BOOLEAN);
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return value;
+        }
+
+        @Override
+        public int asInteger() {
+            return value ? 1 : 0;
+        }
+
+        @Override
+        public double asReal() {
+            return value ? 1.0 : 0.0;
+        }
+
+        @Override
+        public boolean asBoolean() {
+            return value;
+        }
+
+        @Override
+        public String asString() {
+            return Boolean.toString(value);
+        }
     }
-    
-    private int parseInteger(String raw) {
-        try {
-            return Integer.parseInt(raw);
-        } catch (NumberFormatException e) {
-            throw new RuntimeError("Cannot convert string '" + raw + "' to integer");
+
+    /**
+     * Strings: a flat {@link String}, or a prefix of a buffer that longer
+     * strings built from this one may share.
+     */
+    private static final class StringValue extends Value {
+        private final StringBuilder buffer;
+        private final int length;
+        private String flat;
+
+        private StringValue(String value) {
+            super(ValueType.STRING);
+            this.buffer = null;
+            this.length = value.length();
+            this.flat = value;
+        }
+
+        private StringValue(StringBuilder buffer, int length) {
+            super(ValueType.STRING);
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        private void appendTo(StringBuilder target) {
+            if (flat != null) {
+                target.append(flat);
+            } else {
+                target.append(buffer, 0, length);
+            }
+        }
+
+        @Override
+        public Object getValue() {
+            return asString();
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return length > 0;
+        }
+
+        @Override
+        public int asInteger() {
+            try {
+                return Integer.parseInt(asString());
+            } catch (NumberFormatException e) {
+                throw new RuntimeError("Cannot convert string '" + asString() + "' to integer");
+            }
+        }
+
+        @Override
+        public double asReal() {
+            try {
+                return Double.parseDouble(asString());
+            } catch (NumberFormatException e) {
+                throw new RuntimeError("Cannot convert string '" + asString() + "' to real");
+            }
+        }
+
+        @Override
+        public String asString() {
+            String text = flat;
+            if (text == null) {
+                text = buffer.substring(0, length);
+                flat = text;
+            }
+            return text;
         }
     }
-    
-    private double parseReal(String raw) {
-        try {
-            return Double.parseDouble(raw);
-        } catch (NumberFormatException e) {
-            throw new RuntimeError("Cannot convert string '" + raw + "' to real");
+
+    /**
+     * Arrays, tuples and functions.
+     */
+    private static final class ReferenceValue extends Value {
+        private final Object value;
+
+        private ReferenceValue(ValueType type, Object value) {
+            super(type);
+            this.value = value;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return switch (getType()) {
+                case ARRAY -> ((ArrayValue) value).size() > 0;
+                case TUPLE -> ((TupleValue) value).size() > 0;
+                default -> true;
+            };
+        }
+
+        @Override
+        public ArrayValue asArray() {
+            return getType() == ValueType.ARRAY ? (ArrayValue) value : super.asArray();
+        }
+
+        @Override
+        public TupleValue asTuple() {
+            return getType() == ValueType.TUPLE ? (TupleValue) value : super.asTuple();
+        }
+
+        @Override
+        public FunctionValue asFunction() {
+            return getType() == ValueType.FUNCTION ? (FunctionValue) value : super.asFunction();
+        }
+
+        @Override
+        public String asString() {
+            return value == null ? "none" : value.toString();
         }
     }
-    
-    @Override
-    public String toString() {
-        return asString();
+
+    private static final class VoidValue extends Value {
+        private VoidValue() {
+            super(ValueType.VOID);
+        }
+
+        @Override
+        public Object getValue() {
+            return null;
+        }
+
+        @Override
+        public boolean isTruthy() {
+            return false;
+        }
+
+        @Override
+        public String asString() {
+            return "none";
+        }
     }
 }
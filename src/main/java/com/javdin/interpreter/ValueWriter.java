@@ -0,0 +1,42 @@
+package com.javdin.interpreter;
+
+/**
+ * Writes values in their printed form straight into an {@link OutputSink},
+ * element by element, so printing a large array or tuple never builds its
+ * whole text as one string. Integers, and reals with a small integral value,
+ * are formatted without allocating; the output is the same as
+ * {@link Value#asString()}.
+ */
+public final class ValueWriter {
+    // Integral reals below this magnitude print as digits followed by ".0"
+    private static final double PLAIN_REAL_LIMIT = 1e7;
+
+    private ValueWriter() {
+    }
+
+    public static void write(Value value, OutputSink sink) {
+        switch (value.getType()) {
+            case INTEGER -> sink.writeInt(value.asInteger());
+            case REAL -> writeReal(value.asReal(), sink);
+            case ARRAY -> value.asArray().writeTo(sink);
+            case TUPLE -> value.asTuple().writeTo(sink);
+            default -> sink.write(value.asString());
+        }
+    }
+
+    /**
+     * Writes a real as {@link Double#toString(double)} would.
+     */
+    public static void writeReal(double value, OutputSink sink) {
+        if (value == (int) value && Math.abs(value) < PLAIN_REAL_LIMIT) {
+            if (value == 0 && 1 / value < 0) {
+                sink.write("-0.0");
+                return;
+            }
+            sink.writeInt((int) value);
+            sink.write(".0");
+            return;
+        }
+        sink.write(Double.toString(value));
+    }
+}
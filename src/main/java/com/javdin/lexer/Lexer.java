@@ -1,14 +1,36 @@
 package com.javdin.lexer;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Lexical analyzer for the Javdin language.
  * Converts source code into a stream of tokens.
+ *
+ * The source is either a string or a buffer of UTF-8 bytes, typically a
+ * mapped file. Bytes are scanned a block at a time without being decoded:
+ * ASCII is read as is, other characters are decoded one at a time where
+ * they are looked at, and only the text of identifier, number and string
+ * tokens is turned into strings.
  */
 public class Lexer {
+    // Exactly one of source and bytes is set
     private final String source;
+    private final ByteBuffer bytes;
+    private final int length;
+    // The block of bytes being scanned, starting at blockStart in bytes
+    private final byte[] block;
+    private int blockStart;
+    private int blockLength;
+    // Holds the bytes of a token's text that does not lie within the block
+    private byte[] scratch;
+    // Decodes token text, reporting rather than replacing malformed bytes
+    private final CharsetDecoder decoder;
     private int position;
     private int line;
     private int column;
@@ -17,6 +39,7 @@ public class Lexer {
     // rejected with a clear message).
     private TokenType lastSignificantToken;
     
+    private static final int BLOCK_SIZE = 1 << 16;
     private static final Map<String, TokenType> KEYWORDS = new HashMap<>();
     
     static {
@@ -57,6 +80,29 @@ public class Lexer {
     
     public Lexer(String source) {
         this.source = source;
+        this.bytes = null;
+        this.block = null;
+        this.decoder = null;
+        this.length = source.length();
+        this.position = 0;
+        this.line = 1;
+        this.column = 1;
+        this.lastSignificantToken = null;
+    }
+    
+    /**
+     * Lexes the UTF-8 bytes between the buffer's position and limit. Columns
+     * count chars, as they would in the decoded string, not bytes.
+     */
+    public Lexer(ByteBuffer utf8) {
+        this.source = null;
+        this.bytes = utf8.slice();
+        this.length = bytes.remaining();
+        this.block = new byte[BLOCK_SIZE];
+        this.scratch = new byte[64];
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
         this.position = 0;
         this.line = 1;
         this.column = 1;
@@ -69,11 +115,11 @@ public class Lexer {
     public Token nextToken() {
         skipWhitespace();
         
-        if (position >= source.length()) {
+        if (position >= length) {
             return finalizeToken(new Token(TokenType.EOF, line, column));
         }
         
-        char current = source.charAt(position);
+        char current = charAt(position);
         
         // Handle newlines
         if (current == '\n') {
@@ -195,10 +241,10 @@ public class Lexer {
     }
     
     private void skipWhitespace() {
-        while (position < source.length()) {
-            char c = source.charAt(position);
+        while (position < length) {
+            char c = charAt(position);
             if (c == ' ' || c == '\t' || c == '\r') {
-                advance();
+                advance(c);
             } else {
                 break;
             }
@@ -206,8 +252,12 @@ public class Lexer {
     }
     
     private void skipLineComment() {
-        while (position < source.length() && source.charAt(position) != '\n') {
-            advance();
+        while (position < length) {
+            char c = charAt(position);
+            if (c == '\n') {
+                break;
+            }
+            advance(c);
         }
     }
     
@@ -215,8 +265,8 @@ public class Lexer {
         advance(); // Skip '/'
         advance(); // Skip '*'
         
-        while (position < source.length() - 1) {
-            if (source.charAt(position) == '*' && source.charAt(position + 1) == '/') {
+        while (position < length - 1) {
+            if (charAt(position) == '*' && charAt(position + 1) == '/') {
                 advance(); // Skip '*'
                 advance(); // Skip '/'
                 return;
@@ -231,42 +281,51 @@ public class Lexer {
     private Token scanNumber() {
         int startLine = line;
         int startColumn = column;
-        StringBuilder sb = new StringBuilder();
+        int start = position;
         
-        while (position < source.length() && Character.isDigit(source.charAt(position))) {
-            sb.append(source.charAt(position));
+        while (position < length && Character.isDigit(charAt(position))) {
             advance();
         }
         
         // Check for decimal point
-        if (position < source.length() && source.charAt(position) == '.' && 
-            position + 1 < source.length() && Character.isDigit(source.charAt(position + 1))) {
-            sb.append(source.charAt(position));
+        if (position < length && charAt(position) == '.' && 
+            position + 1 < length && Character.isDigit(charAt(position + 1))) {
             advance();
             
-            while (position < source.length() && Character.isDigit(source.charAt(position))) {
-                sb.append(source.charAt(position));
+            while (position < length && Character.isDigit(charAt(position))) {
                 advance();
             }
             
-            return finalizeToken(new Token(TokenType.REAL, sb.toString(), startLine, startColumn));
+            return finalizeToken(new Token(TokenType.REAL, text(start, position), startLine, startColumn));
         }
         
-        return finalizeToken(new Token(TokenType.INTEGER, sb.toString(), startLine, startColumn));
+        return finalizeToken(new Token(TokenType.INTEGER, text(start, position), startLine, startColumn));
     }
     
     private Token scanString(char quote) {
         int startLine = line;
         int startColumn = column;
-        StringBuilder sb = new StringBuilder();
+        // Only created for strings with escapes; text between them is copied a run at a time
+        StringBuilder sb = null;
         
         advance(); // Skip opening quote
+        int run = position;
         
-        while (position < source.length() && source.charAt(position) != quote) {
-            if (source.charAt(position) == '\\') {
+        while (position < length) {
+            char current = charAt(position);
+            if (current == quote) {
+                break;
+            }
+            if (current == '\\') {
+                if (sb == null) {
+                    sb = new StringBuilder();
+                }
+                sb.append(text(run, position));
                 advance();
-                if (position < source.length()) {
-                    char escaped = source.charAt(position);
+                if (position < length) {
+                    char escaped = charAt(position);
+                    int escapedStart = position;
+                    advance();
                     switch (escaped) {
                         case 'n' -> sb.append('\n');
                         case 't' -> sb.append('\t');
@@ -274,36 +333,38 @@ public class Lexer {
                         case '\\' -> sb.append('\\');
                         case '"' -> sb.append('"');
                         case '\'' -> sb.append('\'');
-                        default -> sb.append(escaped);
+                        default -> sb.append(text(escapedStart, position));
                     }
-                    advance();
                 }
+                run = position;
             } else {
-                sb.append(source.charAt(position));
-                advance();
+                advance(current);
             }
         }
         
-        if (position >= source.length()) {
+        if (position >= length) {
             throw new LexicalException("Unterminated string literal", startLine, startColumn);
         }
         
+        String value = sb == null ? text(run, position) : sb.append(text(run, position)).toString();
         advance(); // Skip closing quote
-        return finalizeToken(new Token(TokenType.STRING, sb.toString(), startLine, startColumn));
+        return finalizeToken(new Token(TokenType.STRING, value, startLine, startColumn));
     }
     
     private Token scanIdentifier() {
         int startLine = line;
         int startColumn = column;
-        StringBuilder sb = new StringBuilder();
+        int start = position;
         
-        while (position < source.length() && 
-               (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
-            sb.append(source.charAt(position));
-            advance();
+        while (position < length) {
+            char c = charAt(position);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                break;
+            }
+            advance(c);
         }
         
-        String identifier = sb.toString();
+        String identifier = text(start, position);
         TokenType type = KEYWORDS.getOrDefault(identifier, TokenType.IDENTIFIER);
 
         // If a type-indicator keyword appears immediately after 'var',
@@ -343,19 +404,143 @@ public class Lexer {
     }
     
     private char peek() {
-        if (position + 1 >= source.length()) {
+        if (position + 1 >= length) {
             return '\0';
         }
-        return source.charAt(position + 1);
+        return charAt(position + 1);
     }
     
     private void advance() {
-        if (position < source.length() && source.charAt(position) == '\n') {
+        advance(position < length ? charAt(position) : '\0');
+    }
+    
+    /**
+     * Moves past {@code current}, the character at the current position.
+     */
+    private void advance(char current) {
+        if (current == '\n') {
             line++;
             column = 1;
-        } else {
+            position++;
+        } else if (current < 0x80 || bytes == null) {
             column++;
+            position++;
+        } else {
+            advanceSequence();
+        }
+    }
+    
+    private void advanceSequence() {
+        // A four-byte sequence is a surrogate pair, two chars in a string source
+        int count = sequenceLength(position);
+        column += count == 4 ? 2 : 1;
+        position += count;
+    }
+    
+    /**
+     * The character at {@code index}, which in a byte source must be the
+     * start of a UTF-8 sequence. A character outside the Basic Multilingual
+     * Plane reads as its high surrogate.
+     */
+    private char charAt(int index) {
+        if (bytes == null) {
+            return source.charAt(index);
+        }
+        int offset = index - blockStart;
+        if (offset >= 0 && offset < blockLength && block[offset] >= 0) {
+            return (char) block[offset];
+        }
+        return decode(index);
+    }
+    
+    /**
+     * Slow path of {@link #charAt} for bytes outside the block or non-ASCII.
+     */
+    private char decode(int index) {
+        int lead = byteAt(index);
+        if (lead >= 0) {
+            return (char) lead;
+        }
+        int count = sequenceLength(index);
+        int codePoint = lead & (0x7F >> count);
+        for (int i = 1; i < count; i++) {
+            codePoint = (codePoint << 6) | (byteAt(index + i) & 0x3F);
+        }
+        return codePoint > Character.MAX_VALUE ? Character.highSurrogate(codePoint) : (char) codePoint;
+    }
+    
+    /**
+     * Length of the UTF-8 sequence starting at {@code index}. A malformed,
+     * overlong or truncated sequence, or an encoded surrogate, is rejected
+     * as the decoder would reject it.
+     */
+    private int sequenceLength(int index) {
+        if (index >= length) {
+            return 1;
+        }
+        int lead = byteAt(index) & 0xFF;
+        int count = lead < 0x80 ? 1 : lead < 0xC2 ? 0 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : lead < 0xF5 ? 4 : 0;
+        if (count == 0 || index + count > length) {
+            throw malformedInput();
+        }
+        for (int i = 1; i < count; i++) {
+            if ((byteAt(index + i) & 0xC0) != 0x80) {
+                throw malformedInput();
+            }
+        }
+        if (count > 2) {
+            // The second byte rules out overlong forms, surrogates and code points past U+10FFFF
+            int second = byteAt(index + 1) & 0xFF;
+            if ((lead == 0xE0 && second < 0xA0) || (lead == 0xED && second > 0x9F)
+                || (lead == 0xF0 && second < 0x90) || (lead == 0xF4 && second > 0x8F)) {
+                throw malformedInput();
+            }
+        }
+        return count;
+    }
+    
+    private LexicalException malformedInput() {
+        return new LexicalException("Malformed UTF-8 input", line, column);
+    }
+    
+    /**
+     * The byte at {@code index}, copying the block that starts there out of
+     * the buffer if it is not in the current one. The lexer only looks a few
+     * bytes ahead, so each block is copied once.
+     */
+    private byte byteAt(int index) {
+        int offset = index - blockStart;
+        if (offset < 0 || offset >= blockLength) {
+            blockStart = index;
+            blockLength = Math.min(block.length, length - index);
+            bytes.get(index, block, 0, blockLength);
+            offset = 0;
+        }
+        return block[offset];
+    }
+    
+    /**
+     * The source text in {@code [start, end)}.
+     */
+    private String text(int start, int end) {
+        if (bytes == null) {
+            return source.substring(start, end);
+        }
+        int count = end - start;
+        ByteBuffer text;
+        if (start >= blockStart && end <= blockStart + blockLength) {
+            text = ByteBuffer.wrap(block, start - blockStart, count);
+        } else {
+            if (count > scratch.length) {
+                scratch = new byte[Math.max(count, scratch.length * 2)];
+            }
+            bytes.get(start, scratch, 0, count);
+            text = ByteBuffer.wrap(scratch, 0, count);
+        }
+        try {
+            return decoder.decode(text).toString();
+        } catch (CharacterCodingException e) {
+            throw malformedInput();
         }
-        position++;
     }
 }
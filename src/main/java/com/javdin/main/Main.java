@@ -4,20 +4,30 @@ import com.javdin.lexer.Lexer;
 import com.javdin.parser.Parser;
 import com.javdin.semantics.SemanticAnalyzer;
 import com.javdin.semantics.Optimizer;
+import com.javdin.compiler.ClosureEngine;
+import com.javdin.interpreter.AsyncFileOutput;
+import com.javdin.interpreter.BufferedOutputSink;
+import com.javdin.interpreter.ExecutionEngine;
 import com.javdin.interpreter.Interpreter;
 import com.javdin.utils.ErrorHandler;
 import com.javdin.utils.IoUtils;
+import com.javdin.vm.Disassembler;
+import com.javdin.vm.VmEngine;
 import com.javdin.ast.ProgramNode;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 
 /**
  * Main entry point for the Javdin interpreter.
  * 
- * Usage: java -jar javdin.jar input.d
+ * Usage: java -jar javdin.jar [--engine=ast|closure|specializing|vm] [--jit-threshold=N] [--max-depth=N] [--memoize[=N]] [--line-buffered] [--output <file>] [--disassemble] input.d
  */
 public class Main {
+    private static final String USAGE = "Usage: java -jar javdin.jar [--engine=ast|closure|specializing|vm] [--jit-threshold=N] [--max-depth=N] [--memoize[=N]] [--line-buffered] [--output <file>] [--disassemble] <source-file>";
     
+
     public static void main(String[] args) {
         int exitCode = runInterpreter(args);
         System.exit(exitCode);
@@ -31,20 +41,91 @@ public class Main {
      * @return Exit code (0 for success, 1 for error)
      */
     public static int runInterpreter(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage: java -jar javdin.jar <source-file>");
+        String sourceFile = null;
+        String engineName = "ast";
+        boolean disassemble = false;
+        int jitThreshold = Interpreter.DEFAULT_JIT_THRESHOLD;
+        int maxDepth = ExecutionEngine.DEFAULT_MAX_DEPTH;
+        int memoCapacity = 0;
+        // Flush print output line by line when a user is watching
+        boolean lineBuffered = System.console() != null;
+        String outputFile = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--disassemble")) {
+                disassemble = true;
+            } else if (arg.equals("--line-buffered")) {
+                lineBuffered = true;
+            } else if (arg.equals("--output") && i + 1 < args.length) {
+                outputFile = args[++i];
+            } else if (arg.startsWith("--output=")) {
+                outputFile = arg.substring("--output=".length());
+            } else if (arg.startsWith("--jit-threshold=")) {
+                try {
+                    jitThreshold = Integer.parseInt(arg.substring("--jit-threshold=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+                if (jitThreshold < 0) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+            } else if (arg.startsWith("--max-depth=")) {
+                try {
+                    maxDepth = Integer.parseInt(arg.substring("--max-depth=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+                if (maxDepth <= 0) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+            } else if (arg.equals("--memoize")) {
+                memoCapacity = Interpreter.DEFAULT_MEMO_CAPACITY;
+            } else if (arg.startsWith("--memoize=")) {
+                try {
+                    memoCapacity = Integer.parseInt(arg.substring("--memoize=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+                if (memoCapacity <= 0) {
+                    System.err.println(USAGE);
+                    return 1;
+                }
+            } else if (arg.startsWith("--engine=")) {
+                engineName = arg.substring("--engine=".length());
+            } else if (arg.startsWith("--") || sourceFile != null) {
+                System.err.println(USAGE);
+                return 1;
+            } else {
+                sourceFile = arg;
+            }
+        }
+        if (sourceFile == null) {
+            System.err.println(USAGE);
             return 1;
         }
         
-        String sourceFile = args[0];
         ErrorHandler errorHandler = new ErrorHandler();
+        ExecutionEngine engine = createEngine(engineName, errorHandler, jitThreshold, maxDepth, memoCapacity);
+        if (engine == null) {
+            System.err.println("Unknown engine '" + engineName + "'");
+            System.err.println(USAGE);
+            return 1;
+        }
+        if (memoCapacity > 0 && !engineName.equals("ast")) {
+            System.err.println("--memoize is only supported by the ast engine");
+            System.err.println(USAGE);
+            return 1;
+        }
+        engine.setOutput(new BufferedOutputSink(System.out, lineBuffered));
         
         try {
-            // Read source code
-            String sourceCode = IoUtils.readFile(sourceFile);
-            
-            // Lexical analysis
-            Lexer lexer = new Lexer(sourceCode);
+            // Lexical analysis, straight from the mapped source file
+            Lexer lexer = new Lexer(IoUtils.mapFile(sourceFile));
             
             // Syntax analysis
             Parser parser = new Parser(lexer);
@@ -77,9 +158,17 @@ public class Main {
                 return 1;
             }
             
+            if (disassemble) {
+                System.out.print(Disassembler.disassemble(VmEngine.compile(optimizedAst)));
+                return 0;
+            }
+            
             // Interpretation
-            Interpreter interpreter = new Interpreter(errorHandler);
-            interpreter.interpret(optimizedAst);
+            if (outputFile == null) {
+                engine.interpret(optimizedAst);
+            } else if (!interpretToFile(engine, optimizedAst, outputFile)) {
+                return 1;
+            }
             
             if (errorHandler.hasErrors()) {
                 errorHandler.printErrors();
@@ -106,4 +195,46 @@ public class Main {
             return 1;
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Run the program with its print output written to {@code outputFile} by
+     * a background thread, so the interpreter does not wait for the disk.
+     * Returns false after reporting a failure to write the file.
+     */
+    private static boolean interpretToFile(ExecutionEngine engine, ProgramNode program, String outputFile) {
+        try (AsyncFileOutput output = new AsyncFileOutput(Path.of(outputFile))) {
+            engine.setOutput(new BufferedOutputSink(output, false));
+            engine.interpret(program);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+            return false;
+        } catch (UncheckedIOException e) {
+            System.err.println("Error writing output: " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Select the execution engine named on the command line.
+     * "ast" walks the tree directly (compiling hot functions to JVM bytecode
+     * after {@code jitThreshold} calls, 0 disables that), "closure" compiles it
+     * to closures first, "specializing" does the same with operator nodes that
+     * specialize on observed operand types, and "vm" compiles it to bytecode
+     * for the virtual machine. Every engine stops with a runtime error once
+     * calls nest {@code maxDepth} deep; only the virtual machine keeps its
+     * call stack on the heap, so the tree engines may run out of Java stack
+     * first and report that as a runtime error instead. Only "ast" memoizes
+     * pure functions, keeping up to {@code memoCapacity} results per closure.
+     */
+    private static ExecutionEngine createEngine(String name, ErrorHandler errorHandler, int jitThreshold,
+                                                int maxDepth, int memoCapacity) {
+        return switch (name) {
+            case "ast" -> new Interpreter(errorHandler, jitThreshold, maxDepth, memoCapacity);
+            case "closure" -> new ClosureEngine(errorHandler, false, maxDepth);
+            case "specializing" -> new ClosureEngine(errorHandler, true, maxDepth);
+            case "vm" -> new VmEngine(errorHandler, maxDepth);
+            default -> null;
+        };
+    }
+}
@@ -68,6 +68,7 @@ public class LexerAdapter implements java_cup.runtime.Scanner {
             case IS -> Symbols.IS;
             case RETURN -> Symbols.RETURN;
             case PRINT -> Symbols.PRINT;
+            case INPUT -> Symbols.INPUT;
             case TRUE -> Symbols.TRUE;
             case FALSE -> Symbols.FALSE;
             case NONE -> Symbols.NONE;
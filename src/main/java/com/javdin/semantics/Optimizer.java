@@ -139,7 +139,8 @@ public class Optimizer implements AstVisitor<AstNode> {
         for (DeclarationNode.VariableDefinition varDef : node.getVariables()) {
             // Optimization 2: Remove unused variables
             if (!usedVariables.contains(varDef.getName()) && 
-                !varDef.getName().startsWith("_")) { // Keep variables starting with _
+                !varDef.getName().startsWith("_") && // Keep variables starting with _
+                !readsInput(varDef.getInitialValue())) { // and reads that skip input
                 errorHandler.addInfo("Unused variable removal: '" + varDef.getName() + "'", 
                                    node.getLine(), node.getColumn());
                 // Skip this variable
@@ -169,7 +170,7 @@ public class Optimizer implements AstVisitor<AstNode> {
         
         // Optimization 1: Constant expression simplification
         if (left instanceof LiteralNode && right instanceof LiteralNode) {
-            LiteralNode result = foldConstants((LiteralNode) left, (LiteralNode) right, node.getOperator());
+            LiteralNode result = foldConstants((LiteralNode) left, (LiteralNode) right, node.getOp());
             if (result != null) {
                 // Report successful constant folding
                 String leftStr = formatLiteralValue((LiteralNode) left);
@@ -183,7 +184,7 @@ public class Optimizer implements AstVisitor<AstNode> {
             }
         }
         
-        return new BinaryOpNode(node.getLine(), node.getColumn(), left, node.getOperator(), right);
+        return new BinaryOpNode(node.getLine(), node.getColumn(), left, node.getOp(), right);
     }
     
     @Override
@@ -260,7 +261,7 @@ public class Optimizer implements AstVisitor<AstNode> {
     }
     
     // Constant folding helper
-    private LiteralNode foldConstants(LiteralNode left, LiteralNode right, String operator) {
+    private LiteralNode foldConstants(LiteralNode left, LiteralNode right, Operator operator) {
         try {
             // Handle boolean operations
             if (left.getType() == LiteralNode.LiteralType.BOOLEAN && 
@@ -271,7 +272,7 @@ public class Optimizer implements AstVisitor<AstNode> {
             // Handle numeric operations
             if (isNumeric(left) && isNumeric(right)) {
                 // Try comparison operators first
-                if (isComparisonOperator(operator)) {
+                if (operator.getKind() == Operator.Kind.COMPARISON || operator.getKind() == Operator.Kind.EQUALITY) {
                     return foldComparisonConstants(left, right, operator);
                 }
                 // Then try arithmetic operators
@@ -285,10 +286,34 @@ public class Optimizer implements AstVisitor<AstNode> {
         return null;
     }
     
-    private boolean isComparisonOperator(String operator) {
-        return operator.equals("<") || operator.equals("<=") || 
-               operator.equals(">") || operator.equals(">=") || 
-               operator.equals("=") || operator.equals("!=") || operator.equals("/=");
+    /**
+     * Whether evaluating the expression may consume input. Function literals
+     * are not looked into, since their bodies only run when called, and any
+     * call is assumed to read, since the body it runs is not known here.
+     */
+    private boolean readsInput(ExpressionNode node) {
+        if (node instanceof InputNode) {
+            return true;
+        } else if (node instanceof BinaryOpNode) {
+            BinaryOpNode binaryOp = (BinaryOpNode) node;
+            return readsInput(binaryOp.getLeft()) || readsInput(binaryOp.getRight());
+        } else if (node instanceof UnaryOpNode) {
+            return readsInput(((UnaryOpNode) node).getOperand());
+        } else if (node instanceof FunctionCallNode) {
+            return true;
+        } else if (node instanceof ArrayAccessNode) {
+            ArrayAccessNode arrayAccess = (ArrayAccessNode) node;
+            return readsInput(arrayAccess.getArray()) || readsInput(arrayAccess.getIndex());
+        } else if (node instanceof ArrayLiteralNode) {
+            return ((ArrayLiteralNode) node).getElements().stream().anyMatch(this::readsInput);
+        } else if (node instanceof TupleLiteralNode) {
+            return ((TupleLiteralNode) node).getElements().stream().anyMatch(e -> readsInput(e.getValue()));
+        } else if (node instanceof TypeCheckNode) {
+            return readsInput(((TypeCheckNode) node).getExpression());
+        } else if (node instanceof TupleMemberAccessNode) {
+            return readsInput(((TupleMemberAccessNode) node).getTuple());
+        }
+        return false;
     }
     
     private boolean isNumeric(LiteralNode node) {
@@ -296,12 +321,12 @@ public class Optimizer implements AstVisitor<AstNode> {
                node.getType() == LiteralNode.LiteralType.REAL;
     }
     
-    private LiteralNode foldNumericConstants(LiteralNode left, LiteralNode right, String operator) {
+    private LiteralNode foldNumericConstants(LiteralNode left, LiteralNode right, Operator operator) {
         double leftVal = ((Number) left.getValue()).doubleValue();
         double rightVal = ((Number) right.getValue()).doubleValue();
         
         // Handle integer division semantics separately to obey Project D spec
-        if ("/".equals(operator) &&
+        if (operator == Operator.DIVIDE &&
             left.getType() == LiteralNode.LiteralType.INTEGER &&
             right.getType() == LiteralNode.LiteralType.INTEGER) {
             if (rightVal == 0) {
@@ -314,10 +339,10 @@ public class Optimizer implements AstVisitor<AstNode> {
         }
         
         double result = switch (operator) {
-            case "+" -> leftVal + rightVal;
-            case "-" -> leftVal - rightVal;
-            case "*" -> leftVal * rightVal;
-            case "/" -> {
+            case ADD -> leftVal + rightVal;
+            case SUBTRACT -> leftVal - rightVal;
+            case MULTIPLY -> leftVal * rightVal;
+            case DIVIDE -> {
                 if (rightVal == 0) {
                     yield Double.NaN;
                 }
@@ -342,15 +367,15 @@ public class Optimizer implements AstVisitor<AstNode> {
                              left.getLine(), left.getColumn());
     }
     
-    private LiteralNode foldBooleanConstants(LiteralNode left, LiteralNode right, String operator) {
+    private LiteralNode foldBooleanConstants(LiteralNode left, LiteralNode right, Operator operator) {
         boolean leftVal = (Boolean) left.getValue();
         boolean rightVal = (Boolean) right.getValue();
         boolean result = false;
         
         switch (operator) {
-            case "and": result = leftVal && rightVal; break;
-            case "or": result = leftVal || rightVal; break;
-            case "xor": result = leftVal != rightVal; break;
+            case AND: result = leftVal && rightVal; break;
+            case OR: result = leftVal || rightVal; break;
+            case XOR: result = leftVal != rightVal; break;
             default: return null;
         }
         
@@ -358,7 +383,7 @@ public class Optimizer implements AstVisitor<AstNode> {
                              left.getLine(), left.getColumn());
     }
     
-    private LiteralNode foldComparisonConstants(LiteralNode left, LiteralNode right, String operator) {
+    private LiteralNode foldComparisonConstants(LiteralNode left, LiteralNode right, Operator operator) {
         double leftVal = left.getType() == LiteralNode.LiteralType.INTEGER ? 
             ((Number) left.getValue()).doubleValue() : ((Number) left.getValue()).doubleValue();
         double rightVal = right.getType() == LiteralNode.LiteralType.INTEGER ? 
@@ -366,13 +391,12 @@ public class Optimizer implements AstVisitor<AstNode> {
             
         boolean result = false;
         switch (operator) {
-            case "<": result = leftVal < rightVal; break;
-            case "<=": result = leftVal <= rightVal; break;
-            case ">": result = leftVal > rightVal; break;
-            case ">=": result = leftVal >= rightVal; break;
-            case "=": result = leftVal == rightVal; break;
-            case "!=":
-            case "/=": result = leftVal != rightVal; break;
+            case LESS: result = leftVal < rightVal; break;
+            case LESS_EQUAL: result = leftVal <= rightVal; break;
+            case GREATER: result = leftVal > rightVal; break;
+            case GREATER_EQUAL: result = leftVal >= rightVal; break;
+            case EQUAL: result = leftVal == rightVal; break;
+            case NOT_EQUAL: result = leftVal != rightVal; break;
             default: return null;
         }
         
@@ -429,7 +453,7 @@ public class Optimizer implements AstVisitor<AstNode> {
     @Override public AstNode visitReference(ReferenceNode node) { return node; }
     @Override public AstNode visitUnaryOp(UnaryOpNode node) {
         ExpressionNode operand = (ExpressionNode) node.getOperand().accept(this);
-        return new UnaryOpNode(node.getLine(), node.getColumn(), node.getOperator(), operand);
+        return new UnaryOpNode(node.getLine(), node.getColumn(), node.getOp(), operand);
     }
     
     @Override public AstNode visitFunctionCall(FunctionCallNode node) {
@@ -486,6 +510,8 @@ public class Optimizer implements AstVisitor<AstNode> {
         return new TypeCheckNode(node.getLine(), node.getColumn(), expr, node.getTypeIndicator());
     }
     
+    @Override public AstNode visitInput(InputNode node) { return node; }
+    
     /**
      * Helper method to format a literal value for display in optimization messages
      */
@@ -505,8 +531,7 @@ public class Optimizer implements AstVisitor<AstNode> {
     @Override public AstNode visitTupleMemberAccess(TupleMemberAccessNode node) {
         ExpressionNode tuple = (ExpressionNode) node.getTuple().accept(this);
         if (node.isNumericIndex()) {
-            int index = Integer.parseInt(node.getMemberName());
-            return new TupleMemberAccessNode(node.getLine(), node.getColumn(), tuple, index);
+            return new TupleMemberAccessNode(node.getLine(), node.getColumn(), tuple, node.getIndex());
         }
         return new TupleMemberAccessNode(node.getLine(), node.getColumn(), tuple, node.getMemberName());
     }
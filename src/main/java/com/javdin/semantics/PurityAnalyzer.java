@@ -0,0 +1,327 @@
+package com.javdin.semantics;
+
+import com.javdin.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Marks function literals whose result depends only on their arguments.
+ *
+ * A function is pure when its own body (not counting nested function
+ * literals) prints nothing, assigns only to its own variables, does not
+ * store into arrays or tuples, and reads variables of enclosing scopes only
+ * if they are stable: declared once with a literal or function literal and
+ * never assigned afterwards, so they always hold the same immutable value
+ * or function. Which function a call reaches is only known at runtime, so
+ * calls are not judged here; an engine that memoizes pure functions must
+ * also check that no impure function ran during the call.
+ *
+ * Variables are identified by the frame that owns them and their slot, so
+ * the analyzer must run after the {@link Resolver}.
+ */
+public class PurityAnalyzer implements AstVisitor<Void> {
+    // Owners of the frames that exist at the current point, innermost last
+    private final List<AstNode> frames = new ArrayList<>();
+    private final Deque<FunctionFacts> functions = new ArrayDeque<>();
+    private final List<FunctionFacts> analyzed = new ArrayList<>();
+    private final Set<Variable> constantDeclarations = new HashSet<>();
+    private final Set<Variable> unstable = new HashSet<>();
+
+    public void analyze(ProgramNode program) {
+        program.accept(this);
+        for (FunctionFacts facts : analyzed) {
+            boolean pure = !facts.effects;
+            for (Variable variable : facts.freeReads) {
+                pure &= constantDeclarations.contains(variable) && !unstable.contains(variable);
+            }
+            facts.literal.setPure(pure);
+        }
+    }
+
+    @Override
+    public Void visitProgram(ProgramNode node) {
+        frames.add(node);
+        for (StatementNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        frames.remove(frames.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitDeclaration(DeclarationNode node) {
+        AstNode owner = frames.get(frames.size() - 1);
+        for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+            Variable variable = new Variable(owner, definition.getSlot());
+            ExpressionNode initialValue = definition.getInitialValue();
+            boolean constant = initialValue instanceof LiteralNode || initialValue instanceof FunctionLiteralNode;
+            // A name declared twice in one scope reuses its slot, which amounts to an assignment
+            if (!constant || !constantDeclarations.add(variable)) {
+                unstable.add(variable);
+            }
+            if (initialValue != null) {
+                initialValue.accept(this);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentNode node) {
+        ExpressionNode target = node.getTarget();
+        if (target instanceof ReferenceNode reference) {
+            Variable variable = variableOf(reference);
+            if (variable == null || !isLocal(reference)) {
+                markEffect();
+            }
+            if (variable != null) {
+                unstable.add(variable);
+            }
+        } else if (target instanceof ArrayAccessNode arrayAccess) {
+            markEffect();
+            arrayAccess.getArray().accept(this);
+            arrayAccess.getIndex().accept(this);
+        } else if (target instanceof TupleMemberAccessNode memberAccess) {
+            markEffect();
+            memberAccess.getTuple().accept(this);
+        } else {
+            markEffect();
+        }
+        node.getValue().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(IfNode node) {
+        node.getCondition().accept(this);
+        node.getThenStatement().accept(this);
+        if (node.getElseStatement() != null) {
+            node.getElseStatement().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileNode node) {
+        node.getCondition().accept(this);
+        node.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForNode node) {
+        if (node.getIterable() != null) {
+            node.getIterable().accept(this);
+        }
+        if (node.getRangeEnd() != null) {
+            node.getRangeEnd().accept(this);
+        }
+        if (node.getVariable() == null) {
+            node.getBody().accept(this);
+            return null;
+        }
+        frames.add(node);
+        node.getBody().accept(this);
+        frames.remove(frames.size() - 1);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnNode node) {
+        if (node.getValue() != null) {
+            node.getValue().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(BreakNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(ContinueNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(PrintNode node) {
+        markEffect();
+        for (ExpressionNode expression : node.getExpressions()) {
+            expression.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockNode node) {
+        boolean materialized = node.getFrameSize() > 0;
+        if (materialized) {
+            frames.add(node);
+        }
+        for (StatementNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        if (materialized) {
+            frames.remove(frames.size() - 1);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementNode node) {
+        node.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(LiteralNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitReference(ReferenceNode node) {
+        FunctionFacts facts = functions.peek();
+        if (facts == null || isLocal(node)) {
+            return null;
+        }
+        Variable variable = variableOf(node);
+        if (variable == null) {
+            facts.effects = true;
+        } else {
+            facts.freeReads.add(variable);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOp(BinaryOpNode node) {
+        node.getLeft().accept(this);
+        node.getRight().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOp(UnaryOpNode node) {
+        node.getOperand().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallNode node) {
+        node.getFunction().accept(this);
+        for (ExpressionNode argument : node.getArguments()) {
+            argument.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAccess(ArrayAccessNode node) {
+        node.getArray().accept(this);
+        node.getIndex().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionLiteral(FunctionLiteralNode node) {
+        frames.add(node);
+        FunctionFacts facts = new FunctionFacts(node, frames.size() - 1);
+        functions.push(facts);
+        if (node.isExpressionBody()) {
+            node.getExpressionBody().accept(this);
+        } else {
+            for (StatementNode statement : node.getStatementBody()) {
+                statement.accept(this);
+            }
+        }
+        functions.pop();
+        frames.remove(frames.size() - 1);
+        analyzed.add(facts);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(ArrayLiteralNode node) {
+        for (ExpressionNode element : node.getElements()) {
+            element.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitTupleLiteral(TupleLiteralNode node) {
+        for (TupleLiteralNode.TupleElement element : node.getElements()) {
+            if (element.getValue() != null) {
+                element.getValue().accept(this);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCheck(TypeCheckNode node) {
+        node.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitTupleMemberAccess(TupleMemberAccessNode node) {
+        node.getTuple().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitInput(InputNode node) {
+        markEffect();
+        return null;
+    }
+
+    private void markEffect() {
+        FunctionFacts facts = functions.peek();
+        if (facts != null) {
+            facts.effects = true;
+        }
+    }
+
+    /**
+     * The variable a resolved reference denotes, or null if it is unresolved.
+     */
+    private Variable variableOf(ReferenceNode reference) {
+        if (!reference.isResolved()) {
+            return null;
+        }
+        int frame = frames.size() - 1 - reference.getDepth();
+        return frame >= 0 ? new Variable(frames.get(frame), reference.getSlot()) : null;
+    }
+
+    /**
+     * Whether a reference denotes a variable of the innermost function activation.
+     */
+    private boolean isLocal(ReferenceNode reference) {
+        FunctionFacts facts = functions.peek();
+        return facts != null && reference.isResolved()
+            && frames.size() - 1 - reference.getDepth() >= facts.frame;
+    }
+
+    private record Variable(AstNode owner, int slot) {
+    }
+
+    private static final class FunctionFacts {
+        private final FunctionLiteralNode literal;
+        // Index in frames of the function's own frame
+        private final int frame;
+        private final Set<Variable> freeReads = new HashSet<>();
+        private boolean effects;
+
+        private FunctionFacts(FunctionLiteralNode literal, int frame) {
+            this.literal = literal;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.javdin.semantics;
+
+import com.javdin.ast.*;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Resolves every variable to a fixed frame address before execution.
+ *
+ * The program, each function activation, each loop iteration with a loop
+ * variable and each block that declares variables get their own frame.
+ * References are annotated with (depth, slot): how many frames to walk up
+ * from the current one and which slot to read. Blocks without declarations
+ * do not allocate a frame at all. Loops whose body contains no function
+ * literal are marked so that engines can reuse one frame for all iterations,
+ * since no closure can observe that the loop variable is rebound in place.
+ * Calls whose result is returned as is, by {@code return f(x)} or as an
+ * expression body, are marked as tail calls.
+ *
+ * Resolution follows the runtime scoping rules of the interpreter, so the
+ * resolver must run on the final (optimized) AST. References that cannot be
+ * resolved are left unresolved and reported by the interpreter on use.
+ */
+public class Resolver implements AstVisitor<Void> {
+    private final Deque<ResolverScope> scopes = new ArrayDeque<>();
+    private int functionLiterals;
+    private int functionDepth;
+
+    public void resolve(ProgramNode program) {
+        program.accept(this);
+    }
+
+    @Override
+    public Void visitProgram(ProgramNode node) {
+        ResolverScope scope = pushScope(true);
+        for (StatementNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        popScope();
+        node.setFrameSize(scope.size());
+        return null;
+    }
+
+    @Override
+    public Void visitDeclaration(DeclarationNode node) {
+        // All names of one declaration are bound before any initializer runs,
+        // mirroring the interpreter's predeclaration of the whole statement
+        ResolverScope scope = scopes.peek();
+        for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+            definition.setSlot(scope.declare(definition.getName()));
+        }
+        for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+            if (definition.getInitialValue() != null) {
+                definition.getInitialValue().accept(this);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentNode node) {
+        node.getTarget().accept(this);
+        node.getValue().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(IfNode node) {
+        node.getCondition().accept(this);
+        node.getThenStatement().accept(this);
+        if (node.getElseStatement() != null) {
+            node.getElseStatement().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileNode node) {
+        node.getCondition().accept(this);
+        node.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForNode node) {
+        // Loop bounds are evaluated in the enclosing scope, before the loop variable exists
+        if (node.getIterable() != null) {
+            node.getIterable().accept(this);
+        }
+        if (node.getRangeEnd() != null) {
+            node.getRangeEnd().accept(this);
+        }
+        if (node.getVariable() == null) {
+            node.getBody().accept(this);
+            return null;
+        }
+        ResolverScope scope = pushScope(true);
+        node.setVariableSlot(scope.declare(node.getVariable()));
+        int functionLiteralsBefore = functionLiterals;
+        node.getBody().accept(this);
+        node.setVariableCaptured(functionLiterals != functionLiteralsBefore);
+        popScope();
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnNode node) {
+        if (functionDepth > 0 && node.getValue() instanceof FunctionCallNode call) {
+            call.setTailCall(true);
+        }
+        if (node.getValue() != null) {
+            node.getValue().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(BreakNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(ContinueNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(PrintNode node) {
+        for (ExpressionNode expression : node.getExpressions()) {
+            expression.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockNode node) {
+        ResolverScope scope = pushScope(declaresVariables(node));
+        for (StatementNode statement : node.getStatements()) {
+            statement.accept(this);
+        }
+        popScope();
+        node.setFrameSize(scope.size());
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementNode node) {
+        node.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(LiteralNode node) {
+        return null;
+    }
+
+    @Override
+    public Void visitReference(ReferenceNode node) {
+        int depth = 0;
+        Iterator<ResolverScope> iterator = scopes.iterator();
+        while (iterator.hasNext()) {
+            ResolverScope scope = iterator.next();
+            Integer slot = scope.slots.get(node.getName());
+            if (slot != null) {
+                node.resolve(depth, slot);
+                return null;
+            }
+            if (scope.materialized) {
+                depth++;
+            }
+        }
+        node.resolve(-1, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOp(BinaryOpNode node) {
+        node.getLeft().accept(this);
+        node.getRight().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOp(UnaryOpNode node) {
+        node.getOperand().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallNode node) {
+        node.getFunction().accept(this);
+        // A builtin is only called when no variable of its name is in scope
+        node.setBuiltin(node.getFunction() instanceof ReferenceNode reference && !reference.isResolved()
+            ? Builtin.named(reference.getName()) : null);
+        for (ExpressionNode argument : node.getArguments()) {
+            argument.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAccess(ArrayAccessNode node) {
+        node.getArray().accept(this);
+        node.getIndex().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionLiteral(FunctionLiteralNode node) {
+        functionLiterals++;
+        functionDepth++;
+        ResolverScope scope = pushScope(true);
+        // Parameter i always occupies slot i; a repeated name rebinds to the later slot
+        for (String parameter : node.getParameters()) {
+            scope.declareFresh(parameter);
+        }
+        if (node.isExpressionBody()) {
+            if (node.getExpressionBody() instanceof FunctionCallNode call) {
+                call.setTailCall(true);
+            }
+            node.getExpressionBody().accept(this);
+        } else {
+            for (StatementNode statement : node.getStatementBody()) {
+                statement.accept(this);
+            }
+        }
+        functionDepth--;
+        popScope();
+        node.setFrameSize(scope.size());
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(ArrayLiteralNode node) {
+        for (ExpressionNode element : node.getElements()) {
+            element.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitTupleLiteral(TupleLiteralNode node) {
+        for (TupleLiteralNode.TupleElement element : node.getElements()) {
+            if (element.getValue() != null) {
+                element.getValue().accept(this);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCheck(TypeCheckNode node) {
+        node.getExpression().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitTupleMemberAccess(TupleMemberAccessNode node) {
+        node.getTuple().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitInput(InputNode node) {
+        return null;
+    }
+
+    private ResolverScope pushScope(boolean materialized) {
+        ResolverScope scope = new ResolverScope(materialized);
+        scopes.push(scope);
+        return scope;
+    }
+
+    private void popScope() {
+        scopes.pop();
+    }
+
+    private boolean declaresVariables(BlockNode node) {
+        for (StatementNode statement : node.getStatements()) {
+            if (statement instanceof DeclarationNode) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compile-time view of one scope: names declared so far and their slots.
+     * Scopes that are not materialized never hold names and are skipped when
+     * counting frame depth.
+     */
+    private static final class ResolverScope {
+        private final boolean materialized;
+        private final Map<String, Integer> slots = new HashMap<>();
+        private int size;
+
+        private ResolverScope(boolean materialized) {
+            this.materialized = materialized;
+        }
+
+        private int declare(String name) {
+            Integer existing = slots.get(name);
+            return existing != null ? existing : declareFresh(name);
+        }
+
+        private int declareFresh(String name) {
+            slots.put(name, size);
+            return size++;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
@@ -208,7 +208,9 @@ public class SemanticAnalyzer implements AstVisitor<Void> {
     
     @Override
     public Void visitFunctionCall(FunctionCallNode node) {
-        node.getFunction().accept(this);
+        if (!(node.getFunction() instanceof ReferenceNode reference && isBuiltin(reference))) {
+            node.getFunction().accept(this);
+        }
         for (ExpressionNode arg : node.getArguments()) {
             arg.accept(this);
         }
@@ -277,6 +279,11 @@ public class SemanticAnalyzer implements AstVisitor<Void> {
         return null;
     }
     
+    @Override
+    public Void visitInput(InputNode node) {
+        return null;
+    }
+    
     @Override
     public Void visitLiteral(LiteralNode node) {
         // Literals are always valid
@@ -292,6 +299,10 @@ public class SemanticAnalyzer implements AstVisitor<Void> {
         return context.contains(CONTEXT_LOOP);
     }
     
+    private boolean isBuiltin(ReferenceNode reference) {
+        return Builtin.named(reference.getName()) != null && !symbolTable.isDeclared(reference.getName());
+    }
+    
     private void checkReference(ReferenceNode reference) {
         if (!symbolTable.isDeclared(reference.getName())) {
             errorHandler.addError("Variable '" + reference.getName() + "' is not declared", 
@@ -1,13 +1,21 @@
 package com.javdin.utils;
 
+import com.javdin.interpreter.InputSource;
+import com.javdin.interpreter.Value;
+
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Scanner;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
 
 /**
- * Utility class for I/O operations.
+ * Utility class for I/O operations. Standard input is read through the
+ * shared {@link InputSource}, so these reads and {@code input} expressions
+ * never lose each other's buffered data.
  */
 public class IoUtils {
     
@@ -20,27 +28,46 @@ public class IoUtils {
     }
     
     /**
-     * Read a line from standard input.
+     * Map a file into memory read-only, for lexing its bytes without
+     * decoding it first. The mapping stays valid after this returns.
+     */
+    public static MappedByteBuffer mapFile(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File is too large: " + size + " bytes");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+    
+    /**
+     * Read a line from standard input, or null at end of input.
      */
     public static String readLine() {
-        Scanner scanner = new Scanner(System.in);
-        return scanner.nextLine();
+        Value line = InputSource.standardInput().readLine();
+        return line == Value.VOID ? null : line.asString();
     }
     
     /**
      * Read an integer from standard input.
      */
     public static int readInt() {
-        Scanner scanner = new Scanner(System.in);
-        return scanner.nextInt();
+        return present(InputSource.standardInput().readInteger()).asInteger();
     }
     
     /**
      * Read a double from standard input.
      */
     public static double readDouble() {
-        Scanner scanner = new Scanner(System.in);
-        return scanner.nextDouble();
+        return present(InputSource.standardInput().readReal()).asReal();
+    }
+    
+    private static Value present(Value value) {
+        if (value == Value.VOID) {
+            throw new NoSuchElementException("No more input");
+        }
+        return value;
     }
     
     /**
@@ -175,7 +175,7 @@ public class AstXmlSerializer implements AstVisitor<String> {
     public String visitBinaryOp(BinaryOpNode node) {
         indent++;
         StringBuilder content = new StringBuilder();
-        content.append(getIndent()).append("<operator>").append(escapeXml(node.getOperator())).append("</operator>\n");
+        content.append(getIndent()).append("<operator>").append(escapeXml(node.getOp().getSymbol())).append("</operator>\n");
         content.append(element("left", "", node.getLeft().accept(this)));
         content.append(element("right", "", node.getRight().accept(this)));
         indent--;
@@ -186,7 +186,7 @@ public class AstXmlSerializer implements AstVisitor<String> {
     public String visitUnaryOp(UnaryOpNode node) {
         indent++;
         StringBuilder content = new StringBuilder();
-        content.append(getIndent()).append("<operator>").append(escapeXml(node.getOperator())).append("</operator>\n");
+        content.append(getIndent()).append("<operator>").append(escapeXml(node.getOp().getSymbol())).append("</operator>\n");
         content.append(element("operand", "", node.getOperand().accept(this)));
         indent--;
         return element("unary_operation", "", content.toString());
@@ -312,6 +312,16 @@ public class AstXmlSerializer implements AstVisitor<String> {
                       getIndent() + escapeXml(valueStr) + "\n");
     }
     
+    @Override
+    public String visitInput(InputNode node) {
+        String kind = switch (node.getKind()) {
+            case LINE -> "line";
+            case INTEGER -> "int";
+            case REAL -> "real";
+        };
+        return element("input", " type=\"" + kind + "\"", "");
+    }
+
     @Override
     public String visitTypeCheck(TypeCheckNode node) {
         indent++;
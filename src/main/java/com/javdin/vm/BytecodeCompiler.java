@@ -0,0 +1,644 @@
+package com.javdin.vm;
+
+import com.javdin.ast.*;
+import com.javdin.interpreter.MemberCache;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.RuntimeError;
+import com.javdin.interpreter.TupleShape;
+import com.javdin.interpreter.Value;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Compiles a resolved, optimized AST into {@link Chunk}s for the {@link VirtualMachine}.
+ *
+ * Expressions push exactly one value. Statements leave the operand stack as
+ * they found it. A statement's value is only observable when it ends a
+ * function body without an explicit return; statements in that position are
+ * compiled with {@code resultUsed} set and put their value in the VM's result
+ * register, all others skip that bookkeeping. Loops keep their state (last
+ * value, range counters, iteration index) on the operand stack while running.
+ */
+public class BytecodeCompiler implements AstVisitor<Void> {
+    private ChunkBuilder chunk;
+    private boolean resultUsed;
+
+    public Chunk compile(ProgramNode program) {
+        chunk = new ChunkBuilder();
+        program.accept(this);
+        return chunk.build("<program>", program.getFrameSize(), null);
+    }
+
+    @Override
+    public Void visitProgram(ProgramNode node) {
+        compileStatements(node.getStatements(), false);
+        chunk.emit(Opcode.HALT);
+        return null;
+    }
+
+    @Override
+    public Void visitDeclaration(DeclarationNode node) {
+        boolean used = resultUsed;
+        // Predeclare all variables to support mutual recursion and self references
+        for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+            chunk.emit(Opcode.DECLARE, definition.getSlot());
+        }
+        for (DeclarationNode.VariableDefinition definition : node.getVariables()) {
+            if (definition.getInitialValue() != null) {
+                definition.getInitialValue().accept(this);
+                chunk.emit(Opcode.DEFINE, definition.getSlot());
+            }
+        }
+        emitVoidResult(used);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentNode node) {
+        boolean used = resultUsed;
+        node.getValue().accept(this);
+        if (used) {
+            chunk.emit(Opcode.DUP);
+        }
+        ExpressionNode target = node.getTarget();
+        if (target instanceof ReferenceNode reference && reference.isResolved()) {
+            chunk.emit(Opcode.STORE, reference.getDepth(), reference.getSlot(), chunk.site(reference));
+        } else if (target instanceof ReferenceNode reference) {
+            chunk.emit(Opcode.POP);
+            emitError("Undefined variable: " + reference.getName(), reference);
+            chunk.emit(Opcode.POP);
+        } else if (target instanceof ArrayAccessNode arrayAccess) {
+            compileArrayOperands(arrayAccess);
+            chunk.emit(Opcode.SET_INDEX, chunk.site(arrayAccess.getArray()));
+        } else if (target instanceof TupleMemberAccessNode tupleAccess) {
+            tupleAccess.getTuple().accept(this);
+            int site = chunk.site(tupleAccess.getTuple());
+            if (tupleAccess.isNumericIndex()) {
+                chunk.emit(Opcode.SET_ELEMENT, tupleAccess.getIndex(), site);
+            } else {
+                chunk.emit(Opcode.SET_MEMBER, chunk.constant(new MemberCache(tupleAccess.getMemberName())), site);
+            }
+        } else {
+            chunk.emit(Opcode.POP);
+            emitError("Invalid assignment target", target);
+            chunk.emit(Opcode.POP);
+        }
+        if (used) {
+            chunk.emit(Opcode.SET_RESULT);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIf(IfNode node) {
+        boolean used = resultUsed;
+        node.getCondition().accept(this);
+        int toElse = chunk.emitJump(Opcode.JUMP_IF_FALSE);
+        compileStatement(node.getThenStatement(), used);
+        if (node.getElseStatement() == null && !used) {
+            chunk.patch(toElse);
+            return null;
+        }
+        int toEnd = chunk.emitJump(Opcode.JUMP);
+        chunk.patch(toElse);
+        if (node.getElseStatement() != null) {
+            compileStatement(node.getElseStatement(), used);
+        } else {
+            chunk.emit(Opcode.VOID_RESULT);
+        }
+        chunk.patch(toEnd);
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileNode node) {
+        boolean used = beginLoopValue();
+        LoopContext loop = chunk.beginLoop(used ? 1 : 0);
+        int start = chunk.position();
+        loop.continueTarget = start;
+        node.getCondition().accept(this);
+        int toEnd = chunk.emitJump(Opcode.JUMP_IF_FALSE);
+        compileLoopBody(loop, node.getBody(), used);
+        if (used) {
+            chunk.emit(Opcode.SAVE_LAST, 0);
+        }
+        chunk.emit(Opcode.JUMP, start);
+        chunk.patch(toEnd);
+        chunk.endLoop(loop);
+        endLoopValue(used);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForNode node) {
+        if (node.isInfiniteLoop()) {
+            compileInfiniteLoop(node);
+        } else if (node.isRangeLoop()) {
+            compileRangeLoop(node);
+        } else if (node.isIterableLoop()) {
+            compileIterableLoop(node);
+        } else {
+            emitError("Unsupported for-loop form", node);
+            chunk.emit(Opcode.POP);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnNode node) {
+        if (node.getValue() != null) {
+            node.getValue().accept(this);
+        } else {
+            chunk.emit(Opcode.PUSH_VOID);
+        }
+        chunk.emit(Opcode.RETURN);
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(BreakNode node) {
+        LoopContext loop = chunk.loops.peek();
+        if (loop == null) {
+            chunk.emit(Opcode.BREAK_OUT);
+            return null;
+        }
+        emitPopScopes(loop);
+        loop.breakJumps.add(chunk.emitJump(Opcode.JUMP));
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(ContinueNode node) {
+        LoopContext loop = chunk.loops.peek();
+        if (loop == null) {
+            chunk.emit(Opcode.CONTINUE_OUT);
+            return null;
+        }
+        emitPopScopes(loop);
+        loop.continueJumps.add(chunk.emitJump(Opcode.JUMP));
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(PrintNode node) {
+        boolean used = resultUsed;
+        for (ExpressionNode expression : node.getExpressions()) {
+            expression.accept(this);
+        }
+        chunk.emit(Opcode.PRINT, node.getExpressions().size());
+        resultUsed = used;
+        emitVoidResult(used);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(BlockNode node) {
+        boolean used = resultUsed;
+        if (node.getFrameSize() == 0) {
+            compileStatements(node.getStatements(), used);
+            return null;
+        }
+        chunk.emit(Opcode.ENTER_SCOPE, node.getFrameSize());
+        chunk.scopeDepth++;
+        compileStatements(node.getStatements(), used);
+        chunk.scopeDepth--;
+        chunk.emit(Opcode.EXIT_SCOPE);
+        return null;
+    }
+
+    @Override
+    public Void visitExpressionStatement(ExpressionStatementNode node) {
+        boolean used = resultUsed;
+        node.getExpression().accept(this);
+        chunk.emit(used ? Opcode.SET_RESULT : Opcode.POP);
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(LiteralNode node) {
+        chunk.emit(Opcode.CONST, chunk.constant(Operations.literal(node)));
+        return null;
+    }
+
+    @Override
+    public Void visitInput(InputNode node) {
+        chunk.emit(Opcode.INPUT, chunk.site(node));
+        return null;
+    }
+
+    @Override
+    public Void visitReference(ReferenceNode node) {
+        if (!node.isResolved()) {
+            emitError("Undefined variable: " + node.getName(), node);
+        } else if (node.getDepth() == 0) {
+            chunk.emit(Opcode.LOAD_LOCAL, node.getSlot(), chunk.site(node));
+        } else {
+            chunk.emit(Opcode.LOAD, node.getDepth(), node.getSlot(), chunk.site(node));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOp(BinaryOpNode node) {
+        node.getLeft().accept(this);
+        node.getRight().accept(this);
+        int opcode = switch (node.getOp()) {
+            case ADD -> Opcode.ADD;
+            case SUBTRACT -> Opcode.SUB;
+            case MULTIPLY -> Opcode.MUL;
+            case DIVIDE -> Opcode.DIV;
+            case LESS -> Opcode.LT;
+            case LESS_EQUAL -> Opcode.LE;
+            case GREATER -> Opcode.GT;
+            case GREATER_EQUAL -> Opcode.GE;
+            case EQUAL -> Opcode.EQ;
+            case NOT_EQUAL -> Opcode.NE;
+            case AND -> Opcode.AND;
+            case OR -> Opcode.OR;
+            case XOR -> Opcode.XOR;
+            default -> -1;
+        };
+        if (opcode == Opcode.EQ || opcode == Opcode.NE) {
+            chunk.emit(opcode);
+        } else if (opcode >= 0) {
+            chunk.emit(opcode, chunk.site(node));
+        } else {
+            chunk.emit(Opcode.POP_N, 2);
+            emitError("Unsupported operator '" + node.getOperator() + "'", node);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitUnaryOp(UnaryOpNode node) {
+        node.getOperand().accept(this);
+        switch (node.getOp()) {
+            case PLUS -> chunk.emit(Opcode.PLUS, chunk.site(node));
+            case NEGATE -> chunk.emit(Opcode.NEG, chunk.site(node));
+            case NOT -> chunk.emit(Opcode.NOT, chunk.site(node));
+            default -> {
+                chunk.emit(Opcode.POP);
+                emitError("Unsupported unary operator '" + node.getOperator() + "'", node);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionCall(FunctionCallNode node) {
+        if (node.getBuiltin() != null) {
+            for (ExpressionNode argument : node.getArguments()) {
+                argument.accept(this);
+            }
+            chunk.emit(Opcode.CALL_BUILTIN, node.getArguments().size(), chunk.site(node));
+            return null;
+        }
+        node.getFunction().accept(this);
+        chunk.emit(Opcode.CHECK_FUNCTION, chunk.site(node.getFunction()));
+        for (ExpressionNode argument : node.getArguments()) {
+            argument.accept(this);
+        }
+        chunk.emit(Opcode.CALL, node.getArguments().size(), chunk.site(node), chunk.scopeDepth);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAccess(ArrayAccessNode node) {
+        compileArrayOperands(node);
+        chunk.emit(Opcode.GET_INDEX, chunk.site(node.getArray()));
+        return null;
+    }
+
+    @Override
+    public Void visitFunctionLiteral(FunctionLiteralNode node) {
+        ChunkBuilder enclosing = chunk;
+        boolean enclosingUsed = resultUsed;
+        chunk = new ChunkBuilder();
+        if (node.isExpressionBody()) {
+            node.getExpressionBody().accept(this);
+            chunk.emit(Opcode.RETURN);
+        } else {
+            compileStatements(node.getStatementBody(), true);
+            chunk.emit(Opcode.RETURN_RESULT);
+        }
+        resultUsed = enclosingUsed;
+        String name = "func(" + String.join(", ", node.getParameters()) + ") at "
+            + node.getLine() + ":" + node.getColumn();
+        Chunk function = chunk.build(name, node.getFrameSize(), node);
+        chunk = enclosing;
+        chunk.emit(Opcode.CLOSURE, chunk.constant(function));
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(ArrayLiteralNode node) {
+        for (ExpressionNode element : node.getElements()) {
+            element.accept(this);
+        }
+        chunk.emit(Opcode.ARRAY, node.getElements().size());
+        return null;
+    }
+
+    @Override
+    public Void visitTupleLiteral(TupleLiteralNode node) {
+        List<TupleLiteralNode.TupleElement> elements = node.getElements();
+        String[] names = new String[elements.size()];
+        for (int i = 0; i < names.length; i++) {
+            TupleLiteralNode.TupleElement element = elements.get(i);
+            names[i] = element.getName();
+            if (element.getValue() != null) {
+                element.getValue().accept(this);
+            } else {
+                chunk.emit(Opcode.PUSH_VOID);
+            }
+        }
+        chunk.emit(Opcode.TUPLE, chunk.constant(TupleShape.of(names)));
+        return null;
+    }
+
+    @Override
+    public Void visitTypeCheck(TypeCheckNode node) {
+        node.getExpression().accept(this);
+        try {
+            Value.ValueType expected = Operations.typeForIndicator(node.getTypeIndicator(), node);
+            chunk.emit(Opcode.TYPE_IS, expected.ordinal());
+        } catch (RuntimeError error) {
+            chunk.emit(Opcode.POP);
+            emitError(error.getMessage(), node);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitTupleMemberAccess(TupleMemberAccessNode node) {
+        node.getTuple().accept(this);
+        int site = chunk.site(node.getTuple());
+        if (node.isNumericIndex()) {
+            chunk.emit(Opcode.GET_ELEMENT, node.getIndex(), site);
+        } else {
+            chunk.emit(Opcode.GET_MEMBER, chunk.constant(new MemberCache(node.getMemberName())), site);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a statement list whose value (that of the last statement) is
+     * only kept when {@code used} is set.
+     */
+    private void compileStatements(List<StatementNode> statements, boolean used) {
+        if (statements.isEmpty()) {
+            if (used) {
+                chunk.emit(Opcode.VOID_RESULT);
+            }
+            return;
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            compileStatement(statements.get(i), used && i == statements.size() - 1);
+        }
+    }
+
+    private void compileStatement(StatementNode statement, boolean used) {
+        resultUsed = used;
+        statement.accept(this);
+    }
+
+    private void emitVoidResult(boolean used) {
+        if (used) {
+            chunk.emit(Opcode.VOID_RESULT);
+        }
+    }
+
+    /**
+     * Pushes the slot holding a loop's last body value when the loop's own value is used.
+     */
+    private boolean beginLoopValue() {
+        boolean used = resultUsed;
+        if (used) {
+            chunk.emit(Opcode.PUSH_VOID);
+        }
+        return used;
+    }
+
+    private void endLoopValue(boolean used) {
+        if (used) {
+            chunk.emit(Opcode.POP_RESULT);
+        }
+    }
+
+    /**
+     * Pushes array and index. The array is type-checked before the index is
+     * evaluated, matching the interpreter's error order.
+     */
+    private void compileArrayOperands(ArrayAccessNode node) {
+        node.getArray().accept(this);
+        if (!(node.getIndex() instanceof LiteralNode)) {
+            chunk.emit(Opcode.CHECK_ARRAY, chunk.site(node.getArray()));
+        }
+        node.getIndex().accept(this);
+    }
+
+    private void compileInfiniteLoop(ForNode node) {
+        boolean used = beginLoopValue();
+        LoopContext loop = chunk.beginLoop(used ? 1 : 0);
+        int start = chunk.position();
+        loop.continueTarget = start;
+        compileLoopBody(loop, node.getBody(), used);
+        if (used) {
+            chunk.emit(Opcode.SAVE_LAST, 0);
+        }
+        chunk.emit(Opcode.JUMP, start);
+        chunk.endLoop(loop);
+        endLoopValue(used);
+    }
+
+    private void compileRangeLoop(ForNode node) {
+        // Stack while looping: [last], current, end, step
+        boolean used = beginLoopValue();
+        node.getIterable().accept(this);
+        chunk.emit(Opcode.TO_INT);
+        node.getRangeEnd().accept(this);
+        chunk.emit(Opcode.TO_INT);
+        chunk.emit(Opcode.RANGE_INIT);
+        LoopContext loop = chunk.beginLoop(used ? 4 : 3);
+        int toEnd = chunk.emitJump(Opcode.RANGE_TEST);
+        int start = chunk.position();
+        boolean hasVariable = node.getVariable() != null;
+        if (hasVariable) {
+            chunk.emit(Opcode.RANGE_BIND, node.getVariableSlot());
+            chunk.scopeDepth++;
+        }
+        compileLoopBody(loop, node.getBody(), used);
+        if (hasVariable) {
+            chunk.scopeDepth--;
+            chunk.emit(Opcode.EXIT_SCOPE);
+        }
+        if (used) {
+            chunk.emit(Opcode.SAVE_LAST, 3);
+        }
+        loop.continueTarget = chunk.position();
+        chunk.emit(Opcode.RANGE_STEP, start);
+        chunk.patch(toEnd);
+        chunk.endLoop(loop);
+        chunk.emit(Opcode.POP_N, 3);
+        endLoopValue(used);
+    }
+
+    private void compileIterableLoop(ForNode node) {
+        // Stack while looping: [last], iterable, index
+        boolean used = beginLoopValue();
+        node.getIterable().accept(this);
+        chunk.emit(Opcode.ITER_INIT, chunk.site(node.getIterable()));
+        LoopContext loop = chunk.beginLoop(used ? 3 : 2);
+        int start = chunk.position();
+        int toEnd = chunk.emitJump(Opcode.ITER_NEXT);
+        boolean hasVariable = node.getVariable() != null;
+        if (hasVariable) {
+            chunk.emit(Opcode.BIND, node.getVariableSlot());
+            chunk.scopeDepth++;
+        } else {
+            chunk.emit(Opcode.POP);
+        }
+        compileLoopBody(loop, node.getBody(), used);
+        if (hasVariable) {
+            chunk.scopeDepth--;
+            chunk.emit(Opcode.EXIT_SCOPE);
+        }
+        if (used) {
+            chunk.emit(Opcode.SAVE_LAST, 2);
+            int toStep = chunk.emitJump(Opcode.JUMP);
+            // A continued iteration leaves none as the loop's last value
+            loop.continueTarget = chunk.position();
+            chunk.emit(Opcode.VOID_RESULT);
+            chunk.emit(Opcode.SAVE_LAST, 2);
+            chunk.patch(toStep);
+        } else {
+            loop.continueTarget = chunk.position();
+        }
+        chunk.emit(Opcode.ITER_STEP, start);
+        chunk.patch(toEnd);
+        chunk.endLoop(loop);
+        chunk.emit(Opcode.POP_N, 2);
+        endLoopValue(used);
+    }
+
+    private void compileLoopBody(LoopContext loop, StatementNode body, boolean used) {
+        loop.bodyStart = chunk.position();
+        compileStatement(body, used);
+        loop.bodyEnd = chunk.position();
+    }
+
+    private void emitPopScopes(LoopContext loop) {
+        int scopes = chunk.scopeDepth - loop.scopeDepth;
+        if (scopes > 0) {
+            chunk.emit(Opcode.POP_SCOPES, scopes);
+        }
+    }
+
+    /**
+     * Emits an instruction that always fails; it counts as pushing one value.
+     */
+    private void emitError(String message, AstNode node) {
+        chunk.emit(Opcode.ERROR, chunk.constant(message), chunk.site(node));
+    }
+
+    /**
+     * Compilation state of a loop in the chunk being built.
+     */
+    private static final class LoopContext {
+        private final int held;
+        private final int stackDepth;
+        private final int scopeDepth;
+        private final List<Integer> breakJumps = new ArrayList<>();
+        private final List<Integer> continueJumps = new ArrayList<>();
+        private int continueTarget;
+        private int bodyStart;
+        private int bodyEnd;
+
+        private LoopContext(int held, int stackDepth, int scopeDepth) {
+            this.held = held;
+            this.stackDepth = stackDepth;
+            this.scopeDepth = scopeDepth;
+        }
+    }
+
+    /**
+     * Growable code buffer plus the tables of the chunk under construction.
+     */
+    private static final class ChunkBuilder {
+        private int[] code = new int[64];
+        private int size;
+        private final List<Object> constants = new ArrayList<>();
+        private final List<AstNode> sites = new ArrayList<>();
+        private final List<Chunk.LoopHandler> handlers = new ArrayList<>();
+        private final Deque<LoopContext> loops = new ArrayDeque<>();
+        private int scopeDepth;
+        private int heldValues;
+
+        private int position() {
+            return size;
+        }
+
+        private void emit(int... words) {
+            if (size + words.length > code.length) {
+                code = Arrays.copyOf(code, Math.max(code.length * 2, size + words.length));
+            }
+            System.arraycopy(words, 0, code, size, words.length);
+            size += words.length;
+        }
+
+        /**
+         * Emits a jump with a placeholder target and returns the operand position to patch.
+         */
+        private int emitJump(int opcode) {
+            emit(opcode, -1);
+            return size - 1;
+        }
+
+        private void patch(int operand) {
+            code[operand] = size;
+        }
+
+        private int constant(Object value) {
+            constants.add(value);
+            return constants.size() - 1;
+        }
+
+        private int site(AstNode node) {
+            sites.add(node);
+            return sites.size() - 1;
+        }
+
+        private LoopContext beginLoop(int held) {
+            heldValues += held;
+            LoopContext loop = new LoopContext(held, heldValues, scopeDepth);
+            loops.push(loop);
+            return loop;
+        }
+
+        /**
+         * Patches the loop's jumps to the current position (the loop exit)
+         * and records its handler; inner loops finish first, so they come first.
+         */
+        private void endLoop(LoopContext loop) {
+            loops.pop();
+            for (int jump : loop.breakJumps) {
+                code[jump] = size;
+            }
+            for (int jump : loop.continueJumps) {
+                code[jump] = loop.continueTarget;
+            }
+            handlers.add(new Chunk.LoopHandler(loop.bodyStart, loop.bodyEnd, size, loop.continueTarget,
+                loop.stackDepth, loop.scopeDepth));
+            heldValues -= loop.held;
+        }
+
+        private Chunk build(String name, int frameSize, FunctionLiteralNode literal) {
+            return new Chunk(name, Arrays.copyOf(code, size), constants.toArray(),
+                sites.toArray(new AstNode[0]), handlers.toArray(new Chunk.LoopHandler[0]), frameSize, literal);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.javdin.vm;
+
+import com.javdin.ast.AstNode;
+import com.javdin.ast.FunctionLiteralNode;
+
+/**
+ * Compiled code of the program or of one function literal: the instruction
+ * stream, its constant pool, the AST nodes used to position runtime errors,
+ * and the loop table used to route break/continue that escape a call.
+ */
+public final class Chunk {
+    private final String name;
+    private final int[] code;
+    private final Object[] constants;
+    private final AstNode[] sites;
+    private final LoopHandler[] loops;
+    private final int frameSize;
+    private final FunctionLiteralNode literal;
+
+    Chunk(String name, int[] code, Object[] constants, AstNode[] sites, LoopHandler[] loops,
+          int frameSize, FunctionLiteralNode literal) {
+        this.name = name;
+        this.code = code;
+        this.constants = constants;
+        this.sites = sites;
+        this.loops = loops;
+        this.frameSize = frameSize;
+        this.literal = literal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    public AstNode[] getSites() {
+        return sites;
+    }
+
+    public LoopHandler[] getLoops() {
+        return loops;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    /**
+     * The function literal this chunk was compiled from, or null for the program.
+     */
+    public FunctionLiteralNode getLiteral() {
+        return literal;
+    }
+
+    /**
+     * Innermost loop whose body contains the given instruction, or null.
+     * Loops are recorded inner-first, so the first match wins.
+     */
+    LoopHandler findLoop(int pc) {
+        for (LoopHandler loop : loops) {
+            if (pc >= loop.bodyStart() && pc < loop.bodyEnd()) {
+                return loop;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Code range of a loop body and where break and continue resume.
+     * {@code stackDepth} and {@code scopeDepth} describe the operand stack
+     * and scope chain at the loop itself, relative to the enclosing call.
+     */
+    public record LoopHandler(int bodyStart, int bodyEnd, int breakTarget, int continueTarget,
+                              int stackDepth, int scopeDepth) {
+    }
+}
@@ -0,0 +1,94 @@
+package com.javdin.vm;
+
+import com.javdin.ast.AstNode;
+import com.javdin.ast.FunctionCallNode;
+import com.javdin.ast.InputNode;
+import com.javdin.ast.ReferenceNode;
+import com.javdin.interpreter.TupleShape;
+import com.javdin.interpreter.Value;
+
+/**
+ * Renders chunks as a human-readable instruction listing, one chunk after
+ * another starting with the program and followed by every nested function.
+ */
+public final class Disassembler {
+
+    private Disassembler() {
+    }
+
+    public static String disassemble(Chunk program) {
+        StringBuilder out = new StringBuilder();
+        append(out, program);
+        return out.toString();
+    }
+
+    private static void append(StringBuilder out, Chunk chunk) {
+        out.append("== ").append(chunk.getName())
+            .append(" (frame size ").append(chunk.getFrameSize()).append(") ==\n");
+        int[] code = chunk.getCode();
+        int pc = 0;
+        while (pc < code.length) {
+            int opcode = code[pc];
+            int operands = Opcode.operandCount(opcode);
+            StringBuilder line = new StringBuilder(String.format("%5d  %-15s", pc, Opcode.name(opcode)));
+            for (int i = 1; i <= operands; i++) {
+                line.append(' ').append(code[pc + i]);
+            }
+            String comment = describe(chunk, opcode, pc);
+            if (comment != null) {
+                while (line.length() < 36) {
+                    line.append(' ');
+                }
+                line.append("; ").append(comment);
+            }
+            out.append(line.toString().stripTrailing()).append('\n');
+            pc += 1 + operands;
+        }
+        for (Chunk.LoopHandler loop : chunk.getLoops()) {
+            out.append(String.format("  loop body [%d, %d) break -> %d, continue -> %d%n",
+                loop.bodyStart(), loop.bodyEnd(), loop.breakTarget(), loop.continueTarget()));
+        }
+        for (Object constant : chunk.getConstants()) {
+            if (constant instanceof Chunk function) {
+                out.append('\n');
+                append(out, function);
+            }
+        }
+    }
+
+    private static String describe(Chunk chunk, int opcode, int pc) {
+        int[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        return switch (opcode) {
+            case Opcode.CONST -> literal((Value) constants[code[pc + 1]]);
+            case Opcode.CLOSURE -> ((Chunk) constants[code[pc + 1]]).getName();
+            case Opcode.TUPLE -> String.join(", ", names((TupleShape) constants[code[pc + 1]]));
+            case Opcode.GET_MEMBER, Opcode.SET_MEMBER -> "." + constants[code[pc + 1]];
+            case Opcode.ERROR -> "\"" + constants[code[pc + 1]] + "\"";
+            case Opcode.TYPE_IS -> Value.ValueType.values()[code[pc + 1]].name();
+            case Opcode.LOAD_LOCAL -> position(chunk.getSites()[code[pc + 2]]);
+            case Opcode.LOAD, Opcode.STORE -> position(chunk.getSites()[code[pc + 3]]);
+            case Opcode.CALL -> position(chunk.getSites()[code[pc + 2]]);
+            case Opcode.INPUT -> ((InputNode) chunk.getSites()[code[pc + 1]]).getKind().name();
+            case Opcode.CALL_BUILTIN -> ((FunctionCallNode) chunk.getSites()[code[pc + 2]]).getBuiltin().getName();
+            default -> null;
+        };
+    }
+
+    private static String literal(Value value) {
+        return value.getType() == Value.ValueType.STRING ? "\"" + value.asString() + "\"" : value.asString();
+    }
+
+    private static String[] names(TupleShape shape) {
+        String[] shown = new String[shape.size()];
+        for (int i = 0; i < shown.length; i++) {
+            shown[i] = shape.nameAt(i) != null ? shape.nameAt(i) : "_";
+        }
+        return shown;
+    }
+
+    private static String position(AstNode node) {
+        String text = node.getLine() + ":" + node.getColumn();
+        return node instanceof ReferenceNode reference ? reference.getName() + " @ " + text : "@ " + text;
+    }
+}
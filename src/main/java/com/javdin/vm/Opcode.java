@@ -0,0 +1,126 @@
+package com.javdin.vm;
+
+/**
+ * Instruction set of the Javdin virtual machine.
+ * Each instruction is one int opcode followed by a fixed number of int
+ * operands (see {@link #operandCount(int)}). "site" operands index the
+ * chunk's site table and only serve to position runtime errors.
+ */
+public final class Opcode {
+    // Constants and stack
+    public static final int CONST = 0;          // k           push constants[k]
+    public static final int PUSH_VOID = 1;      //             push none
+    public static final int POP = 2;            //             drop top
+    public static final int POP_N = 3;          // n           drop n values
+
+    // Variables
+    public static final int LOAD_LOCAL = 4;     // slot site   push env[slot]
+    public static final int LOAD = 5;           // depth slot site
+    public static final int STORE = 6;          // depth slot site   assign pop
+    public static final int DECLARE = 7;        // slot        env[slot] = none
+    public static final int DEFINE = 8;         // slot        env[slot] = pop
+    public static final int ENTER_SCOPE = 9;    // size        env = new Frame(size, env)
+    public static final int EXIT_SCOPE = 10;    //             env = env.parent
+    public static final int POP_SCOPES = 11;    // n           leave n scopes at once
+
+    // Operators
+    public static final int ADD = 12;           // site
+    public static final int SUB = 13;           // site
+    public static final int MUL = 14;           // site
+    public static final int DIV = 15;           // site
+    public static final int LT = 16;            // site
+    public static final int LE = 17;            // site
+    public static final int GT = 18;            // site
+    public static final int GE = 19;            // site
+    public static final int EQ = 20;
+    public static final int NE = 21;
+    public static final int AND = 22;           // site
+    public static final int OR = 23;            // site
+    public static final int XOR = 24;           // site
+    public static final int PLUS = 25;          // site
+    public static final int NEG = 26;           // site
+    public static final int NOT = 27;           // site
+    public static final int TYPE_IS = 28;       // type ordinal
+    public static final int TO_INT = 29;        //             top = integer(top.asInteger())
+
+    // Control flow
+    public static final int JUMP = 30;          // target
+    public static final int JUMP_IF_FALSE = 31; // target      pops, tests truthiness
+    public static final int SET_RESULT = 32;    //             result = pop
+    public static final int VOID_RESULT = 33;   //             result = none
+    public static final int SAVE_LAST = 34;     // n           stack[top - n] = result
+    public static final int POP_RESULT = 35;    //             result = pop
+    public static final int BREAK_OUT = 36;     //             exit escaping the current function
+    public static final int CONTINUE_OUT = 37;  //             continue escaping the current function
+    public static final int ERROR = 38;         // k site      throw constants[k] as a runtime error
+
+    // Loops
+    public static final int RANGE_INIT = 39;    //             [start end] -> [current end step]
+    public static final int RANGE_TEST = 40;    // target      jump when the range is exhausted
+    public static final int RANGE_STEP = 41;    // target      advance current, jump while still in range
+    public static final int RANGE_BIND = 42;    // slot        new scope with slot = current
+    public static final int ITER_INIT = 43;     // site        [iterable] -> [iterable 0]
+    public static final int ITER_NEXT = 44;     // target      push next element or jump when done
+    public static final int ITER_STEP = 45;     // target      advance index and jump
+    public static final int BIND = 46;          // slot        new scope with slot = pop
+
+    // Functions
+    public static final int CLOSURE = 47;       // k           push a function over constants[k]
+    public static final int CHECK_FUNCTION = 48;// site
+    public static final int CALL = 49;          // argc site scopes
+    public static final int RETURN = 50;        //             return pop
+    public static final int RETURN_RESULT = 51; //             return result
+
+    // Data structures and output
+    public static final int ARRAY = 52;         // n
+    public static final int TUPLE = 53;         // k           constants[k] holds the tuple shape
+    public static final int GET_INDEX = 54;     // site        [array index] -> element
+    public static final int SET_INDEX = 55;     // site        [value array index] -> []
+    public static final int GET_MEMBER = 56;    // k site      member named by the MemberCache constants[k]
+    public static final int SET_MEMBER = 57;    // k site      [value tuple] -> []
+    public static final int GET_ELEMENT = 58;   // i site      member at 1-based position i
+    public static final int SET_ELEMENT = 59;   // i site      [value tuple] -> []
+    public static final int PRINT = 60;         // n
+    public static final int HALT = 61;
+    public static final int CHECK_ARRAY = 62;   // site        fail early if top is not an array
+    public static final int DUP = 63;           //             push top again
+    public static final int INPUT = 64;         // site        push what the InputNode at site reads
+    public static final int CALL_BUILTIN = 65;  // argc site   call the builtin of the FunctionCallNode at site
+
+    private static final String[] NAMES = {
+        "CONST", "PUSH_VOID", "POP", "POP_N",
+        "LOAD_LOCAL", "LOAD", "STORE", "DECLARE", "DEFINE", "ENTER_SCOPE", "EXIT_SCOPE", "POP_SCOPES",
+        "ADD", "SUB", "MUL", "DIV", "LT", "LE", "GT", "GE", "EQ", "NE", "AND", "OR", "XOR",
+        "PLUS", "NEG", "NOT", "TYPE_IS", "TO_INT",
+        "JUMP", "JUMP_IF_FALSE", "SET_RESULT", "VOID_RESULT", "SAVE_LAST", "POP_RESULT",
+        "BREAK_OUT", "CONTINUE_OUT", "ERROR",
+        "RANGE_INIT", "RANGE_TEST", "RANGE_STEP", "RANGE_BIND", "ITER_INIT", "ITER_NEXT", "ITER_STEP", "BIND",
+        "CLOSURE", "CHECK_FUNCTION", "CALL", "RETURN", "RETURN_RESULT",
+        "ARRAY", "TUPLE", "GET_INDEX", "SET_INDEX", "GET_MEMBER", "SET_MEMBER", "GET_ELEMENT", "SET_ELEMENT",
+        "PRINT", "HALT", "CHECK_ARRAY", "DUP", "INPUT", "CALL_BUILTIN"
+    };
+
+    private static final int[] OPERANDS = {
+        1, 0, 0, 1,
+        2, 3, 3, 1, 1, 1, 0, 1,
+        1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 1, 1, 1,
+        1, 1, 1, 1, 0,
+        1, 1, 0, 0, 1, 0,
+        0, 0, 2,
+        0, 1, 1, 1, 1, 1, 1, 1,
+        1, 1, 3, 0, 0,
+        1, 1, 1, 1, 2, 2, 2, 2,
+        1, 0, 1, 0, 1, 2
+    };
+
+    private Opcode() {
+    }
+
+    public static String name(int opcode) {
+        return NAMES[opcode];
+    }
+
+    public static int operandCount(int opcode) {
+        return OPERANDS[opcode];
+    }
+}
@@ -0,0 +1,460 @@
+package com.javdin.vm;
+
+import com.javdin.ast.AstNode;
+import com.javdin.ast.FunctionCallNode;
+import com.javdin.ast.InputNode;
+import com.javdin.ast.ReferenceNode;
+import com.javdin.interpreter.ArrayValue;
+import com.javdin.interpreter.BufferedOutputSink;
+import com.javdin.interpreter.Builtins;
+import com.javdin.interpreter.ExecutionEngine;
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.InputSource;
+import com.javdin.interpreter.FunctionValue;
+import com.javdin.interpreter.MemberCache;
+import com.javdin.interpreter.Operations;
+import com.javdin.interpreter.OutputSink;
+import com.javdin.interpreter.RuntimeError;
+import com.javdin.interpreter.TupleShape;
+import com.javdin.interpreter.TupleValue;
+import com.javdin.interpreter.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stack machine executing {@link Chunk}s produced by {@link BytecodeCompiler}.
+ *
+ * Calls never recurse on the Java stack: each call pushes a {@link CallFrame}
+ * onto an explicit call stack and the dispatch loop switches to the callee's
+ * chunk. Variables still live in heap {@link Frame}s so closures can capture them.
+ * Loop counters live unboxed in {@code counters}, an int lane parallel to the
+ * operand stack, so stepping a loop allocates nothing.
+ */
+public class VirtualMachine {
+    private static final Value.ValueType[] TYPES = Value.ValueType.values();
+
+    private Value[] stack = new Value[256];
+    private int[] counters = new int[256];
+    private CallFrame[] calls = new CallFrame[32];
+    private int callDepth;
+    private final int maxDepth;
+    private final OutputSink output;
+    private final InputSource input;
+
+    public VirtualMachine() {
+        this(ExecutionEngine.DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates a machine that fails with a runtime error once calls nest
+     * {@code maxDepth} deep.
+     */
+    public VirtualMachine(int maxDepth) {
+        this(maxDepth, new BufferedOutputSink(System.out, true));
+    }
+
+    /**
+     * Creates a machine whose print instructions write to {@code output};
+     * the caller flushes it.
+     */
+    public VirtualMachine(int maxDepth, OutputSink output) {
+        this(maxDepth, output, InputSource.standardInput());
+    }
+
+    /**
+     * Creates a machine that also reads input instructions from {@code input}.
+     */
+    public VirtualMachine(int maxDepth, OutputSink output, InputSource input) {
+        this.maxDepth = maxDepth;
+        this.output = output;
+        this.input = input;
+    }
+
+    /**
+     * Outcome of a run that did not end in a runtime error.
+     */
+    public enum Completion {
+        NORMAL, STRAY_RETURN, STRAY_LOOP_CONTROL
+    }
+
+    public Completion run(Chunk program) {
+        Chunk chunk = program;
+        int[] code = chunk.getCode();
+        Object[] constants = chunk.getConstants();
+        AstNode[] sites = chunk.getSites();
+        Frame env = new Frame(chunk.getFrameSize(), new Frame(0, null));
+        int pc = 0;
+        int sp = 0;
+        int base = 0;
+        Value result = Value.VOID;
+        ensureStack(code.length);
+        Value[] stack = this.stack;
+        int[] counters = this.counters;
+
+        while (true) {
+            int opcode = code[pc++];
+            switch (opcode) {
+                case Opcode.CONST -> stack[sp++] = (Value) constants[code[pc++]];
+                case Opcode.PUSH_VOID -> stack[sp++] = Value.VOID;
+                case Opcode.POP -> sp--;
+                case Opcode.POP_N -> sp -= code[pc++];
+                case Opcode.DUP -> {
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                }
+
+                case Opcode.LOAD_LOCAL -> {
+                    Value value = env.get(code[pc]);
+                    if (value == null) {
+                        throw undefinedVariable(sites[code[pc + 1]]);
+                    }
+                    stack[sp++] = value;
+                    pc += 2;
+                }
+                case Opcode.LOAD -> {
+                    Value value = env.ancestor(code[pc]).get(code[pc + 1]);
+                    if (value == null) {
+                        throw undefinedVariable(sites[code[pc + 2]]);
+                    }
+                    stack[sp++] = value;
+                    pc += 3;
+                }
+                case Opcode.STORE -> {
+                    Frame owner = env.ancestor(code[pc]);
+                    int slot = code[pc + 1];
+                    if (owner.get(slot) == null) {
+                        throw undefinedVariable(sites[code[pc + 2]]);
+                    }
+                    owner.set(slot, stack[--sp]);
+                    pc += 3;
+                }
+                case Opcode.DECLARE -> env.set(code[pc++], Value.VOID);
+                case Opcode.DEFINE -> env.set(code[pc++], stack[--sp]);
+                case Opcode.ENTER_SCOPE -> env = new Frame(code[pc++], env);
+                case Opcode.EXIT_SCOPE -> env = env.getParent();
+                case Opcode.POP_SCOPES -> env = env.ancestor(code[pc++]);
+
+                case Opcode.ADD -> {
+                    sp--;
+                    stack[sp - 1] = Operations.add(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.SUB -> {
+                    sp--;
+                    stack[sp - 1] = Operations.subtract(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.MUL -> {
+                    sp--;
+                    stack[sp - 1] = Operations.multiply(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.DIV -> {
+                    sp--;
+                    stack[sp - 1] = Operations.divide(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.LT -> {
+                    sp--;
+                    stack[sp - 1] = Operations.lessThan(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.LE -> {
+                    sp--;
+                    stack[sp - 1] = Operations.lessEqual(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.GT -> {
+                    sp--;
+                    stack[sp - 1] = Operations.greaterThan(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.GE -> {
+                    sp--;
+                    stack[sp - 1] = Operations.greaterEqual(stack[sp - 1], stack[sp], sites[code[pc++]]);
+                }
+                case Opcode.EQ -> {
+                    sp--;
+                    stack[sp - 1] = Value.bool(Operations.valuesEqual(stack[sp - 1], stack[sp]));
+                }
+                case Opcode.NE -> {
+                    sp--;
+                    stack[sp - 1] = Value.bool(!Operations.valuesEqual(stack[sp - 1], stack[sp]));
+                }
+                case Opcode.AND -> {
+                    sp--;
+                    AstNode site = sites[code[pc++]];
+                    stack[sp - 1] = Value.bool(Operations.requireBoolean(stack[sp - 1], site)
+                        && Operations.requireBoolean(stack[sp], site));
+                }
+                case Opcode.OR -> {
+                    sp--;
+                    AstNode site = sites[code[pc++]];
+                    stack[sp - 1] = Value.bool(Operations.requireBoolean(stack[sp - 1], site)
+                        || Operations.requireBoolean(stack[sp], site));
+                }
+                case Opcode.XOR -> {
+                    sp--;
+                    AstNode site = sites[code[pc++]];
+                    stack[sp - 1] = Value.bool(Operations.requireBoolean(stack[sp - 1], site)
+                        ^ Operations.requireBoolean(stack[sp], site));
+                }
+                case Opcode.PLUS -> stack[sp - 1] = Operations.unaryPlus(stack[sp - 1], sites[code[pc++]]);
+                case Opcode.NEG -> stack[sp - 1] = Operations.negate(stack[sp - 1], sites[code[pc++]]);
+                case Opcode.NOT -> stack[sp - 1] = Value.bool(!Operations.requireBoolean(stack[sp - 1], sites[code[pc++]]));
+                case Opcode.TYPE_IS -> stack[sp - 1] = Value.bool(stack[sp - 1].getType() == TYPES[code[pc++]]);
+                case Opcode.TO_INT -> stack[sp - 1] = Value.integer(stack[sp - 1].asInteger());
+
+                case Opcode.JUMP -> pc = code[pc];
+                case Opcode.JUMP_IF_FALSE -> pc = stack[--sp].isTruthy() ? pc + 1 : code[pc];
+                case Opcode.SET_RESULT, Opcode.POP_RESULT -> result = stack[--sp];
+                case Opcode.VOID_RESULT -> result = Value.VOID;
+                case Opcode.SAVE_LAST -> stack[sp - 1 - code[pc++]] = result;
+                case Opcode.BREAK_OUT, Opcode.CONTINUE_OUT -> {
+                    // Unwind calls until a caller is inside a loop body
+                    boolean isBreak = opcode == Opcode.BREAK_OUT;
+                    Chunk.LoopHandler loop = null;
+                    while (loop == null) {
+                        if (callDepth == 0) {
+                            return Completion.STRAY_LOOP_CONTROL;
+                        }
+                        CallFrame caller = calls[--callDepth];
+                        sp = base;
+                        chunk = caller.chunk;
+                        pc = caller.returnPc;
+                        env = caller.env;
+                        base = caller.base;
+                        code = chunk.getCode();
+                        loop = chunk.findLoop(pc - 4);
+                    }
+                    // The CALL's last operand is the scope depth at the call site
+                    env = env.ancestor(code[pc - 1] - loop.scopeDepth());
+                    sp = base + loop.stackDepth();
+                    pc = isBreak ? loop.breakTarget() : loop.continueTarget();
+                    constants = chunk.getConstants();
+                    sites = chunk.getSites();
+                }
+                case Opcode.ERROR -> throw Operations.runtimeError((String) constants[code[pc]], sites[code[pc + 1]]);
+
+                case Opcode.RANGE_INIT -> {
+                    int start = stack[sp - 2].asInteger();
+                    int end = stack[sp - 1].asInteger();
+                    counters[sp - 2] = start;
+                    counters[sp - 1] = end;
+                    counters[sp++] = start <= end ? 1 : -1;
+                }
+                case Opcode.RANGE_TEST -> {
+                    int current = counters[sp - 3];
+                    int end = counters[sp - 2];
+                    boolean inRange = counters[sp - 1] > 0 ? current <= end : current >= end;
+                    pc = inRange ? pc + 1 : code[pc];
+                }
+                case Opcode.RANGE_STEP -> {
+                    int step = counters[sp - 1];
+                    int current = counters[sp - 3] + step;
+                    counters[sp - 3] = current;
+                    int end = counters[sp - 2];
+                    boolean inRange = step > 0 ? current <= end : current >= end;
+                    pc = inRange ? code[pc] : pc + 1;
+                }
+                case Opcode.RANGE_BIND -> {
+                    env = new Frame(1, env);
+                    env.set(code[pc++], Value.integer(counters[sp - 3]));
+                }
+                case Opcode.ITER_INIT -> {
+                    Value.ValueType type = stack[sp - 1].getType();
+                    if (type != Value.ValueType.ARRAY && type != Value.ValueType.TUPLE) {
+                        throw Operations.runtimeError("For-loop expects array or tuple iterable", sites[code[pc]]);
+                    }
+                    pc++;
+                    counters[sp++] = 0;
+                }
+                case Opcode.ITER_NEXT -> {
+                    // Size is re-read every iteration: arrays may grow while being iterated
+                    Value iterable = stack[sp - 2];
+                    int index = counters[sp - 1];
+                    if (iterable.getType() == Value.ValueType.ARRAY) {
+                        List<Value> elements = iterable.asArray().snapshot();
+                        if (index >= elements.size()) {
+                            pc = code[pc];
+                        } else {
+                            Value element = elements.get(index);
+                            stack[sp++] = element != null ? element : Value.VOID;
+                            pc++;
+                        }
+                    } else {
+                        TupleValue tuple = iterable.asTuple();
+                        if (index >= tuple.size()) {
+                            pc = code[pc];
+                        } else {
+                            stack[sp++] = tuple.getByIndex(index + 1);
+                            pc++;
+                        }
+                    }
+                }
+                case Opcode.ITER_STEP -> {
+                    counters[sp - 1]++;
+                    pc = code[pc];
+                }
+                case Opcode.BIND -> {
+                    env = new Frame(1, env);
+                    env.set(code[pc++], stack[--sp]);
+                }
+
+                case Opcode.CLOSURE -> stack[sp++] = Value.function(new VmFunction((Chunk) constants[code[pc++]], env));
+                case Opcode.CHECK_FUNCTION -> Operations.requireFunction(stack[sp - 1], sites[code[pc++]]);
+                case Opcode.CALL -> {
+                    int argumentCount = code[pc];
+                    AstNode site = sites[code[pc + 1]];
+                    pc += 3;
+                    FunctionValue function = stack[sp - argumentCount - 1].asFunction();
+                    int expected = function.getParameters().size();
+                    if (argumentCount != expected) {
+                        throw Operations.runtimeError(
+                            "Function expected " + expected + " arguments but received " + argumentCount, site);
+                    }
+                    if (!(function instanceof VmFunction callee)) {
+                        throw Operations.runtimeError("Function was not created by the virtual machine", site);
+                    }
+                    if (callDepth == maxDepth) {
+                        throw Operations.runtimeError("Maximum call depth of " + maxDepth + " exceeded", site);
+                    }
+                    Frame calleeEnv = new Frame(callee.getFrameSize(), callee.getClosureFrame());
+                    for (int i = 0; i < argumentCount; i++) {
+                        calleeEnv.set(i, stack[sp - argumentCount + i]);
+                    }
+                    sp -= argumentCount + 1;
+                    pushCall(chunk, pc, env, base);
+                    chunk = callee.getChunk();
+                    code = chunk.getCode();
+                    constants = chunk.getConstants();
+                    sites = chunk.getSites();
+                    env = calleeEnv;
+                    pc = 0;
+                    base = sp;
+                    if (sp + code.length > stack.length) {
+                        ensureStack(sp + code.length);
+                        stack = this.stack;
+                        counters = this.counters;
+                    }
+                }
+                case Opcode.RETURN, Opcode.RETURN_RESULT -> {
+                    Value value = opcode == Opcode.RETURN ? stack[--sp] : result;
+                    if (callDepth == 0) {
+                        return Completion.STRAY_RETURN;
+                    }
+                    CallFrame caller = calls[--callDepth];
+                    sp = base;
+                    chunk = caller.chunk;
+                    code = chunk.getCode();
+                    constants = chunk.getConstants();
+                    sites = chunk.getSites();
+                    pc = caller.returnPc;
+                    env = caller.env;
+                    base = caller.base;
+                    stack[sp++] = value;
+                }
+
+                case Opcode.ARRAY -> {
+                    int count = code[pc++];
+                    List<Value> elements = new ArrayList<>(count);
+                    for (int i = sp - count; i < sp; i++) {
+                        elements.add(stack[i]);
+                    }
+                    sp -= count;
+                    stack[sp++] = Value.array(new ArrayValue(elements));
+                }
+                case Opcode.TUPLE -> {
+                    TupleShape shape = (TupleShape) constants[code[pc++]];
+                    int first = sp - shape.size();
+                    Value[] values = Arrays.copyOfRange(stack, first, sp);
+                    sp = first;
+                    stack[sp++] = Value.tuple(new TupleValue(shape, values));
+                }
+                case Opcode.CHECK_ARRAY -> Operations.requireArray(stack[sp - 1], sites[code[pc++]]);
+                case Opcode.GET_INDEX -> {
+                    ArrayValue array = Operations.requireArray(stack[sp - 2], sites[code[pc++]]);
+                    sp--;
+                    stack[sp - 1] = array.get(stack[sp].asInteger());
+                }
+                case Opcode.SET_INDEX -> {
+                    ArrayValue array = Operations.requireArray(stack[sp - 2], sites[code[pc++]]);
+                    array.set(stack[sp - 1].asInteger(), stack[sp - 3]);
+                    sp -= 3;
+                }
+                case Opcode.GET_MEMBER -> {
+                    TupleValue tuple = Operations.requireTuple(stack[sp - 1], sites[code[pc + 1]]);
+                    stack[sp - 1] = ((MemberCache) constants[code[pc]]).get(tuple);
+                    pc += 2;
+                }
+                case Opcode.SET_MEMBER -> {
+                    TupleValue tuple = Operations.requireTuple(stack[sp - 1], sites[code[pc + 1]]);
+                    ((MemberCache) constants[code[pc]]).set(tuple, stack[sp - 2]);
+                    sp -= 2;
+                    pc += 2;
+                }
+                case Opcode.GET_ELEMENT -> {
+                    TupleValue tuple = Operations.requireTuple(stack[sp - 1], sites[code[pc + 1]]);
+                    stack[sp - 1] = tuple.getByIndex(code[pc]);
+                    pc += 2;
+                }
+                case Opcode.SET_ELEMENT -> {
+                    TupleValue tuple = Operations.requireTuple(stack[sp - 1], sites[code[pc + 1]]);
+                    tuple.setByIndex(code[pc], stack[sp - 2]);
+                    sp -= 2;
+                    pc += 2;
+                }
+                case Opcode.PRINT -> {
+                    int count = code[pc++];
+                    output.printLine(stack, sp - count, sp);
+                    sp -= count;
+                }
+                case Opcode.INPUT -> stack[sp++] = Operations.read(input, (InputNode) sites[code[pc++]]);
+                case Opcode.CALL_BUILTIN -> {
+                    int argumentCount = code[pc];
+                    Value[] arguments = Arrays.copyOfRange(stack, sp - argumentCount, sp);
+                    sp -= argumentCount;
+                    stack[sp++] = Builtins.call((FunctionCallNode) sites[code[pc + 1]], arguments);
+                    pc += 2;
+                }
+                case Opcode.HALT -> {
+                    return Completion.NORMAL;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + opcode + " at " + (pc - 1));
+            }
+        }
+    }
+
+    private void pushCall(Chunk chunk, int returnPc, Frame env, int base) {
+        if (callDepth == calls.length) {
+            calls = Arrays.copyOf(calls, calls.length * 2);
+        }
+        CallFrame frame = calls[callDepth];
+        if (frame == null) {
+            frame = new CallFrame();
+            calls[callDepth] = frame;
+        }
+        frame.chunk = chunk;
+        frame.returnPc = returnPc;
+        frame.env = env;
+        frame.base = base;
+        callDepth++;
+    }
+
+    private void ensureStack(int required) {
+        if (required > stack.length) {
+            int capacity = Math.max(stack.length * 2, required);
+            stack = Arrays.copyOf(stack, capacity);
+            counters = Arrays.copyOf(counters, capacity);
+        }
+    }
+
+    private static RuntimeError undefinedVariable(AstNode site) {
+        return Operations.runtimeError("Undefined variable: " + ((ReferenceNode) site).getName(), site);
+    }
+
+    /**
+     * Saved state of a suspended caller. Instances are reused across calls.
+     */
+    private static final class CallFrame {
+        private Chunk chunk;
+        private int returnPc;
+        private Frame env;
+        private int base;
+    }
+}
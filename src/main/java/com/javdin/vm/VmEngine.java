@@ -0,0 +1,71 @@
+package com.javdin.vm;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.interpreter.BufferedOutputSink;
+import com.javdin.interpreter.ExecutionEngine;
+import com.javdin.interpreter.InputSource;
+import com.javdin.interpreter.OutputSink;
+import com.javdin.interpreter.RuntimeError;
+import com.javdin.semantics.Resolver;
+import com.javdin.utils.ErrorHandler;
+
+/**
+ * Execution engine that compiles the program to bytecode and runs it on the {@link VirtualMachine}.
+ */
+public class VmEngine implements ExecutionEngine {
+    private final ErrorHandler errorHandler;
+    private final int maxDepth;
+    private OutputSink output;
+    private InputSource input;
+
+    public VmEngine(ErrorHandler errorHandler) {
+        this(errorHandler, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an engine whose programs fail with a runtime error once calls
+     * nest {@code maxDepth} deep; the call stack lives on the heap, so the
+     * limit does not depend on the Java thread stack.
+     */
+    public VmEngine(ErrorHandler errorHandler, int maxDepth) {
+        this.errorHandler = errorHandler;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Resolve and compile a program without running it.
+     */
+    public static Chunk compile(ProgramNode program) {
+        new Resolver().resolve(program);
+        return new BytecodeCompiler().compile(program);
+    }
+
+    @Override
+    public void interpret(ProgramNode program) {
+        Chunk chunk = compile(program);
+        OutputSink sink = output != null ? output : new BufferedOutputSink(System.out, false);
+        try {
+            VirtualMachine.Completion completion = new VirtualMachine(maxDepth, sink,
+                input != null ? input : InputSource.standardInput()).run(chunk);
+            if (completion == VirtualMachine.Completion.STRAY_RETURN) {
+                errorHandler.addError("Return statement outside function", program.getLine(), program.getColumn());
+            } else if (completion == VirtualMachine.Completion.STRAY_LOOP_CONTROL) {
+                errorHandler.addError("Loop control statement outside loop", program.getLine(), program.getColumn());
+            }
+        } catch (RuntimeError error) {
+            errorHandler.addError("Runtime error: " + error.getMessage(), error.getLine(), error.getColumn());
+        } finally {
+            sink.flush();
+        }
+    }
+
+    @Override
+    public void setOutput(OutputSink output) {
+        this.output = output;
+    }
+
+    @Override
+    public void setInput(InputSource input) {
+        this.input = input;
+    }
+}
@@ -0,0 +1,20 @@
+package com.javdin.vm;
+
+import com.javdin.interpreter.Frame;
+import com.javdin.interpreter.FunctionValue;
+
+/**
+ * Function value created by the virtual machine; carries the compiled chunk of its body.
+ */
+public final class VmFunction extends FunctionValue {
+    private final Chunk chunk;
+
+    public VmFunction(Chunk chunk, Frame closureFrame) {
+        super(chunk.getLiteral(), closureFrame);
+        this.chunk = chunk;
+    }
+
+    public Chunk getChunk() {
+        return chunk;
+    }
+}
@@ -0,0 +1,82 @@
+package com.javdin.compiler;
+
+import com.javdin.interpreter.EngineRunner;
+import com.javdin.interpreter.Interpreter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the self-specializing operator nodes of the closure engine.
+ * Operator sites see changing operand types, so every program exercises the
+ * transitions between specializations; outputs (including reported errors)
+ * must match the tree-walking interpreter exactly.
+ */
+class SpecializingNodesTest {
+    @Test
+    void sitesWidenFromIntegersToNumbersToGeneric() {
+        String output = runBoth(String.join("\n",
+            "var op := func(a, b) is",
+            "    var s := a + b",
+            "    var d := a / b",
+            "    var c := a < b",
+            "    return [s, d, c, -a, +b]",
+            "end",
+            "var r := op(7, 2)",
+            "print r[1], r[2], r[3], r[4], r[5]",
+            "r := op(7.0, 2)",
+            "print r[1], r[2], r[3], r[4], r[5]",
+            "r := op(1.5, 0.5)",
+            "print r[1], r[2], r[3], r[4], r[5]",
+            "r := op(\"a\", \"b\")"));
+        assertThat(output).isEqualTo("9 3 false -7 2\n9.0 3.5 false -7.0 2\n2.0 3.0 false -1.5 0.5\n"
+            + "Runtime error: '/' expects numeric operands");
+    }
+
+    @Test
+    void equalityComparesStringsRealsAndMixedOperands() {
+        String output = runBoth(String.join("\n",
+            "var eq := func(a, b) => a = b",
+            "var ne := func(a, b) => a /= b",
+            "print eq(\"x\", \"x\"), ne(\"x\", \"y\"), eq(1, 1.0), eq(0.1, 0.1), ne(2, 3), eq(\"1\", 1)",
+            "var cat := func(a, b) => a + b",
+            "print cat(\"ab\", \"cd\"), cat(1, 2)"));
+        assertThat(output).isEqualTo("true true true true true false\nabcd 3");
+    }
+
+    @Test
+    void equalityRunsRepeatedlyOnReals() {
+        String output = runBoth(String.join("\n",
+            "var eq := func(a, b) => a = b",
+            "var ne := func(a, b) => a /= b",
+            "print eq(0.5, 0.5), eq(0.5, 1.5), ne(0.5, 0.5), ne(0.5, 1.5)",
+            "print eq(2.5, 2.5), ne(2.5, 2.5), eq(2, 2.0), ne(2, 3.0)"));
+        assertThat(output).isEqualTo("true false false true\ntrue false true true");
+    }
+
+    @Test
+    void divisionByZeroIsReportedInEverySpecialization() {
+        String source = String.join("\n",
+            "var div := func(a, b) => a / b",
+            "print div(6, 3), div(1.0, 4.0), div(5, 2.0)",
+            "print div(%s)");
+        assertThat(runBoth(String.format(source, "1, 0")))
+            .isEqualTo("2 0.25 2.5\nRuntime error: Division by zero");
+        assertThat(runBoth(String.format(source, "1.0, 0")))
+            .isEqualTo("2 0.25 2.5\nRuntime error: Division by zero");
+    }
+
+    @Test
+    void arrayIndexFallsBackForNonIntegerIndices() {
+        String output = runBoth(String.join("\n",
+            "var get := func(a, i) => a[i]",
+            "var xs := [10, 20, 30]",
+            "print get(xs, 2), get(xs, 3)",
+            "print get(xs, \"x\")"));
+        assertThat(output).startsWith("20 30\nRuntime error:");
+    }
+
+    private String runBoth(String source) {
+        return EngineRunner.runBoth(source, Interpreter::new, errorHandler -> new ClosureEngine(errorHandler, true));
+    }
+}
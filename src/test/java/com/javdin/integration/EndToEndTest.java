@@ -43,6 +43,18 @@ class EndToEndTest {
         }
     }
     
+    @Test
+    void testOutputFile() throws IOException {
+        Path testFile = tempDir.resolve("test.d");
+        Path outputFile = tempDir.resolve("out.txt");
+        Files.writeString(testFile, "for i in 1..3 loop print i end");
+
+        int exitCode = Main.runInterpreter(new String[]{"--output", outputFile.toString(), testFile.toString()});
+
+        assertThat(exitCode).isEqualTo(0);
+        assertThat(Files.readAllLines(outputFile)).containsExactly("1", "2", "3");
+    }
+    
     @Test
     void testInvalidSyntax() throws IOException {
         // Create a program with syntax errors
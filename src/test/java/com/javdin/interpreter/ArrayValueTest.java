@@ -0,0 +1,117 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for array storage strategies and their 1-based semantics.
+ */
+class ArrayValueTest {
+    @Test
+    void numericArraysUsePrimitiveStorageUntilAWriteDoesNotFit() {
+        ArrayValue array = new ArrayValue();
+        for (int i = 1; i <= 100; i++) {
+            array.set(i, Value.integer(i * 1000));
+        }
+        assertThat(array.storage()).isEqualTo(ArrayValue.Storage.INTEGER);
+        assertThat(array.get(50).asInteger()).isEqualTo(50000);
+
+        array.set(2, Value.real(0.5));
+        assertThat(array.storage()).isEqualTo(ArrayValue.Storage.GENERIC);
+        assertThat(array.get(1).getType()).isEqualTo(Value.ValueType.INTEGER);
+        assertThat(array.get(2).getType()).isEqualTo(Value.ValueType.REAL);
+        assertThat(array.get(100).asInteger()).isEqualTo(100000);
+        assertThat(array.size()).isEqualTo(100);
+
+        ArrayValue reals = new ArrayValue(List.of(Value.real(1.5), Value.real(2.0)));
+        assertThat(reals.storage()).isEqualTo(ArrayValue.Storage.REAL);
+        assertThat(reals.toString()).isEqualTo("[1.5, 2.0]");
+    }
+
+    @Test
+    void sparseWritesFillHolesWithVoid() {
+        ArrayValue array = new ArrayValue(List.of(Value.integer(1)));
+        array.set(4, Value.integer(4));
+
+        assertThat(array.size()).isEqualTo(4);
+        assertThat(array.get(2)).isSameAs(Value.VOID);
+        assertThat(array.get(3)).isSameAs(Value.VOID);
+        assertThat(array.get(4).asInteger()).isEqualTo(4);
+        assertThat(array.get(9)).isSameAs(Value.VOID);
+        assertThatThrownBy(() -> array.get(0))
+            .isInstanceOf(RuntimeError.class)
+            .hasMessage("Array index out of bounds: 0 (indices must be >= 1)");
+    }
+
+    @Test
+    void concatKeepsTheCommonStorageAndSnapshotsStayLive() {
+        ArrayValue left = new ArrayValue(List.of(Value.integer(1), Value.integer(2)));
+        ArrayValue right = new ArrayValue(List.of(Value.integer(3)));
+        ArrayValue mixed = new ArrayValue(List.of(Value.string("x")));
+
+        ArrayValue numbers = left.concat(right);
+        assertThat(numbers.storage()).isEqualTo(ArrayValue.Storage.INTEGER);
+        assertThat(numbers.toString()).isEqualTo("[1, 2, 3]");
+        assertThat(numbers.concat(mixed).toString()).isEqualTo("[1, 2, 3, x]");
+        assertThat(left.size()).isEqualTo(2);
+
+        List<Value> view = left.snapshot();
+        left.set(3, Value.integer(7));
+        assertThat(view).hasSize(3);
+        assertThat(view.get(2).asInteger()).isEqualTo(7);
+        assertThatThrownBy(() -> view.add(Value.VOID)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void largeGapsSwitchToSparseStorage() {
+        ArrayValue array = new ArrayValue(List.of(Value.integer(1)));
+        array.set(10_000_000, Value.integer(2));
+
+        assertThat(array.storage()).isEqualTo(ArrayValue.Storage.SPARSE);
+        assertThat(array.size()).isEqualTo(10_000_000);
+        assertThat(array.get(1).asInteger()).isEqualTo(1);
+        assertThat(array.get(5_000_000)).isSameAs(Value.VOID);
+        assertThat(array.get(10_000_000).asInteger()).isEqualTo(2);
+        assertThat(array.snapshot().get(9_999_999).asInteger()).isEqualTo(2);
+
+        ArrayValue joined = new ArrayValue(List.of(Value.string("a"))).concat(array);
+        assertThat(joined.size()).isEqualTo(10_000_001);
+        assertThat(joined.get(2).asInteger()).isEqualTo(1);
+        assertThat(joined.get(10_000_001).asInteger()).isEqualTo(2);
+        assertThat(joined.get(3)).isSameAs(Value.VOID);
+    }
+
+    @Test
+    void concatenationsSharingStorageKeepValueSemantics() {
+        ArrayValue base = new ArrayValue(List.of(Value.integer(1)));
+        ArrayValue first = base.concat(new ArrayValue(List.of(Value.integer(2))));
+        ArrayValue second = first.concat(new ArrayValue(List.of(Value.integer(3))));
+        ArrayValue sibling = first.concat(new ArrayValue(List.of(Value.string("x"))));
+
+        first.set(1, Value.integer(10));
+        second.set(4, Value.integer(4));
+        base.set(2, Value.integer(20));
+
+        assertThat(base.toString()).isEqualTo("[1, 20]");
+        assertThat(first.toString()).isEqualTo("[10, 2]");
+        assertThat(second.toString()).isEqualTo("[1, 2, 3, 4]");
+        assertThat(sibling.toString()).isEqualTo("[1, 2, x]");
+    }
+
+    @Test
+    @Timeout(10)
+    void accumulatingByConcatenationIsNotQuadratic() {
+        String output = EngineRunner.run(String.join("\n",
+            "var a := []",
+            "for i in 1..200000 loop",
+            "    a := a + [i]",
+            "end",
+            "print a[200000], a[1]"), Interpreter::new);
+        assertThat(output).isEqualTo("200000 1");
+    }
+}
@@ -0,0 +1,54 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for file output written by a background thread.
+ */
+class AsyncFileOutputTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writesMoreThanTheRingHoldsInOrder() throws IOException {
+        Path file = tempDir.resolve("out.txt");
+        byte[] chunk = new byte[100_003];
+        int chunks = AsyncFileOutput.SLOTS * AsyncFileOutput.SLOT_SIZE / chunk.length + 5;
+        try (AsyncFileOutput output = new AsyncFileOutput(file)) {
+            for (int i = 0; i < chunks; i++) {
+                java.util.Arrays.fill(chunk, (byte) ('a' + i % 26));
+                output.write(chunk, 0, chunk.length);
+            }
+            output.flush();
+            assertThat(Files.size(file)).isEqualTo((long) chunks * chunk.length);
+        }
+
+        byte[] written = Files.readAllBytes(file);
+        for (int i = 0; i < chunks; i++) {
+            assertThat(written[i * chunk.length]).isEqualTo((byte) ('a' + i % 26));
+            assertThat(written[(i + 1) * chunk.length - 1]).isEqualTo((byte) ('a' + i % 26));
+        }
+    }
+
+    @Test
+    void printsThroughABufferedSinkAndRejectsWritesAfterClose() throws IOException {
+        Path file = tempDir.resolve("print.txt");
+        AsyncFileOutput output = new AsyncFileOutput(file);
+        BufferedOutputSink sink = new BufferedOutputSink(output, false);
+        sink.printLine(new Value[] {Value.string("hello"), Value.integer(42)}, 0, 2);
+        sink.flush();
+        output.close();
+        output.close();
+
+        assertThat(Files.readString(file)).isEqualTo("hello 42" + System.lineSeparator());
+        assertThatThrownBy(() -> output.write(1)).isInstanceOf(IOException.class);
+    }
+}
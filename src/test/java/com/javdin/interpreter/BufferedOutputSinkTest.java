@@ -0,0 +1,65 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import com.javdin.semantics.Optimizer;
+import com.javdin.utils.ErrorHandler;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for buffered print output.
+ */
+class BufferedOutputSinkTest {
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void holdsOutputUntilFlushedOrFull() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(bytes, false, 16);
+
+        sink.printLine(new Value[] {Value.integer(1), Value.string("two")}, 0, 2);
+        assertThat(bytes.size()).isZero();
+        sink.write("x".repeat(40));
+        assertThat(bytes.size()).isPositive();
+        sink.write("héllo ✓");
+        sink.flush();
+
+        String expected = "1 two" + NL + "x".repeat(40) + "héllo ✓";
+        assertThat(bytes.toByteArray()).isEqualTo(expected.getBytes(Charset.defaultCharset()));
+    }
+
+    @Test
+    void lineFlushModeFlushesEveryLine() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(bytes, true);
+
+        sink.write("partial");
+        assertThat(bytes.size()).isZero();
+        sink.endLine();
+
+        assertThat(bytes.toString(Charset.defaultCharset())).isEqualTo("partial" + NL);
+    }
+
+    @Test
+    void outputBeforeARuntimeErrorIsFlushed() {
+        ErrorHandler errorHandler = new ErrorHandler();
+        ProgramNode program = new Optimizer(errorHandler).optimize(new Parser(new Lexer(String.join("\n",
+            "var a := [1]",
+            "print a[1], \"before\"",
+            "print a[0]"))).parse());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(errorHandler);
+        interpreter.setOutput(new BufferedOutputSink(bytes, false));
+
+        interpreter.interpret(program);
+
+        assertThat(bytes.toString(Charset.defaultCharset())).isEqualTo("1 before" + NL);
+        assertThat(errorHandler.getErrors()).hasSize(1);
+    }
+}
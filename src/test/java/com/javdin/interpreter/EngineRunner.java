@@ -0,0 +1,70 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import com.javdin.semantics.Optimizer;
+import com.javdin.semantics.SemanticAnalyzer;
+import com.javdin.utils.ErrorHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs programs through execution engines for the engine tests.
+ * A program is parsed, analyzed and optimized, and its printed output is
+ * returned together with any reported errors, one per line.
+ */
+public final class EngineRunner {
+    private EngineRunner() {
+    }
+
+    /**
+     * Runs a program on two engines, checks that both outputs match exactly
+     * and returns the output.
+     */
+    public static String runBoth(String source,
+                                 Function<ErrorHandler, ExecutionEngine> expectedEngine,
+                                 Function<ErrorHandler, ExecutionEngine> actualEngine) {
+        String expected = run(source, expectedEngine);
+        String actual = run(source, actualEngine);
+        assertThat(actual).isEqualTo(expected);
+        return actual;
+    }
+
+    public static String run(String source, Function<ErrorHandler, ExecutionEngine> engineFactory) {
+        return run(source, engineFactory, engine -> { });
+    }
+
+    /**
+     * Runs a program on an engine that {@code configurer} sets up first,
+     * for example with the input it reads.
+     */
+    public static String run(String source, Function<ErrorHandler, ExecutionEngine> engineFactory,
+                             Consumer<ExecutionEngine> configurer) {
+        ErrorHandler errorHandler = new ErrorHandler();
+        ProgramNode ast = new Parser(new Lexer(source)).parse();
+        new SemanticAnalyzer(errorHandler).analyze(ast);
+        assertThat(errorHandler.hasErrors()).as("Semantic analysis produced errors").isFalse();
+        ProgramNode optimized = new Optimizer(errorHandler).optimize(ast);
+        ExecutionEngine engine = engineFactory.apply(errorHandler);
+        configurer.accept(engine);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(outputStream));
+        try {
+            engine.interpret(optimized);
+        } finally {
+            System.setOut(originalOut);
+        }
+        StringBuilder output = new StringBuilder(outputStream.toString().strip());
+        for (ErrorHandler.Error error : errorHandler.getErrors()) {
+            output.append('\n').append(error.getMessage());
+        }
+        return output.toString();
+    }
+}
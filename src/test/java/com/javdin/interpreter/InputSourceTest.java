@@ -0,0 +1,116 @@
+package com.javdin.interpreter;
+
+import com.javdin.compiler.ClosureEngine;
+import com.javdin.utils.ErrorHandler;
+import com.javdin.vm.VmEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for reading standard input.
+ */
+class InputSourceTest {
+    @Test
+    void readsLinesAndNumbersAcrossBufferBoundaries() {
+        // A 16-byte buffer splits most of these lines and tokens
+        InputSource input = source("first line is long\r\n-2147483648 2147483647   0.1 -2.5e3\n"
+            + "12345.678901234567 rest of line\n\nlast", 16);
+
+        assertThat(input.readLine().asString()).isEqualTo("first line is long");
+        assertThat(input.readInteger().asInteger()).isEqualTo(Integer.MIN_VALUE);
+        assertThat(input.readInteger().asInteger()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(input.readReal().asReal()).isEqualTo(0.1);
+        assertThat(input.readReal().asReal()).isEqualTo(-2500.0);
+        assertThat(input.readLine().asString()).isEmpty();
+        assertThat(input.readReal().asReal()).isEqualTo(12345.678901234567);
+        assertThat(input.readLine().asString()).isEqualTo(" rest of line");
+        assertThat(input.readLine().asString()).isEmpty();
+        assertThat(input.readLine().asString()).isEqualTo("last");
+        assertThat(input.readLine()).isSameAs(Value.VOID);
+        assertThat(input.readInteger()).isSameAs(Value.VOID);
+    }
+
+    @Test
+    void rejectsMalformedNumbers() {
+        InputSource input = source("12x 2147483648 - 1.2.3", 64);
+
+        assertThatThrownBy(input::readInteger).isInstanceOf(RuntimeError.class)
+            .hasMessage("Cannot read integer from input: '12x'");
+        assertThatThrownBy(input::readInteger).hasMessageContaining("2147483648");
+        assertThatThrownBy(input::readReal).hasMessage("Cannot read real from input: '-'");
+        assertThatThrownBy(input::readReal).hasMessageContaining("1.2.3");
+    }
+
+    @Test
+    void everyEngineReadsTheSameValues() {
+        String source = String.join("\n",
+            "var header := input",
+            "var next := func() => input int",
+            "var sum := 0",
+            "var n := next()",
+            "while n is int loop",
+            "    sum := sum + n",
+            "    n := next()",
+            "end",
+            "print sum");
+        String text = "skipped header\n1 2\n3\n";
+        List<Function<ErrorHandler, ExecutionEngine>> engines = List.of(
+            Interpreter::new,
+            errors -> new Interpreter(errors, 1),
+            ClosureEngine::new,
+            errors -> new ClosureEngine(errors, true),
+            VmEngine::new);
+        for (Function<ErrorHandler, ExecutionEngine> engine : engines) {
+            assertThat(run(source, text, engine)).isEqualTo("6");
+        }
+    }
+
+    @Test
+    void unusedReadThroughAFunctionStillConsumesInput() {
+        String source = String.join("\n",
+            "var next := func() => input",
+            "var header := next()",
+            "var line := input",
+            "print line");
+        List<Function<ErrorHandler, ExecutionEngine>> engines = List.of(
+            Interpreter::new, ClosureEngine::new, VmEngine::new);
+        for (Function<ErrorHandler, ExecutionEngine> engine : engines) {
+            assertThat(run(source, "HEADER\nbody\n", engine)).isEqualTo("body");
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void readsAMillionNumbers() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 1_000_000; i++) {
+            text.append(i).append(i % 10 == 0 ? '\n' : ' ');
+        }
+        String source = String.join("\n",
+            "var sum := 0.0",
+            "var n := input real",
+            "while n is real loop",
+            "    sum := sum + n",
+            "    n := input real",
+            "end",
+            "print sum");
+        assertThat(run(source, text.toString(), VmEngine::new)).isEqualTo("5.000005E11");
+    }
+
+    private static InputSource source(String text, int capacity) {
+        return new InputSource(new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)), capacity);
+    }
+
+    private String run(String source, String input, Function<ErrorHandler, ExecutionEngine> factory) {
+        return EngineRunner.run(source, factory,
+            engine -> engine.setInput(source(input, InputSource.DEFAULT_CAPACITY)));
+    }
+}
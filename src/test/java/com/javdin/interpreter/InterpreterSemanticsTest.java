@@ -155,6 +155,58 @@ class InterpreterSemanticsTest {
         assertThat(output).isEqualTo("1.5");
     }
 
+    @Test
+    void returnFromNestedLoopsLeavesTheFunction() {
+        String program = String.join("\n",
+            "var find := func(target) is",
+            "    for i in 1..5 loop",
+            "        for j in 1..5 loop",
+            "            if i * j = target then",
+            "                return {i := i, j := j}",
+            "            end",
+            "        end",
+            "    end",
+            "    return none",
+            "end",
+            "var hit := find(12)",
+            "var miss := find(7)",
+            "print hit.i, hit.j, (miss is none)");
+        String output = runExpectSuccess(program);
+        assertThat(output).isEqualTo("3 4 true");
+    }
+
+    @Test
+    void exitOnlyEndsTheInnermostLoop() {
+        String program = String.join("\n",
+            "var count := 0",
+            "for i in 1..3 loop",
+            "    for x in [1, 2, 3] loop",
+            "        if x = 2 => exit",
+            "        count := count + 1",
+            "    end",
+            "    count := count + 10",
+            "end",
+            "print count");
+        String output = runExpectSuccess(program);
+        assertThat(output).isEqualTo("33");
+    }
+
+    @Test
+    void closuresCreatedInARangeLoopKeepTheirOwnIteration() {
+        String program = String.join("\n",
+            "var fs := []",
+            "var total := 0",
+            "for i in 1..3 loop",
+            "    fs[i] := func() => i * 10",
+            "end",
+            "for i in 1..3 loop",
+            "    total := total + i",
+            "end",
+            "print fs[1](), fs[2](), fs[3](), total");
+        String output = runExpectSuccess(program);
+        assertThat(output).isEqualTo("10 20 30 6");
+    }
+
     private String runExpectSuccess(String source) {
         ExecutionResult result = execute(source);
         assertThat(result.finalErrors().size())
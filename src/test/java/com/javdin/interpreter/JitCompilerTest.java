@@ -0,0 +1,129 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.DeclarationNode;
+import com.javdin.ast.FunctionLiteralNode;
+import com.javdin.ast.ProgramNode;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import com.javdin.semantics.Resolver;
+import com.javdin.utils.ErrorHandler;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the JIT compiler of hot interpreter functions.
+ * Programs run with every function compiled on its first call and with the
+ * JIT disabled; both outputs (including reported errors) must match exactly.
+ */
+class JitCompilerTest {
+    @Test
+    void compiledFunctionsMatchInterpretedResults() {
+        String output = runBoth(String.join("\n",
+            "var fib := func(n) is",
+            "    if n < 2 then return n end",
+            "    return fib(n - 1) + fib(n - 2)",
+            "end",
+            "var kernel := func(n) is",
+            "    var s := 0",
+            "    for i in 1..n loop",
+            "        var j := i",
+            "        while j > 0 loop s := s + j * 2 - 1; j := j / 3 end",
+            "    end",
+            "    for i in 3..1 loop s := s + i end",
+            "end",
+            "var implicit := func(x) => x / 2.0",
+            "print fib(15), kernel(20), implicit(3)"));
+        assertThat(output).isEqualTo("610 532 1.5");
+    }
+
+    @Test
+    void compiledLoopsHonourExitFromCalledFunctions() {
+        String output = runBoth(String.join("\n",
+            "var f := func(n) is",
+            "    var count := 0",
+            "    for x in [1, 2, 3, 4] loop",
+            "        var stop := func() is if x = n then exit end end",
+            "        var seen := stop()",
+            "        count := count + 1",
+            "        print seen",
+            "    end",
+            "    return count",
+            "end",
+            "print f(3)"));
+        assertThat(output).endsWith("\n2");
+    }
+
+    @Test
+    void compiledClosuresCaptureFreshLoopVariables() {
+        String output = runBoth(String.join("\n",
+            "var make := func() is",
+            "    var fs := []",
+            "    for k in 1..3 loop fs[k] := func() => k * 10 end",
+            "    var t := {a := 1, b := 2}",
+            "    for v in t loop fs := fs + [func() => v] end",
+            "    return fs",
+            "end",
+            "var fs := make()",
+            "print fs[1](), fs[3](), fs[5](), fs[2] is func"));
+        assertThat(output).isEqualTo("10 30 2 true");
+    }
+
+    @Test
+    void compiledCodeReportsRuntimeErrorsAtTheSamePosition() {
+        String output = runBoth(String.join("\n",
+            "var f := func(a) is",
+            "    var t := {x := a}",
+            "    t.x := t.x + 1",
+            "    return t.x * 2",
+            "end",
+            "print f(1)",
+            "print f(\"s\")"));
+        assertThat(output).isEqualTo("4\nRuntime error: Unsupported operand types for '+': STRING and INTEGER");
+    }
+
+    @Test
+    void tailCallsRunInConstantStack() {
+        String output = runBoth(String.join("\n",
+            "var count := func(n, acc) is",
+            "    if n = 0 then return acc end",
+            "    return count(n - 1, acc + 1)",
+            "end",
+            "var twice := func(n) => count(n * 2, 0)",
+            "var find := func(n, target) is",
+            "    for i in 1..10 loop",
+            "        if n = target then return n end",
+            "        if i = 10 then return find(n + 1, target) end",
+            "    end",
+            "end",
+            "print count(200000, 0), twice(100000), find(1, 150000)"));
+        assertThat(output).isEqualTo("200000 200000 150000");
+    }
+
+    @Test
+    void hotFunctionIsCompiledOnceThresholdIsReached() {
+        ProgramNode ast = new Parser(new Lexer("var f := func(a, b) => a * b + 1")).parse();
+        new Resolver().resolve(ast);
+        FunctionLiteralNode literal = (FunctionLiteralNode)
+            ((DeclarationNode) ast.getStatements().get(0)).getVariables().get(0).getInitialValue();
+        FunctionValue function = new FunctionValue(literal, new Frame(1, null));
+        JitCompiler jit = new JitCompiler(3);
+
+        assertThat(jit.codeFor(function)).isNull();
+        assertThat(jit.codeFor(function)).isNull();
+        JitCode code = jit.codeFor(function);
+        assertThat(code).isNotNull();
+        assertThat(code.getClass().isHidden()).isTrue();
+
+        Frame frame = new Frame(literal.getFrameSize(), function.getClosureFrame());
+        frame.set(0, Value.integer(6));
+        frame.set(1, Value.integer(7));
+        assertThat(code.run(frame, new Interpreter(new ErrorHandler())).asInteger()).isEqualTo(43);
+    }
+
+    private String runBoth(String source) {
+        return EngineRunner.runBoth(source,
+            errorHandler -> new Interpreter(errorHandler, 0),
+            errorHandler -> new Interpreter(errorHandler, 1));
+    }
+}
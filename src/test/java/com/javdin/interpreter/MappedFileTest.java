@@ -0,0 +1,115 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.compiler.ClosureEngine;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import com.javdin.semantics.Optimizer;
+import com.javdin.semantics.SemanticAnalyzer;
+import com.javdin.utils.ErrorHandler;
+import com.javdin.vm.VmEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the file builtins and the mapped arrays they return.
+ */
+class MappedFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void splitsLinesAndRecords() throws IOException {
+        Path file = tempDir.resolve("data.txt");
+        Files.writeString(file, "alpha\r\nbeta\n\n" + "x".repeat(300) + "\nlast");
+
+        MappedFile lines = MappedFile.lines(file);
+        assertThat(lines.size()).isEqualTo(5);
+        assertThat(lines.get(0).asString()).isEqualTo("alpha");
+        assertThat(lines.get(2).asString()).isEmpty();
+        assertThat(lines.get(3).asString()).hasSize(300);
+        assertThat(lines.get(4).asString()).isEqualTo("last");
+        assertThat(lines.get(1).asString()).isEqualTo("beta");
+
+        MappedFile records = MappedFile.records(file, 4);
+        assertThat(records.size()).isEqualTo((int) Math.ceil(Files.size(file) / 4.0));
+        assertThat(records.get(0).asString()).isEqualTo("alph");
+        assertThat(records.get(records.size() - 1).asString()).isEqualTo("st");
+        assertThat(MappedFile.lines(Files.writeString(tempDir.resolve("empty.txt"), "")).size()).isZero();
+    }
+
+    @Test
+    void readsLinesInAnyOrder() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        MappedFile lines = MappedFile.lines(Files.writeString(tempDir.resolve("many.txt"), text));
+
+        assertThat(lines.size()).isEqualTo(5000);
+        for (int i : new int[] {4999, 0, 1024, 1023, 3000, 3001, 2048, 17}) {
+            assertThat(lines.get(i).asString()).isEqualTo("line " + i);
+        }
+    }
+
+    @Test
+    void writesCopyTheElementsOutOfTheFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("words.txt"), "one\ntwo\nthree\n");
+        ArrayValue array = new ArrayValue(MappedFile.lines(file));
+
+        assertThat(array.storage()).isEqualTo(ArrayValue.Storage.MAPPED);
+        ArrayValue longer = array.concat(new ArrayValue(List.of(Value.integer(4))));
+        array.set(2, Value.string("TWO"));
+
+        assertThat(array.storage()).isEqualTo(ArrayValue.Storage.GENERIC);
+        assertThat(array).hasToString("[one, TWO, three]");
+        assertThat(longer).hasToString("[one, two, three, 4]");
+        assertThat(Files.readString(file)).isEqualTo("one\ntwo\nthree\n");
+    }
+
+    @Test
+    void everyEngineIteratesFiles() throws IOException {
+        Path log = Files.writeString(tempDir.resolve("app.log"), "ok\nfail\nok\nfail\nfail\n");
+        Path data = Files.writeString(tempDir.resolve("data.bin"), "AAAABBBBCC");
+        String source = String.join("\n",
+            "var failures := func(path) is",
+            "    var n := 0",
+            "    for line in lines(path) loop",
+            "        if line = \"fail\" then n := n + 1 end",
+            "    end",
+            "    return n",
+            "end",
+            "var blocks := records(\"" + data + "\", 4)",
+            "print failures(\"" + log + "\"), blocks[2], blocks is []",
+            "print lines(\"" + tempDir.resolve("missing") + "\")");
+        List<Function<ErrorHandler, ExecutionEngine>> engines = List.of(
+            Interpreter::new,
+            errors -> new Interpreter(errors, 1),
+            ClosureEngine::new,
+            errors -> new ClosureEngine(errors, true),
+            VmEngine::new);
+        for (Function<ErrorHandler, ExecutionEngine> factory : engines) {
+            ErrorHandler errorHandler = new ErrorHandler();
+            ProgramNode program = new Optimizer(errorHandler).optimize(new Parser(new Lexer(source)).parse());
+            new SemanticAnalyzer(errorHandler).analyze(program);
+            assertThat(errorHandler.getErrors()).isEmpty();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ExecutionEngine engine = factory.apply(errorHandler);
+            engine.setOutput(new BufferedOutputSink(bytes, false));
+            engine.interpret(program);
+
+            assertThat(bytes.toString().strip()).isEqualTo("3 BBBB true");
+            assertThat(errorHandler.getErrors()).singleElement().asString().contains("no such file");
+        }
+    }
+}
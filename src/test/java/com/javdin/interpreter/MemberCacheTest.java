@@ -0,0 +1,66 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the inline cache of tuple member accesses by name.
+ */
+class MemberCacheTest {
+    @Test
+    void readsAndWritesMembersAcrossDifferentLayouts() {
+        MemberCache cache = new MemberCache("y");
+        TupleValue first = tuple("x", 1, "y", 2);
+        TupleValue second = tuple("y", 3, "x", 4);
+
+        for (int round = 0; round < 3; round++) {
+            assertThat(cache.get(first).asInteger()).isEqualTo(2);
+            assertThat(cache.get(second).asInteger()).isEqualTo(3);
+        }
+        cache.set(second, Value.integer(30));
+        assertThat(second.getByName("y").asInteger()).isEqualTo(30);
+        assertThat(second.getByName("x").asInteger()).isEqualTo(4);
+    }
+
+    @Test
+    void duplicateNamesResolveToTheLastMemberLikeGetByName() {
+        MemberCache cache = new MemberCache("a");
+        TupleValue single = tuple("a", 1, "b", 2);
+        TupleValue duplicated = single.concat(tuple("a", 5));
+
+        assertThat(cache.get(single).asInteger()).isEqualTo(1);
+        assertThat(cache.get(duplicated).asInteger()).isEqualTo(5);
+        assertThat(cache.get(duplicated).asInteger()).isEqualTo(duplicated.getByName("a").asInteger());
+    }
+
+    @Test
+    void keepsWorkingOnceMoreLayoutsThanCachedPositionsAppear() {
+        MemberCache cache = new MemberCache("k");
+        for (int position = 0; position < 8; position++) {
+            TupleValue tuple = new TupleValue();
+            for (int i = 0; i < position; i++) {
+                tuple.append("f" + i, Value.integer(i));
+            }
+            tuple.append("k", Value.integer(position));
+            assertThat(cache.get(tuple).asInteger()).isEqualTo(position);
+        }
+    }
+
+    @Test
+    void reportsMissingMembers() {
+        MemberCache cache = new MemberCache("z");
+        assertThatThrownBy(() -> cache.get(tuple("x", 1)))
+            .isInstanceOf(RuntimeError.class)
+            .hasMessage("Tuple has no member named 'z'");
+    }
+
+    private static TupleValue tuple(Object... namesAndValues) {
+        TupleValue tuple = new TupleValue();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            tuple.append((String) namesAndValues[i], Value.integer((Integer) namesAndValues[i + 1]));
+        }
+        return tuple;
+    }
+}
@@ -0,0 +1,65 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for memoization of pure functions.
+ */
+class MemoCacheTest {
+    @Test
+    @Timeout(10)
+    void memoizedRecursionRunsInLinearTime() {
+        String output = run(String.join("\n",
+            "var fib := func(n) is",
+            "    if n < 2 then return n end",
+            "    return fib(n - 1) + fib(n - 2)",
+            "end",
+            "var half := func(x) => x / 2",
+            "print fib(45), half(5), half(5.0)"), Interpreter.DEFAULT_MEMO_CAPACITY);
+        assertThat(output).isEqualTo("1134903170 2 2.5");
+    }
+
+    @Test
+    void impureCallsAreNeverReplayed() {
+        String source = String.join("\n",
+            "var base := 1",
+            "var noisy := func(x) is print x; return x end",
+            "var twice := func(x) => noisy(x) * 2",
+            "var offset := func(x) => x + base",
+            "var fresh := func(x) => [x]",
+            "print twice(3), twice(3), offset(1)",
+            "base := 10",
+            "var a := fresh(1)",
+            "a[1] := 5",
+            "print offset(1), fresh(1)");
+        assertThat(run(source, Interpreter.DEFAULT_MEMO_CAPACITY)).isEqualTo(run(source, 0));
+        assertThat(run(source, 0)).isEqualTo("3\n3\n6 6 2\n11 [1]");
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedResult() {
+        MemoCache cache = new MemoCache(2);
+        MemoCache.Key one = MemoCache.key(new Value[] {Value.integer(1)});
+        MemoCache.Key two = MemoCache.key(new Value[] {Value.integer(2)});
+        MemoCache.Key three = MemoCache.key(new Value[] {Value.integer(3)});
+        cache.put(one, Value.string("one"));
+        cache.put(two, Value.string("two"));
+        cache.get(one);
+        cache.put(three, Value.string("three"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get(two)).isNull();
+        assertThat(cache.get(MemoCache.key(new Value[] {Value.integer(1)})).asString()).isEqualTo("one");
+        assertThat(MemoCache.key(new Value[] {Value.integer(1)}))
+            .isNotEqualTo(MemoCache.key(new Value[] {Value.real(1.0)}));
+        assertThat(MemoCache.key(new Value[] {Value.array(new ArrayValue())})).isNull();
+    }
+
+    private String run(String source, int memoCapacity) {
+        return EngineRunner.run(source, errorHandler -> new Interpreter(errorHandler,
+            Interpreter.DEFAULT_JIT_THRESHOLD, ExecutionEngine.DEFAULT_MAX_DEPTH, memoCapacity));
+    }
+}
@@ -0,0 +1,73 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for interned tuple shapes and the flat tuple storage built on them.
+ */
+class TupleShapeTest {
+    @Test
+    void tuplesWithTheSameMembersShareOneShape() {
+        TupleValue appended = new TupleValue();
+        appended.append("x", Value.integer(1));
+        appended.append(null, Value.integer(2));
+        appended.append("y", Value.integer(3));
+        TupleValue literal = new TupleValue(TupleShape.of("x", null, "y"),
+            new Value[] {Value.integer(4), Value.integer(5), Value.integer(6)});
+
+        assertThat(appended.getShape()).isSameAs(literal.getShape());
+        assertThat(TupleShape.of("y", "x")).isNotSameAs(TupleShape.of("x", "y"));
+        assertThat(literal.getByName("y").asInteger()).isEqualTo(6);
+        assertThat(literal.getNameAt(2)).isNull();
+        assertThat(appended.toString()).isEqualTo("{x:=1, 2, y:=3}");
+    }
+
+    @Test
+    void concatenationTransitionsToTheInternedShape() {
+        TupleValue left = new TupleValue(TupleShape.of("a"), new Value[] {Value.integer(1)});
+        TupleValue right = new TupleValue(TupleShape.of("b", "a"), new Value[] {Value.integer(2), Value.integer(3)});
+
+        TupleValue combined = left.concat(right);
+
+        assertThat(combined.getShape()).isSameAs(TupleShape.of("a", "b", "a"));
+        assertThat(combined.getByName("a").asInteger()).isEqualTo(3);
+        assertThat(combined.getByIndex(1).asInteger()).isEqualTo(1);
+        assertThat(combined.values()).extracting(Value::asInteger).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void concatenationsSharingStorageStayIndependent() {
+        TupleValue base = new TupleValue(TupleShape.of("a"), new Value[] {Value.integer(1)});
+        TupleValue first = base.concat(new TupleValue(TupleShape.of("b"), new Value[] {Value.integer(2)}));
+        TupleValue second = first.concat(new TupleValue(TupleShape.of("c"), new Value[] {Value.integer(3)}));
+        TupleValue sibling = first.concat(new TupleValue(TupleShape.of("d"), new Value[] {Value.integer(4)}));
+
+        first.setByName("a", Value.integer(10));
+        second.append("e", Value.integer(5));
+
+        assertThat(first.toString()).isEqualTo("{a:=10, b:=2}");
+        assertThat(second.toString()).isEqualTo("{a:=1, b:=2, c:=3, e:=5}");
+        assertThat(sibling.toString()).isEqualTo("{a:=1, b:=2, d:=4}");
+        assertThat(base.toString()).isEqualTo("{a:=1}");
+    }
+
+    @Test
+    void valuesViewSeesLaterUpdates() {
+        TupleValue tuple = new TupleValue(TupleShape.of("a", "b"), new Value[] {Value.integer(1), Value.integer(2)});
+        var values = tuple.values();
+
+        tuple.setByName("b", Value.integer(20));
+
+        assertThat(values.get(1).asInteger()).isEqualTo(20);
+        assertThatThrownBy(() -> values.add(Value.VOID)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void rejectsValuesThatDoNotMatchTheShape() {
+        assertThatThrownBy(() -> new TupleValue(TupleShape.of("a", "b"), new Value[] {Value.integer(1)}))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,95 @@
+package com.javdin.interpreter;
+
+import com.javdin.ast.LiteralNode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Tests for the runtime value representation and its conversions.
+ */
+class ValueTest {
+    @Test
+    void numbersConvertWithoutLosingTheirType() {
+        Value integer = Value.integer(-7);
+        Value real = Value.real(2.9);
+
+        assertThat(integer.getType()).isEqualTo(Value.ValueType.INTEGER);
+        assertThat(integer.asReal()).isEqualTo(-7.0);
+        assertThat(integer.getValue()).isEqualTo(-7);
+        assertThat(real.asInteger()).isEqualTo(2);
+        assertThat(real.asString()).isEqualTo("2.9");
+        assertThat(Value.bool(true).asInteger()).isEqualTo(1);
+        assertThat(Value.string("42").asInteger()).isEqualTo(42);
+        assertThat(Value.string("1.5").asReal()).isEqualTo(1.5);
+    }
+
+    @Test
+    void truthinessFollowsTheWrappedValue() {
+        assertThat(Value.integer(0).isTruthy()).isFalse();
+        assertThat(Value.real(0.5).isTruthy()).isTrue();
+        assertThat(Value.string("").isTruthy()).isFalse();
+        assertThat(Value.array(new ArrayValue()).isTruthy()).isFalse();
+        assertThat(Value.VOID.isTruthy()).isFalse();
+    }
+
+    @Test
+    void missingReferencesAreVoid() {
+        assertThat(Value.string(null)).isSameAs(Value.VOID);
+        assertThat(Value.VOID.asString()).isEqualTo("none");
+        assertThat(Value.marker().getType()).isEqualTo(Value.ValueType.VOID);
+        assertThat(Value.marker()).isNotSameAs(Value.VOID);
+    }
+
+    @Test
+    void booleansAndSmallIntegersAreCanonical() {
+        assertThat(Value.bool(true)).isSameAs(Value.TRUE);
+        assertThat(Value.bool(1 > 2)).isSameAs(Value.FALSE);
+        assertThat(Value.integer(-128)).isSameAs(Value.integer(-128));
+        assertThat(Value.integer(1023)).isSameAs(Value.integer(1023));
+        assertThat(Value.integer(1024).asInteger()).isEqualTo(1024);
+        assertThat(Value.integer(-129).asInteger()).isEqualTo(-129);
+    }
+
+    @Test
+    void literalValuesAreMaterializedOnce() {
+        LiteralNode real = new LiteralNode(2.5, LiteralNode.LiteralType.REAL, 1, 1);
+        LiteralNode text = new LiteralNode("hi", LiteralNode.LiteralType.STRING, 1, 1);
+
+        assertThat(Operations.literal(real)).isSameAs(Operations.literal(real));
+        assertThat(Operations.literal(real).asReal()).isEqualTo(2.5);
+        assertThat(Operations.literal(text).asString()).isEqualTo("hi");
+        assertThat(Operations.literal(new LiteralNode(null, LiteralNode.LiteralType.NONE, 1, 1))).isSameAs(Value.VOID);
+    }
+
+    @Test
+    void concatenatedStringsSharingABufferStayDistinct() {
+        Value base = Value.string("x".repeat(300));
+        Value first = Value.concat(base, Value.string("1"));
+        Value extended = Value.concat(first, Value.string("2"));
+        Value sibling = Value.concat(first, Value.string("3"));
+
+        assertThat(first.asString()).isEqualTo("x".repeat(300) + "1");
+        assertThat(extended.asString()).endsWith("x12");
+        assertThat(sibling.asString()).endsWith("x13").hasSize(302);
+        assertThat(Value.concat(Value.string("4"), Value.string("2")).asInteger()).isEqualTo(42);
+        assertThat(Value.concat(Value.string(""), Value.string("")).isTruthy()).isFalse();
+        assertThatThrownBy(() -> extended.asReal())
+            .isInstanceOf(RuntimeError.class)
+            .hasMessageStartingWith("Cannot convert string 'xxx");
+    }
+
+    @Test
+    void invalidConversionsReportTheType() {
+        assertThatThrownBy(() -> Value.string("x").asInteger())
+            .isInstanceOf(RuntimeError.class)
+            .hasMessage("Cannot convert string 'x' to integer");
+        assertThatThrownBy(() -> Value.integer(1).asArray())
+            .isInstanceOf(RuntimeError.class)
+            .hasMessage("Expected array but got INTEGER");
+        assertThatThrownBy(() -> Value.VOID.asReal())
+            .isInstanceOf(RuntimeError.class)
+            .hasMessage("Cannot convert VOID to real");
+    }
+}
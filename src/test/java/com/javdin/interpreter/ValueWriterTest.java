@@ -0,0 +1,51 @@
+package com.javdin.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for streaming values into output sinks.
+ */
+class ValueWriterTest {
+    @Test
+    void numbersPrintLikeTheirStringForm() {
+        int[] integers = {0, 7, -7, 10, 1023, -1024, 123456789, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        double[] reals = {0.0, -0.0, 2.0, -3.0, 0.1, 2.5, 9999999.0, 1e7, -1e7, 1e-5, Double.NaN,
+            Double.POSITIVE_INFINITY, 4294967296.0};
+        for (int integer : integers) {
+            assertThat(streamed(Value.integer(integer))).isEqualTo(Integer.toString(integer));
+        }
+        for (double real : reals) {
+            assertThat(streamed(Value.real(real))).isEqualTo(Double.toString(real));
+        }
+    }
+
+    @Test
+    void nestedArraysAndTuplesStreamElementByElement() {
+        TupleValue tuple = new TupleValue();
+        tuple.append("x", Value.real(1.0));
+        tuple.append(null, Value.array(new ArrayValue(List.of(Value.string("s"), Value.VOID))));
+        ArrayValue array = new ArrayValue(List.of(Value.integer(-12), Value.integer(3)));
+        array.set(3, Value.tuple(tuple));
+
+        Value value = Value.array(array);
+
+        assertThat(streamed(value)).isEqualTo("[-12, 3, {x:=1.0, [s, none]}]");
+        assertThat(value.asString()).isEqualTo("[-12, 3, {x:=1.0, [s, none]}]");
+        assertThat(streamed(Value.array(new ArrayValue(List.of(Value.real(0.5), Value.real(-2.0))))))
+            .isEqualTo("[0.5, -2.0]");
+    }
+
+    private static String streamed(Value value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BufferedOutputSink sink = new BufferedOutputSink(bytes, false, 16);
+        ValueWriter.write(value, sink);
+        sink.flush();
+        return bytes.toString(Charset.defaultCharset());
+    }
+}
@@ -0,0 +1,119 @@
+package com.javdin.lexer;
+
+import com.javdin.utils.IoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Tests that lexing UTF-8 bytes gives the same tokens as lexing a string.
+ */
+class ByteLexerTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void matchesTheStringLexer() {
+        String source = String.join("\n",
+            "var x := 42 // comment",
+            "/* multi-line",
+            "   comment */ var y := 3.14 + x..10",
+            "if x /= y and x <= y then print \"tab\\there\", 'it\\'s', \"\\q\" end",
+            "var f := func(a, b) => a >= b",
+            "var t := {a := 1, b := [1, 2]}[1]",
+            "");
+
+        assertThat(bytes(source)).isEqualTo(tokens(new Lexer(source)));
+    }
+
+    @Test
+    void decodesNonAsciiText() {
+        String source = "var größe := \"naïve ✓ 𝄞\" // ünïcode\nprint größe, 'é\\é'";
+        List<Token> tokens = bytes(source);
+
+        assertThat(tokens).isEqualTo(tokens(new Lexer(source)));
+        assertThat(tokens.get(1).value()).isEqualTo("größe");
+        assertThat(tokens.get(3).value()).isEqualTo("naïve ✓ 𝄞");
+        // Columns count characters, so the print is where the string lexer puts it
+        assertThat(tokens.get(6)).isEqualTo(new Token(TokenType.IDENTIFIER, "größe", 2, 7));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"var x := \"open", "/* never closed", "var ✓ := 1", "var int := 1", "x := 1 @"})
+    void reportsTheSameErrors(String source) {
+        LexicalException expected = catchThrowableOfType(() -> tokens(new Lexer(source)), LexicalException.class);
+        LexicalException actual = catchThrowableOfType(() -> bytes(source), LexicalException.class);
+
+        assertThat(actual).hasMessage(expected.getMessage());
+        assertThat(actual.getLine()).isEqualTo(expected.getLine());
+        assertThat(actual.getColumn()).isEqualTo(expected.getColumn());
+    }
+
+    @Test
+    void matchesTheStringLexerAcrossBlockBoundaries() {
+        // Tokens and 2-, 3- and 4-byte characters land on both sides of the
+        // 64 KiB block boundary as the padding grows, and the long string
+        // is longer than the scratch buffer it is copied into
+        String tail = "var größe := \"ä✓𝄞" + "z".repeat(100) + "\" + x1..x2 // é✓𝄞\nprint größe, 'ü𝄞'\n";
+        int block = 1 << 16;
+        for (int shift = 0; shift < 24; shift++) {
+            String source = "//" + "-".repeat(block - 2 - 24 + shift) + "\n" + tail;
+
+            assertThat(bytes(source)).as("shift %d", shift).isEqualTo(tokens(new Lexer(source)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"FF", "C080", "E08080", "EDA080", "F4908080", "E282"})
+    void rejectsMalformedUtf8(String hex) {
+        byte[] prefix = "var s := 1\nprint \"a".getBytes(StandardCharsets.US_ASCII);
+        byte[] source = new byte[prefix.length + hex.length() / 2];
+        System.arraycopy(prefix, 0, source, 0, prefix.length);
+        for (int i = 0; i < hex.length() / 2; i++) {
+            source[prefix.length + i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        LexicalException error = catchThrowableOfType(
+            () -> tokens(new Lexer(ByteBuffer.wrap(source))), LexicalException.class);
+
+        assertThat(error).hasMessage("Malformed UTF-8 input");
+        assertThat(error.getLine()).isEqualTo(2);
+        assertThat(error.getColumn()).isEqualTo(9);
+    }
+
+    @Test
+    void lexesMappedFiles() throws IOException {
+        String source = "var s := \"déjà vu\"\nprint s\n";
+        Path file = Files.writeString(tempDir.resolve("program.d"), source, StandardCharsets.UTF_8);
+
+        assertThat(tokens(new Lexer(IoUtils.mapFile(file.toString())))).isEqualTo(tokens(new Lexer(source)));
+        Path empty = Files.writeString(tempDir.resolve("empty.d"), "");
+        assertThat(tokens(new Lexer(IoUtils.mapFile(empty.toString()))))
+            .containsExactly(new Token(TokenType.EOF, 1, 1));
+    }
+
+    private static List<Token> bytes(String source) {
+        return tokens(new Lexer(ByteBuffer.wrap(source.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static List<Token> tokens(Lexer lexer) {
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.type() != TokenType.EOF);
+        return tokens;
+    }
+}
@@ -279,4 +279,38 @@ class OperatorPrecedenceTest {
         
         // Result: a * (-b) 
     }
+
+    // ========== Operator Resolution Tests ==========
+    
+    @Test
+    void testParserResolvesOperatorsToEnumConstants() {
+        // Both spellings of "not equal" resolve to the same operator
+        Lexer lexer = new Lexer("var x := -a /= b and c != d + 1");
+        Parser parser = new Parser(lexer);
+        
+        ProgramNode program = parser.parse();
+        
+        DeclarationNode decl = (DeclarationNode) program.getStatements().get(0);
+        BinaryOpNode topNode = (BinaryOpNode) decl.getVariables().get(0).getInitialValue();
+        assertThat(topNode.getOp()).isEqualTo(Operator.AND);
+        assertThat(topNode.getOp().getKind()).isEqualTo(Operator.Kind.LOGICAL);
+        
+        BinaryOpNode left = (BinaryOpNode) topNode.getLeft();
+        BinaryOpNode right = (BinaryOpNode) topNode.getRight();
+        assertThat(left.getOp()).isEqualTo(Operator.NOT_EQUAL);
+        assertThat(right.getOp()).isEqualTo(Operator.NOT_EQUAL);
+        assertThat(right.getOperator()).isEqualTo("/=");
+        assertThat(((UnaryOpNode) left.getLeft()).getOp()).isEqualTo(Operator.NEGATE);
+        assertThat(((BinaryOpNode) right.getRight()).getOp()).isEqualTo(Operator.ADD);
+    }
+    
+    @Test
+    void testOperatorSpellingsAndArity() {
+        assertThat(Operator.binary("==")).isEqualTo(Operator.EQUAL);
+        assertThat(Operator.binary("-")).isEqualTo(Operator.SUBTRACT);
+        assertThat(Operator.unary("-")).isEqualTo(Operator.NEGATE);
+        assertThat(Operator.NOT.getArity()).isEqualTo(1);
+        assertThatThrownBy(() -> Operator.binary("%")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new UnaryOpNode(1, 1, Operator.ADD, null)).isInstanceOf(IllegalArgumentException.class);
+    }
 }
@@ -0,0 +1,88 @@
+package com.javdin.semantics;
+
+import com.javdin.ast.*;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PurityAnalyzer
+ */
+public class PurityAnalyzerTest {
+
+    @Test
+    public void testArgumentOnlyFunctionsArePure() {
+        Map<String, FunctionLiteralNode> functions = analyze(String.join("\n",
+            "var limit := 10",
+            "var fib := func(n) is",
+            "    if n < 2 then return n end",
+            "    var a := fib(n - 1)",
+            "    a := a + fib(n - 2)",
+            "    return a",
+            "end",
+            "var capped := func(n) => n < limit and fib(n) > 0"));
+
+        assertTrue(functions.get("fib").isPure());
+        assertTrue(functions.get("capped").isPure(), "Constant globals and stable functions may be read");
+    }
+
+    @Test
+    public void testEffectsAndMutableStateMakeFunctionsImpure() {
+        Map<String, FunctionLiteralNode> functions = analyze(String.join("\n",
+            "var counter := 0",
+            "var table := [1, 2, 3]",
+            "var log := func(x) is print x end",
+            "var bump := func() is counter := counter + 1 end",
+            "var store := func(a) is a[1] := 0 end",
+            "var lookup := func(i) => table[i]",
+            "var current := func() => counter",
+            "counter := 5"));
+
+        assertFalse(functions.get("log").isPure());
+        assertFalse(functions.get("bump").isPure());
+        assertFalse(functions.get("store").isPure());
+        assertFalse(functions.get("lookup").isPure(), "Arrays held in globals can be mutated");
+        assertFalse(functions.get("current").isPure(), "Reassigned globals are not stable");
+    }
+
+    @Test
+    public void testEnclosingParametersAreNotStable() {
+        Map<String, FunctionLiteralNode> functions = analyze(String.join("\n",
+            "var adder := func(k) is",
+            "    var add := func(x) => x + k",
+            "    return add",
+            "end"));
+
+        assertTrue(functions.get("adder").isPure());
+        assertFalse(functions.get("add").isPure());
+    }
+
+    private Map<String, FunctionLiteralNode> analyze(String source) {
+        ProgramNode program = new Parser(new Lexer(source)).parse();
+        new Resolver().resolve(program);
+        new PurityAnalyzer().analyze(program);
+        Map<String, FunctionLiteralNode> functions = new HashMap<>();
+        collect(program.getStatements(), functions);
+        return functions;
+    }
+
+    private void collect(Iterable<StatementNode> statements, Map<String, FunctionLiteralNode> functions) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof DeclarationNode declaration) {
+                for (DeclarationNode.VariableDefinition definition : declaration.getVariables()) {
+                    if (definition.getInitialValue() instanceof FunctionLiteralNode literal) {
+                        functions.put(definition.getName(), literal);
+                        if (!literal.isExpressionBody()) {
+                            collect(literal.getStatementBody(), functions);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
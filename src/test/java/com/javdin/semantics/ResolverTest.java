@@ -0,0 +1,137 @@
+package com.javdin.semantics;
+
+import com.javdin.ast.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for Resolver
+ */
+public class ResolverTest {
+
+    private Resolver resolver;
+
+    @BeforeEach
+    public void setUp() {
+        resolver = new Resolver();
+    }
+
+    @Test
+    public void testGlobalsGetConsecutiveSlots() {
+        // var x := 1, y := 2
+        // print y
+        DeclarationNode declaration = new DeclarationNode(List.of(
+            new DeclarationNode.VariableDefinition("x", literal(1)),
+            new DeclarationNode.VariableDefinition("y", literal(2))), 1, 1);
+        ReferenceNode y = new ReferenceNode(2, 7, "y");
+        ProgramNode program = program(declaration, new PrintNode(2, 1, y));
+
+        resolver.resolve(program);
+
+        assertEquals(2, program.getFrameSize());
+        assertEquals(0, declaration.getVariables().get(0).getSlot());
+        assertEquals(1, declaration.getVariables().get(1).getSlot());
+        assertEquals(0, y.getDepth());
+        assertEquals(1, y.getSlot());
+    }
+
+    @Test
+    public void testBlockWithoutDeclarationsDoesNotAddDepth() {
+        // var x := 1
+        // if true then print x end
+        ReferenceNode x = new ReferenceNode(2, 20, "x");
+        BlockNode thenBlock = new BlockNode(2, 1, new ArrayList<>(List.of(new PrintNode(2, 14, x))));
+        ProgramNode program = program(
+            new DeclarationNode("x", literal(1), 1, 1),
+            new IfNode(2, 1, new LiteralNode(true, LiteralNode.LiteralType.BOOLEAN, 2, 4), thenBlock, null));
+
+        resolver.resolve(program);
+
+        assertEquals(0, thenBlock.getFrameSize());
+        assertEquals(0, x.getDepth());
+        assertEquals(0, x.getSlot());
+    }
+
+    @Test
+    public void testShadowingFollowsDeclarationOrder() {
+        // var x := 1
+        // if true then print x; var x := 2; print x end
+        ReferenceNode before = new ReferenceNode(2, 20, "x");
+        ReferenceNode after = new ReferenceNode(2, 40, "x");
+        BlockNode thenBlock = new BlockNode(2, 1, new ArrayList<>(List.of(
+            new PrintNode(2, 14, before),
+            new DeclarationNode("x", literal(2), 2, 23),
+            new PrintNode(2, 34, after))));
+        ProgramNode program = program(
+            new DeclarationNode("x", literal(1), 1, 1),
+            new IfNode(2, 1, new LiteralNode(true, LiteralNode.LiteralType.BOOLEAN, 2, 4), thenBlock, null));
+
+        resolver.resolve(program);
+
+        assertEquals(1, thenBlock.getFrameSize());
+        assertEquals(1, before.getDepth(), "Reference before the inner declaration sees the global");
+        assertEquals(0, after.getDepth(), "Reference after the inner declaration sees the local");
+    }
+
+    @Test
+    public void testFunctionParametersAndCapturedVariables() {
+        // var base := 10
+        // var add := func(a, b) => a + b + base
+        ReferenceNode a = new ReferenceNode(2, 26, "a");
+        ReferenceNode b = new ReferenceNode(2, 30, "b");
+        ReferenceNode base = new ReferenceNode(2, 34, "base");
+        ExpressionNode body = new BinaryOpNode(2, 26, new BinaryOpNode(2, 26, a, "+", b), "+", base);
+        FunctionLiteralNode function = new FunctionLiteralNode(2, 12, List.of("a", "b"), body, true);
+        ProgramNode program = program(
+            new DeclarationNode("base", literal(10), 1, 1),
+            new DeclarationNode("add", function, 2, 1));
+
+        resolver.resolve(program);
+
+        assertEquals(2, function.getFrameSize());
+        assertEquals(0, a.getSlot());
+        assertEquals(1, b.getSlot());
+        assertEquals(1, base.getDepth());
+        assertEquals(0, base.getSlot());
+    }
+
+    @Test
+    public void testLoopVariableIsCapturedOnlyByFunctionLiteralsInTheBody() {
+        // for i in 1..3 loop print i end
+        // for j in 1..3 loop var f := func() => j end
+        ForNode plain = new ForNode(1, 1, "i", literal(1), literal(3),
+            new BlockNode(1, 19, new ArrayList<>(List.of(new PrintNode(1, 20, new ReferenceNode(1, 26, "i"))))));
+        FunctionLiteralNode function = new FunctionLiteralNode(2, 30, List.of(), new ReferenceNode(2, 39, "j"), true);
+        ForNode capturing = new ForNode(2, 1, "j", literal(1), literal(3),
+            new BlockNode(2, 19, new ArrayList<>(List.of(new DeclarationNode("f", function, 2, 20)))));
+        ProgramNode program = program(plain, capturing);
+
+        resolver.resolve(program);
+
+        assertFalse(plain.isVariableCaptured());
+        assertTrue(capturing.isVariableCaptured());
+    }
+
+    @Test
+    public void testUndeclaredReferenceStaysUnresolved() {
+        ReferenceNode missing = new ReferenceNode(1, 7, "missing");
+        ProgramNode program = program(new PrintNode(1, 1, missing));
+
+        resolver.resolve(program);
+
+        assertFalse(missing.isResolved());
+    }
+
+    private ProgramNode program(StatementNode... statements) {
+        return new ProgramNode(new ArrayList<>(List.of(statements)), 1, 1);
+    }
+
+    private LiteralNode literal(int value) {
+        return new LiteralNode(value, LiteralNode.LiteralType.INTEGER, 1, 1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.javdin.vm;
+
+import com.javdin.ast.ProgramNode;
+import com.javdin.interpreter.EngineRunner;
+import com.javdin.interpreter.Interpreter;
+import com.javdin.lexer.Lexer;
+import com.javdin.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for the bytecode compiler and stack virtual machine.
+ * Every program is also run through the tree-walking interpreter and the
+ * two outputs (including reported errors) must match exactly.
+ */
+class VirtualMachineTest {
+    @Test
+    void executesArithmeticLoopsAndPrint() {
+        String output = runBoth(String.join("\n",
+            "var sum := 0",
+            "for i in 1..10 loop",
+            "    if i = 7 then exit end",
+            "    sum := sum + i * 2",
+            "end",
+            "var j := 5",
+            "while j > 0 loop j := j - 2 end",
+            "print sum, j, 7 / 2, 7.0 / 2, -3 / 2"));
+        assertThat(output).isEqualTo("42 -1 3 3.5 -2");
+    }
+
+    @Test
+    void returnsFromNestedLoopsAndUsesLastStatementValue() {
+        String output = runBoth(String.join("\n",
+            "var search := func(limit) is",
+            "    for i in 1..10 loop",
+            "        var j := 1",
+            "        while j <= 10 loop",
+            "            if i * j > limit then return i * j end",
+            "            j := j + 1",
+            "        end",
+            "    end",
+            "    return 0",
+            "end",
+            "var implicit := func(x) is",
+            "    var y := x + 1",
+            "    y := y * 2",
+            "end",
+            "print search(25), implicit(4)"));
+        assertThat(output).isEqualTo("27 10");
+    }
+
+    @Test
+    void exitsEnclosingLoopFromInsideCalledFunction() {
+        String output = runBoth(String.join("\n",
+            "var count := 0",
+            "for i in 1..10 loop",
+            "    var stop := func() is if i = 4 then exit end end",
+            "    var seen := stop()",
+            "    count := count + 1",
+            "    print seen",
+            "end",
+            "print count"));
+        assertThat(output).endsWith("\n3");
+    }
+
+    @Test
+    void capturesFreshLoopVariablePerIteration() {
+        String output = runBoth(String.join("\n",
+            "var fs := []",
+            "for k in 1..3 loop fs[k] := func() => k end",
+            "var counter := func() is",
+            "    var n := 0",
+            "    return func() is n := n + 1 end",
+            "end",
+            "var c := counter()",
+            "var a := c()",
+            "var b := c()",
+            "print fs[1](), fs[3](), a, b"));
+        assertThat(output).isEqualTo("1 3 1 2");
+    }
+
+    @Test
+    void handlesArraysAndTuples() {
+        String output = runBoth(String.join("\n",
+            "var arr := [1, 2]",
+            "for x in arr loop if x < 4 then arr[x + 2] := x * 10 end end",
+            "var t := {a := 1, b := 2}",
+            "t.b := t.1 + 5",
+            "var u := t + {c := [3]}",
+            "print arr, t.2, u.c[1], u is tuple, arr = [1, 2, 10, 20]"));
+        assertThat(output).isEqualTo("[1, 2, 10, 20] 6 3 true true");
+    }
+
+    @Test
+    void reportsRuntimeErrorsLikeTheInterpreter() {
+        String output = runBoth(String.join("\n",
+            "print 1",
+            "var f := func(a) => a + 1",
+            "print f(1, 2)",
+            "print 2"));
+        assertThat(output).isEqualTo("1\nRuntime error: Function expected 1 arguments but received 2");
+    }
+
+    @Test
+    void limitsCallDepthLikeTheInterpreter() {
+        String source = String.join("\n",
+            "var depth := func(n) is",
+            "    if n = 0 then return 0 end",
+            "    return depth(n - 1) + 1",
+            "end",
+            "print depth(40)",
+            "print depth(60)");
+        String output = EngineRunner.runBoth(source,
+            errorHandler -> new Interpreter(errorHandler, 0, 50),
+            errorHandler -> new VmEngine(errorHandler, 50));
+        assertThat(output).isEqualTo("40\nRuntime error: Maximum call depth of 50 exceeded");
+    }
+
+    @Test
+    void recursesBeyondTheJavaStackOnTheHeapCallStack() {
+        String source = String.join("\n",
+            "var depth := func(n) is",
+            "    if n = 0 then return 0 end",
+            "    return depth(n - 1) + 1",
+            "end",
+            "print depth(300000)");
+        assertThat(EngineRunner.run(source, VmEngine::new)).isEqualTo("300000");
+        assertThat(EngineRunner.run(source, errorHandler -> new Interpreter(errorHandler, 0)))
+            .contains("Runtime error: Call stack exhausted after ");
+    }
+
+    @Test
+    void disassemblesCompiledProgram() {
+        ProgramNode ast = new Parser(new Lexer(String.join("\n",
+            "var f := func(x) => x + 1",
+            "print f(41)"))).parse();
+        String listing = Disassembler.disassemble(VmEngine.compile(ast));
+        assertThat(listing).contains("CALL", "PRINT", "HALT", "RETURN");
+    }
+
+    private String runBoth(String source) {
+        return EngineRunner.runBoth(source, Interpreter::new, VmEngine::new);
+    }
+}